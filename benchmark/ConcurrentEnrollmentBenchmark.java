@@ -0,0 +1,62 @@
+package benchmark;
+
+import business.EnrollmentManager;
+import data.StorageConfig;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Registration-open load: many threads enroll random students into a few popular courses,
+// then the seat and roster invariants are checked
+public class ConcurrentEnrollmentBenchmark 
+{
+    public static void main(String[] args) throws IOException, InterruptedException 
+    {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int attempts = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        int studentCount = 20_000;
+        int courseCount = 50;
+        int capacity = 100;
+
+        File directory = Files.createTempDirectory("enrollment-concurrent").toFile();
+        StorageConfig config = new StorageConfig();
+        config.setDataDirectory(directory);
+        config.setLogMode(true);
+
+        EnrollmentManager manager = new EnrollmentManager(config);
+        for(int s = 0; s < studentCount; s++) 
+        {
+            manager.addStudent(DatasetGenerator.studentId(s), "Student " + s, "student" + s + "@anits.edu.in");
+        }
+        for(int c = 0; c < courseCount; c++) 
+        {
+            manager.addCourse(DatasetGenerator.courseId(c), "Course " + c, capacity);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        for(int t = 0; t < threads; t++) 
+        {
+            pool.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for(int i = 0; i < attempts / threads; i++) 
+                {
+                    manager.enroll(DatasetGenerator.studentId(random.nextInt(studentCount)), DatasetGenerator.courseId(random.nextInt(courseCount)));
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.MINUTES);
+        long elapsed = System.nanoTime() - start;
+        manager.shutdown();
+
+        System.out.printf("%d threads, %d attempts in %.1f ms (%.0f enrollments/s)%n", threads, attempts, elapsed / 1e6, attempts / (elapsed / 1e9));
+        String violation = manager.checkInvariants();
+        System.out.println(violation == null ? "Invariants hold: no course oversold, both sides of every enrollment agree" : "VIOLATION: " + violation);
+    }
+}
@@ -0,0 +1,129 @@
+package benchmark;
+
+import data.CsvParser;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+// Throughput of the streaming CsvParser against the line-by-line parser it replaced
+public class CsvParserBenchmark 
+{
+    public static void main(String[] args) throws IOException 
+    {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        String data = generate(rows);
+        double megabytes = data.length() * 2 / 1e6;
+
+        for(int warmup = 0; warmup < 3; warmup++) 
+        {
+            legacy(data);
+            streaming(data);
+        }
+
+        long legacyNanos = 0;
+        long streamingNanos = 0;
+        long checksum = 0;
+        for(int i = 0; i < iterations; i++) 
+        {
+            long start = System.nanoTime();
+            checksum += legacy(data);
+            legacyNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            checksum -= streaming(data);
+            streamingNanos += System.nanoTime() - start;
+        }
+
+        System.out.printf("%d rows, %.1f MB of chars%n", rows, megabytes);
+        System.out.printf("Legacy parseCSVLine  %8.1f ms/iteration  %7.1f MB/s%n", legacyNanos / 1e6 / iterations, megabytes * iterations / (legacyNanos / 1e9));
+        System.out.printf("Streaming CsvParser  %8.1f ms/iteration  %7.1f MB/s%n", streamingNanos / 1e6 / iterations, megabytes * iterations / (streamingNanos / 1e9));
+        if(checksum != 0) 
+        {
+            System.out.println("Warning: parsers disagree on field lengths");
+        }
+    }
+
+    private static String generate(int rows) 
+    {
+        StringBuilder data = new StringBuilder(rows * 48);
+        for(int i = 0; i < rows; i++) 
+        {
+            data.append('S').append(i).append(',');
+            if(i % 10 == 0) 
+            {
+                data.append("\"Student, ").append(i).append('"');
+            } 
+            else 
+            {
+                data.append("Student ").append(i);
+            }
+            data.append(",student").append(i).append("@anits.edu.in\n");
+        }
+        return data.toString();
+    }
+
+    // Total field length, so both parsers do comparable work with their output
+    private static long streaming(String data) throws IOException 
+    {
+        long[] total = new long[1];
+        new CsvParser().parse(new StringReader(data), record -> {
+            for(int f = 0; f < record.getFieldCount(); f++) 
+            {
+                total[0] += record.getFieldLength(f);
+            }
+        });
+        return total[0];
+    }
+
+    private static long legacy(String data) throws IOException 
+    {
+        long total = 0;
+        try (BufferedReader reader = new BufferedReader(new StringReader(data))) 
+        {
+            String line;
+            while((line = reader.readLine()) != null) 
+            {
+                for(String field : parseCSVLine(line)) 
+                {
+                    total += field.length();
+                }
+            }
+        }
+        return total;
+    }
+
+    // The implementation DataManager used before CsvParser, kept as the baseline
+    private static String[] parseCSVLine(String line) 
+    {
+        List<String> tokens = new ArrayList<>();
+        boolean inQuotes = false;
+        StringBuilder sb = new StringBuilder();
+
+        for(char c : line.toCharArray()) 
+        {
+            if(c == '\"') 
+            {
+                inQuotes = !inQuotes;
+                if(inQuotes && sb.length() > 0 && sb.charAt(sb.length() - 1) == '\"') 
+                {
+                    sb.append('\"');
+                }
+            } 
+            else if(c == ',' && !inQuotes) 
+            {
+                tokens.add(sb.toString().trim());
+                sb.setLength(0);
+            } 
+            else 
+            {
+                sb.append(c);
+            }
+        }
+        tokens.add(sb.toString().trim());
+        return tokens.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,68 @@
+package benchmark;
+
+import java.io.*;
+import java.util.Random;
+
+// Writes synthetic students.csv, courses.csv and enrollments.csv files for benchmarking
+public class DatasetGenerator 
+{
+    public static void main(String[] args) throws IOException 
+    {
+        if(args.length < 2) 
+        {
+            System.out.println("Usage: java benchmark.DatasetGenerator <directory> <enrollments> [enrollmentsPerStudent]");
+            return;
+        }
+        int perStudent = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        generate(new File(args[0]), Integer.parseInt(args[1]), perStudent);
+    }
+
+    // Each student takes perStudent distinct courses; courses are sized so every enrollment fits
+    public static void generate(File directory, int enrollments, int perStudent) throws IOException 
+    {
+        directory.mkdirs();
+        int studentCount = Math.max(1, enrollments / perStudent);
+        int courseCount = Math.max(perStudent, studentCount / 20);
+        int capacity = (int) Math.ceil((double) enrollments / courseCount) * 2;
+        Random random = new Random(42);
+
+        try (PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(new File(directory, "students.csv")), 1 << 16))) 
+        {
+            for(int s = 0; s < studentCount; s++) 
+            {
+                writer.println(studentId(s) + ",Student " + s + ",student" + s + "@anits.edu.in");
+            }
+        }
+
+        try (PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(new File(directory, "courses.csv")), 1 << 16))) 
+        {
+            for(int c = 0; c < courseCount; c++) 
+            {
+                writer.println(courseId(c) + ",Course " + c + "," + capacity);
+            }
+        }
+
+        try (PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(new File(directory, "enrollments.csv")), 1 << 16))) 
+        {
+            for(int s = 0; s < studentCount; s++) 
+            {
+                // Consecutive courses from a random start keep each student's courses distinct
+                int first = random.nextInt(courseCount);
+                for(int k = 0; k < perStudent; k++) 
+                {
+                    writer.println(studentId(s) + "," + courseId((first + k) % courseCount));
+                }
+            }
+        }
+    }
+
+    public static String studentId(int index) 
+    {
+        return "S" + index;
+    }
+
+    public static String courseId(int index) 
+    {
+        return "C" + index;
+    }
+}
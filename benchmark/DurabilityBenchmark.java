@@ -0,0 +1,70 @@
+package benchmark;
+
+import business.EnrollmentManager;
+import data.DurabilityMode;
+import data.StorageConfig;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.stream.IntStream;
+
+// Cost of each DurabilityMode on the write paths: single appends, a batched append and, in CSV
+// mode, a full file replacement. Every mode runs against its own copy of the same dataset; the
+// persistence mode and flush policy come from the usual -Denrollment.* properties.
+//
+//   java benchmark.DurabilityBenchmark [enrollments=10000] [output=durability-results.json] [warmup=2] [iterations=5]
+public class DurabilityBenchmark 
+{
+    private static final int PER_STUDENT = 10;
+
+    public static void main(String[] args) throws Exception 
+    {
+        int enrollments = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        File output = new File(args.length > 1 ? args[1] : "durability-results.json");
+        int warmup = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+        int iterations = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+        Harness harness = new Harness(warmup, iterations);
+        for(DurabilityMode mode : DurabilityMode.values()) 
+        {
+            File directory = Files.createTempDirectory("enrollment-durability").toFile();
+            DatasetGenerator.generate(directory, enrollments, PER_STUDENT);
+            StorageConfig config = StorageConfig.fromSystemProperties();
+            config.setDataDirectory(directory);
+            config.setDurabilityMode(mode);
+            run(harness, config, mode.name(), enrollments);
+        }
+        harness.writeJson(output);
+        System.out.println("Results written to " + output.getAbsolutePath());
+    }
+
+    private static void run(Harness harness, StorageConfig config, String mode, int enrollments) throws Exception 
+    {
+        EnrollmentManager manager = new EnrollmentManager(config);
+        int studentCount = Math.max(1, enrollments / PER_STUDENT);
+        int batch = 200;
+        String[] course = new String[1];
+
+        System.out.println(harness.measure("addStudent" + mode, enrollments, batch, null, i -> {
+            String id = "DUR-" + System.nanoTime() + "-" + i;
+            return manager.addStudent(id, "Durability bench", id + "@example.com");
+        }));
+
+        System.out.println(harness.measure("enroll" + mode, enrollments, batch, iteration -> {
+            course[0] = "DUR-E" + iteration;
+            manager.addCourse(course[0], "Durability bench", batch);
+        }, i -> manager.enroll(DatasetGenerator.studentId(i % studentCount), course[0])));
+
+        System.out.println(harness.measure("enrollBatch" + mode, enrollments, 1, iteration -> {
+            course[0] = "DUR-B" + iteration;
+            manager.addCourse(course[0], "Durability bench", batch);
+        }, i -> manager.enrollBatch(IntStream.range(0, batch).mapToObj(s -> new String[] {DatasetGenerator.studentId(s % studentCount), course[0]}))));
+
+        // In CSV mode an update replaces students.csv through a temporary file and a rename
+        System.out.println(harness.measure("updateStudent" + mode, enrollments, config.isLogMode() ? batch : 10, null,
+                i -> manager.updateStudentDetails(DatasetGenerator.studentId(i % studentCount), "Renamed " + i, "renamed" + i + "@example.com")));
+
+        manager.awaitDurable();
+        manager.shutdown();
+    }
+}
@@ -0,0 +1,79 @@
+package benchmark;
+
+import data.Course;
+import data.EnrollmentStore;
+import data.Student;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Time to fill one course seat by seat: primitive ordinal sets against the former ArrayList scans
+public class EnrollmentSetBenchmark 
+{
+    public static void main(String[] args) 
+    {
+        int[] sizes = args.length > 0 ? parseSizes(args) : new int[] {10_000, 30_000, 100_000};
+        for(int seats : sizes) 
+        {
+            EnrollmentStore store = new EnrollmentStore();
+            Student[] students = new Student[seats];
+            for(int i = 0; i < seats; i++) 
+            {
+                students[i] = store.newStudent(DatasetGenerator.studentId(i), "Student " + i, "student" + i + "@anits.edu.in");
+            }
+
+            // Warm up both paths on a small course first
+            fillHashed(store, students, Math.min(seats, 2_000));
+            fillList(students, Math.min(seats, 2_000));
+
+            long start = System.nanoTime();
+            fillHashed(store, students, seats);
+            long hashed = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            fillList(students, seats);
+            long list = System.nanoTime() - start;
+
+            System.out.printf("%7d seats   ordinal sets %9.2f ms   ArrayList %10.2f ms   (%.0fx)%n", seats, hashed / 1e6, list / 1e6, (double) list / hashed);
+        }
+    }
+
+    private static void fillHashed(EnrollmentStore store, Student[] students, int seats) 
+    {
+        Course course = store.newCourse("C0", "Course 0", seats);
+        for(int i = 0; i < seats; i++) 
+        {
+            if(course.enrollStudent(students[i])) 
+            {
+                students[i].enroll(course);
+            }
+        }
+        for(int i = 0; i < seats; i++) 
+        {
+            students[i].unenroll(course);
+        }
+    }
+
+    // The enrollStudent / Student.enroll logic as it was with ArrayList storage
+    private static void fillList(Student[] students, int seats) 
+    {
+        List<Student> enrolled = new ArrayList<>();
+        for(int i = 0; i < seats; i++) 
+        {
+            if(enrolled.size() < seats && !enrolled.contains(students[i])) 
+            {
+                enrolled.add(students[i]);
+            }
+        }
+    }
+
+    private static int[] parseSizes(String[] args) 
+    {
+        int[] sizes = new int[args.length];
+        for(int i = 0; i < args.length; i++) 
+        {
+            sizes[i] = Integer.parseInt(args[i]);
+        }
+        return sizes;
+    }
+}
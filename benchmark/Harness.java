@@ -0,0 +1,157 @@
+package benchmark;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// Minimal benchmark runner: a fixed number of warmup and measured iterations of a fixed number of
+// operations each, reporting the average time per operation with a 99.9% confidence interval.
+// It is not a JMH substitute: everything runs in one JVM with no forking, a volatile field is the
+// only guard against dead-code elimination, and warmup is a set iteration count rather than a check
+// that compilation has settled. Use it to compare runs on the same machine, not as absolute figures.
+// The hot-path suite runs under JMH (jmh/benchmark/HotPathBenchmark); this runner backs the
+// standalone drivers, and its JSON export borrows the field layout of JMH's "-rf json" output so
+// the same plotting scripts can read both.
+public class Harness 
+{
+    public interface Setup 
+    {
+        void prepare(int iteration) throws Exception;
+    }
+
+    public interface Operation 
+    {
+        Object run(int index) throws Exception;
+    }
+
+    private final int warmupIterations;
+    private final int measurementIterations;
+    private final List<Result> results = new ArrayList<>();
+    private volatile Object sink; // Keeps results reachable so the JIT cannot drop the work
+
+    public Harness(int warmupIterations, int measurementIterations) 
+    {
+        this.warmupIterations = warmupIterations;
+        this.measurementIterations = measurementIterations;
+    }
+
+    // Run the operation opsPerIteration times per iteration; setup runs untimed before every iteration
+    public Result measure(String benchmark, int enrollments, int opsPerIteration, Setup setup, Operation operation) throws Exception 
+    {
+        double[] samples = new double[measurementIterations];
+        for(int iteration = 0; iteration < warmupIterations + measurementIterations; iteration++) 
+        {
+            if(setup != null) 
+            {
+                setup.prepare(iteration);
+            }
+            long start = System.nanoTime();
+            for(int i = 0; i < opsPerIteration; i++) 
+            {
+                sink = operation.run(i);
+            }
+            long elapsed = System.nanoTime() - start;
+            if(iteration >= warmupIterations) 
+            {
+                samples[iteration - warmupIterations] = elapsed / 1e3 / opsPerIteration;
+            }
+        }
+        Result result = new Result(benchmark, enrollments, samples);
+        results.add(result);
+        return result;
+    }
+
+    public List<Result> getResults() 
+    {
+        return results;
+    }
+
+    // ------------------- Results -------------------
+
+    public static class Result 
+    {
+        private final String benchmark;
+        private final int enrollments;
+        private final double[] samples; // microseconds per operation, one per measured iteration
+
+        Result(String benchmark, int enrollments, double[] samples) 
+        {
+            this.benchmark = benchmark;
+            this.enrollments = enrollments;
+            this.samples = samples;
+        }
+
+        public double getScore() 
+        {
+            double sum = 0;
+            for(double sample : samples) 
+            {
+                sum += sample;
+            }
+            return sum / samples.length;
+        }
+
+        // Half-width of the 99.9% confidence interval (normal approximation)
+        public double getScoreError() 
+        {
+            if(samples.length < 2) 
+            {
+                return Double.NaN;
+            }
+            double mean = getScore();
+            double squares = 0;
+            for(double sample : samples) 
+            {
+                squares += (sample - mean) * (sample - mean);
+            }
+            return 3.291 * Math.sqrt(squares / (samples.length - 1)) / Math.sqrt(samples.length);
+        }
+
+        @Override
+        public String toString() 
+        {
+            return String.format(Locale.ROOT, "%-28s %9d %14.3f +- %10.3f us/op", benchmark, enrollments, getScore(), getScoreError());
+        }
+    }
+
+    // ------------------- JSON Export -------------------
+
+    public void writeJson(File file) throws IOException 
+    {
+        try (PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(file)))) 
+        {
+            writer.println("[");
+            for(int r = 0; r < results.size(); r++) 
+            {
+                Result result = results.get(r);
+                writer.println("    {");
+                writer.println("        \"benchmark\" : \"" + result.benchmark + "\",");
+                writer.println("        \"mode\" : \"avgt\",");
+                writer.println("        \"warmupIterations\" : " + warmupIterations + ",");
+                writer.println("        \"measurementIterations\" : " + measurementIterations + ",");
+                writer.println("        \"params\" : {");
+                writer.println("            \"enrollments\" : \"" + result.enrollments + "\"");
+                writer.println("        },");
+                writer.println("        \"primaryMetric\" : {");
+                writer.println("            \"score\" : " + number(result.getScore()) + ",");
+                writer.println("            \"scoreError\" : " + number(result.getScoreError()) + ",");
+                writer.println("            \"scoreUnit\" : \"us/op\",");
+                StringBuilder raw = new StringBuilder();
+                for(int s = 0; s < result.samples.length; s++) 
+                {
+                    raw.append(s == 0 ? "" : ", ").append(number(result.samples[s]));
+                }
+                writer.println("            \"rawData\" : [ [ " + raw + " ] ]");
+                writer.println("        }");
+                writer.println(r == results.size() - 1 ? "    }" : "    },");
+            }
+            writer.println("]");
+        }
+    }
+
+    private static String number(double value) 
+    {
+        return Double.isNaN(value) ? "\"NaN\"" : String.format(Locale.ROOT, "%.3f", value);
+    }
+}
@@ -0,0 +1,101 @@
+package benchmark;
+
+import business.EnrollmentManager;
+import data.StorageConfig;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.Random;
+
+// Startup time and retained heap with every student loaded versus lazy student loading, on a large
+// student table where only a small share of students is enrolled or looked up. Run each mode in its
+// own JVM:
+//
+//   java benchmark.LazyLoadBenchmark [students=5000000] [mode=eager|lazy] [directory=generated]
+public class LazyLoadBenchmark 
+{
+    private static final int COURSES = 200;
+    private static final double ACTIVE = 0.02; // Share of students with an enrollment
+    private static final int LOOKUPS = 1_000_000;
+
+    public static void main(String[] args) throws IOException 
+    {
+        int students = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        boolean lazy = args.length > 1 && "lazy".equalsIgnoreCase(args[1]);
+        File directory;
+        if(args.length > 2) 
+        {
+            directory = new File(args[2]);
+        }
+        else 
+        {
+            directory = Files.createTempDirectory("enrollment-lazy").toFile();
+            System.out.println("Generating " + students + " students in " + directory);
+            generate(directory, students);
+        }
+        StorageConfig config = new StorageConfig();
+        config.setDataDirectory(directory);
+        config.setLazyStudents(lazy);
+
+        long before = usedHeap();
+        long start = System.nanoTime();
+        EnrollmentManager manager = new EnrollmentManager(config);
+        long startupMillis = (System.nanoTime() - start) / 1_000_000;
+        long retained = usedHeap() - before;
+        System.out.printf("%s: startup %d ms, %.1f MB retained (%.1f bytes/student)%n",
+                lazy ? "Lazy" : "Eager", startupMillis, retained / 1048576.0, (double) retained / students);
+
+        // Lookups over the active students, which fit the cache, then over the whole table
+        Random random = new Random(42);
+        int active = (int) (students * ACTIVE);
+        for(int range : new int[] {active, students}) 
+        {
+            start = System.nanoTime();
+            long checksum = 0;
+            for(int i = 0; i < LOOKUPS; i++) 
+            {
+                checksum += manager.getStudent(DatasetGenerator.studentId(random.nextInt(range))).getName().length();
+            }
+            System.out.printf("  name lookups over %d students: %6.0f ns each (checksum %d)%n",
+                    range, (double) (System.nanoTime() - start) / LOOKUPS, checksum);
+        }
+        manager.shutdown();
+    }
+
+    // Every student in students.csv, the first ACTIVE share of them enrolled in one course each
+    private static void generate(File directory, int students) throws IOException 
+    {
+        try (PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(new File(directory, "students.csv")), 1 << 16))) 
+        {
+            for(int s = 0; s < students; s++) 
+            {
+                writer.println(DatasetGenerator.studentId(s) + ",Student " + s + ",student" + s + "@anits.edu.in");
+            }
+        }
+        int active = (int) (students * ACTIVE);
+        try (PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(new File(directory, "courses.csv")), 1 << 16))) 
+        {
+            for(int c = 0; c < COURSES; c++) 
+            {
+                writer.println(DatasetGenerator.courseId(c) + ",Course " + c + "," + (active / COURSES + 1));
+            }
+        }
+        try (PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(new File(directory, "enrollments.csv")), 1 << 16))) 
+        {
+            for(int s = 0; s < active; s++) 
+            {
+                writer.println(DatasetGenerator.studentId(s) + "," + DatasetGenerator.courseId(s % COURSES));
+            }
+        }
+    }
+
+    private static long usedHeap() 
+    {
+        Runtime runtime = Runtime.getRuntime();
+        for(int i = 0; i < 3; i++) 
+        {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
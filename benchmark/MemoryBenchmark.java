@@ -0,0 +1,71 @@
+package benchmark;
+
+import business.EnrollmentManager;
+import data.DataManager;
+import data.EnrollmentStore;
+import data.StorageConfig;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Heap per enrollment once everything is loaded, for the int-ordinal store and for the former
+// layout of one LinkedHashSet of object references on each side
+public class MemoryBenchmark 
+{
+    public static void main(String[] args) throws IOException 
+    {
+        int enrollments = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        File directory = Files.createTempDirectory("enrollment-memory").toFile();
+        System.out.println("Generating " + enrollments + " enrollments in " + directory);
+        DatasetGenerator.generate(directory, enrollments, 10);
+        StorageConfig config = new StorageConfig();
+        config.setDataDirectory(directory);
+
+        long before = usedHeap();
+        EnrollmentManager manager = new EnrollmentManager(config);
+        long loaded = usedHeap() - before;
+        EnrollmentStore store = manager.getStudent(DatasetGenerator.studentId(0)).getStore();
+        System.out.printf("Ordinal store:   %8.1f bytes/enrollment on the heap, %5.1f of them adjacency%n",
+                (double) loaded / enrollments, (double) store.adjacencyBytes() / enrollments);
+        manager.shutdown();
+        manager = null;
+
+        // The same graph as two maps of LinkedHashSets holding object references
+        before = usedHeap();
+        List<String[]> rows = new DataManager(config).loadEnrollments();
+        Map<String, Set<Object>> coursesOfStudent = new HashMap<>();
+        Map<String, Set<Object>> studentsOfCourse = new HashMap<>();
+        Map<String, Object> entities = new HashMap<>();
+        for(String[] row : rows) 
+        {
+            Object student = entities.computeIfAbsent(row[0], id -> new Object());
+            Object course = entities.computeIfAbsent(row[1], id -> new Object());
+            coursesOfStudent.computeIfAbsent(row[0], id -> new LinkedHashSet<>()).add(course);
+            studentsOfCourse.computeIfAbsent(row[1], id -> new LinkedHashSet<>()).add(student);
+        }
+        rows = null;
+        long sets = usedHeap() - before;
+        System.out.printf("LinkedHashSets:  %8.1f bytes/enrollment on the heap (sets, ID maps and placeholder entities)%n",
+                (double) sets / enrollments);
+        if(coursesOfStudent.size() + studentsOfCourse.size() == 0) 
+        {
+            System.out.println(); // Keeps the maps reachable until the measurement is taken
+        }
+    }
+
+    private static long usedHeap() 
+    {
+        Runtime runtime = Runtime.getRuntime();
+        for(int i = 0; i < 3; i++) 
+        {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
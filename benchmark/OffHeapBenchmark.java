@@ -0,0 +1,131 @@
+package benchmark;
+
+import business.EnrollmentManager;
+import data.EnrollmentStore;
+import data.StorageConfig;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.nio.file.Files;
+import java.util.Random;
+
+// Heap, old generation and garbage collection cost of holding every student record on the heap
+// versus in the off-heap store. Run each mode in its own JVM so the collectors start clean:
+//
+//   java -Xmx3g benchmark.OffHeapBenchmark [students=5000000] [mode=heap|offheap] [directory=generated]
+public class OffHeapBenchmark 
+{
+    private static final int LOOKUPS = 5_000_000;
+
+    public static void main(String[] args) throws IOException 
+    {
+        int students = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        boolean offHeap = args.length > 1 && "offheap".equalsIgnoreCase(args[1]);
+        File directory;
+        if(args.length > 2) 
+        {
+            directory = new File(args[2]);
+        }
+        else 
+        {
+            directory = Files.createTempDirectory("enrollment-offheap").toFile();
+            System.out.println("Generating " + students + " students in " + directory);
+            DatasetGenerator.generate(directory, students, 1);
+        }
+        StorageConfig config = new StorageConfig();
+        config.setDataDirectory(directory);
+        config.setOffHeap(offHeap);
+
+        long start = System.nanoTime();
+        EnrollmentManager manager = new EnrollmentManager(config);
+        long loadMillis = (System.nanoTime() - start) / 1_000_000;
+        long[] loadGc = gcTotals();
+        EnrollmentStore store = manager.getStudent(DatasetGenerator.studentId(0)).getStore();
+
+        long heap = usedHeap();
+        System.out.printf("%s: %d students loaded in %d ms (%d collections, %d ms)%n",
+                offHeap ? "Off-heap" : "Heap", students, loadMillis, loadGc[0], loadGc[1]);
+        System.out.printf("  heap used %8.1f MB, old generation %8.1f MB, direct %8.1f MB (%.1f MB of records)%n",
+                mb(heap), mb(oldGenUsed()), mb(directUsed()), mb(store.offHeapBytes()));
+
+        // A full collection has to trace every object the store keeps reachable
+        long pauses = 0;
+        for(int i = 0; i < 5; i++) 
+        {
+            long gcStart = System.nanoTime();
+            System.gc();
+            pauses += System.nanoTime() - gcStart;
+        }
+        System.out.printf("  full GC pause %8.1f ms (mean of 5)%n", pauses / 5 / 1e6);
+
+        // Lookups allocate flyweights and strings off-heap; only short-lived garbage should result
+        Random random = new Random(42);
+        long[] before = gcTotals();
+        start = System.nanoTime();
+        long checksum = 0;
+        for(int i = 0; i < LOOKUPS; i++) 
+        {
+            checksum += manager.getStudent(DatasetGenerator.studentId(random.nextInt(students))).getName().length();
+        }
+        long lookupNanos = System.nanoTime() - start;
+        long[] after = gcTotals();
+        System.out.printf("  %d lookups: %6.0f ns each, %d collections, %d ms in GC (checksum %d)%n",
+                LOOKUPS, (double) lookupNanos / LOOKUPS, after[0] - before[0], after[1] - before[1], checksum);
+        manager.shutdown();
+    }
+
+    // Collection count and milliseconds over every collector
+    private static long[] gcTotals() 
+    {
+        long[] totals = new long[2];
+        for(GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) 
+        {
+            totals[0] += Math.max(0, collector.getCollectionCount());
+            totals[1] += Math.max(0, collector.getCollectionTime());
+        }
+        return totals;
+    }
+
+    private static long oldGenUsed() 
+    {
+        for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) 
+        {
+            if(pool.getName().contains("Old Gen") || pool.getName().contains("Tenured")) 
+            {
+                return pool.getUsage().getUsed();
+            }
+        }
+        return -1;
+    }
+
+    private static long directUsed() 
+    {
+        for(BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) 
+        {
+            if(pool.getName().equals("direct")) 
+            {
+                return pool.getMemoryUsed();
+            }
+        }
+        return 0;
+    }
+
+    private static long usedHeap() 
+    {
+        Runtime runtime = Runtime.getRuntime();
+        for(int i = 0; i < 3; i++) 
+        {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static double mb(long bytes) 
+    {
+        return bytes / (1024.0 * 1024.0);
+    }
+}
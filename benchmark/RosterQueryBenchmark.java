@@ -0,0 +1,65 @@
+package benchmark;
+
+import business.EnrollmentManager;
+import data.Student;
+import data.StorageConfig;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Set;
+
+// Roster set queries with and without the roster bitmap index, against a HashSet intersection of
+// the roster copies as the baseline, plus the all-pairs co-enrollment matrix. Results are exported as JSON.
+//
+//   java benchmark.RosterQueryBenchmark [sizes=1000,100000] [output=roster-query-results.json] [warmup=2] [iterations=5]
+public class RosterQueryBenchmark 
+{
+    private static final int PER_STUDENT = 10;
+
+    public static void main(String[] args) throws Exception 
+    {
+        String[] sizes = (args.length > 0 ? args[0] : "1000,100000").split(",");
+        File output = new File(args.length > 1 ? args[1] : "roster-query-results.json");
+        int warmup = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+        int iterations = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+        Harness harness = new Harness(warmup, iterations);
+        for(String size : sizes) 
+        {
+            int enrollments = Integer.parseInt(size.trim());
+            File directory = Files.createTempDirectory("enrollment-bench").toFile();
+            System.out.println("Generating " + enrollments + " enrollments in " + directory);
+            DatasetGenerator.generate(directory, enrollments, PER_STUDENT);
+            run(harness, directory, enrollments, false);
+            run(harness, directory, enrollments, true);
+        }
+        harness.writeJson(output);
+        System.out.println("Results written to " + output.getAbsolutePath());
+    }
+
+    private static void run(Harness harness, File directory, int enrollments, boolean rosterBitmaps) throws Exception 
+    {
+        StorageConfig config = StorageConfig.fromSystemProperties();
+        config.setDataDirectory(directory);
+        config.setRosterBitmaps(rosterBitmaps);
+        int courseCount = Math.max(PER_STUDENT, Math.max(1, enrollments / PER_STUDENT) / 20);
+        String suffix = rosterBitmaps ? "Indexed" : "OnDemand";
+
+        EnrollmentManager manager = new EnrollmentManager(config);
+        if(!rosterBitmaps) 
+        {
+            System.out.println(harness.measure("hashSetIntersection", enrollments, 100, null, i -> {
+                Set<Student> shared = new HashSet<>(manager.getCourse(DatasetGenerator.courseId(i % courseCount)).getEnrolledStudents());
+                shared.retainAll(manager.getCourse(DatasetGenerator.courseId((i + 1) % courseCount)).getEnrolledStudents());
+                return shared.size();
+            }));
+        }
+        System.out.println(harness.measure("countInAllCourses" + suffix, enrollments, 100, null,
+                i -> manager.countInAllCourses(DatasetGenerator.courseId(i % courseCount), DatasetGenerator.courseId((i + 1) % courseCount))));
+        System.out.println(harness.measure("studentsInAnyCourse" + suffix, enrollments, 100, null,
+                i -> manager.studentsInAnyCourse(DatasetGenerator.courseId(i % courseCount), DatasetGenerator.courseId((i + 7) % courseCount))));
+        System.out.println(harness.measure("coEnrollmentMatrix" + suffix, enrollments, 1, null, i -> manager.coEnrollmentMatrix()));
+        manager.shutdown();
+    }
+}
@@ -0,0 +1,110 @@
+package benchmark;
+
+import business.EnrollmentManager;
+import data.Course;
+import data.RosterVersion;
+import data.StorageConfig;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+// Enrollment throughput during registration with and without report traffic: writer threads enroll
+// and drop random students while reader threads walk whole rosters of the same courses
+//
+//   java benchmark.RosterReadBenchmark [writers=4] [readers=4] [attempts=200000]
+public class RosterReadBenchmark 
+{
+    private static final int STUDENTS = 50_000;
+    private static final int COURSES = 20;
+    private static final int CAPACITY = 5_000;
+
+    public static void main(String[] args) throws IOException, InterruptedException 
+    {
+        int writers = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int readers = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int attempts = args.length > 2 ? Integer.parseInt(args[2]) : 200_000;
+
+        for(int activeReaders : new int[] {0, readers}) 
+        {
+            File directory = Files.createTempDirectory("enrollment-roster-read").toFile();
+            StorageConfig config = new StorageConfig();
+            config.setDataDirectory(directory);
+            config.setLogMode(true);
+            EnrollmentManager manager = new EnrollmentManager(config);
+            for(int s = 0; s < STUDENTS; s++) 
+            {
+                manager.addStudent(DatasetGenerator.studentId(s), "Student " + s, "student" + s + "@anits.edu.in");
+            }
+            for(int c = 0; c < COURSES; c++) 
+            {
+                manager.addCourse(DatasetGenerator.courseId(c), "Course " + c, CAPACITY);
+            }
+
+            AtomicBoolean writing = new AtomicBoolean(true);
+            LongAdder rostersRead = new LongAdder();
+            ExecutorService readerPool = Executors.newFixedThreadPool(Math.max(1, activeReaders));
+            for(int r = 0; r < activeReaders; r++) 
+            {
+                readerPool.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    long checksum = 0;
+                    while(writing.get()) 
+                    {
+                        Course course = manager.getCourse(DatasetGenerator.courseId(random.nextInt(COURSES)));
+                        RosterVersion roster = course.getRoster();
+                        for(int i = 0; i < roster.size(); i++) 
+                        {
+                            checksum += roster.studentOrdinal(i);
+                        }
+                        rostersRead.increment();
+                    }
+                    return checksum;
+                });
+            }
+
+            ExecutorService writerPool = Executors.newFixedThreadPool(writers);
+            long start = System.nanoTime();
+            for(int w = 0; w < writers; w++) 
+            {
+                writerPool.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for(int i = 0; i < attempts / writers; i++) 
+                    {
+                        String studentId = DatasetGenerator.studentId(random.nextInt(STUDENTS));
+                        String courseId = DatasetGenerator.courseId(random.nextInt(COURSES));
+                        if(random.nextInt(10) == 0) 
+                        {
+                            manager.deleteCourseEnrollment(studentId, courseId);
+                        }
+                        else 
+                        {
+                            manager.enroll(studentId, courseId);
+                        }
+                    }
+                });
+            }
+            writerPool.shutdown();
+            writerPool.awaitTermination(10, TimeUnit.MINUTES);
+            long elapsed = System.nanoTime() - start;
+            writing.set(false);
+            readerPool.shutdown();
+            readerPool.awaitTermination(1, TimeUnit.MINUTES);
+            manager.shutdown();
+
+            System.out.printf("%d writers, %d readers: %.0f writes/s, %.0f rosters read/s%n", writers, activeReaders,
+                    attempts / (elapsed / 1e9), rostersRead.sum() / (elapsed / 1e9));
+            String violation = manager.checkInvariants();
+            if(violation != null) 
+            {
+                System.out.println("VIOLATION: " + violation);
+            }
+        }
+    }
+}
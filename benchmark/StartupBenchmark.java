@@ -0,0 +1,54 @@
+package benchmark;
+
+import business.EnrollmentManager;
+import data.StorageConfig;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+// Compares EnrollmentManager startup from the CSV files (sequential and parallel) against the binary snapshot
+public class StartupBenchmark 
+{
+    public static void main(String[] args) throws IOException 
+    {
+        int enrollments = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        File directory = Files.createTempDirectory("enrollment-startup").toFile();
+
+        System.out.println("Generating " + enrollments + " enrollments in " + directory);
+        DatasetGenerator.generate(directory, enrollments, 10);
+
+        StorageConfig csv = new StorageConfig();
+        csv.setDataDirectory(directory);
+        StorageConfig parallel = new StorageConfig();
+        parallel.setDataDirectory(directory);
+        parallel.setParallelLoad(true);
+        StorageConfig snapshot = new StorageConfig();
+        snapshot.setDataDirectory(directory);
+        snapshot.setSnapshotEnabled(true);
+
+        new EnrollmentManager(csv).saveSnapshot();
+        System.out.println("Snapshot size: " + new File(directory, "snapshot.bin").length() + " bytes");
+
+        report("CSV startup", csv, runs);
+        report("Parallel startup", parallel, runs);
+        report("Snapshot startup", snapshot, runs);
+    }
+
+    private static void report(String label, StorageConfig config, int runs) 
+    {
+        long best = Long.MAX_VALUE;
+        long total = 0;
+        for(int run = 0; run < runs; run++) 
+        {
+            System.gc();
+            long start = System.nanoTime();
+            new EnrollmentManager(config);
+            long elapsed = System.nanoTime() - start;
+            best = Math.min(best, elapsed);
+            total += elapsed;
+        }
+        System.out.printf("%-18s best %8.1f ms   mean %8.1f ms%n", label, best / 1e6, total / 1e6 / runs);
+    }
+}
@@ -0,0 +1,62 @@
+package business;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Number of students shared by every pair of courses. The matrix is symmetric, so only the upper
+// triangle is stored, packed row by row; the diagonal is each course's own enrollment count.
+public class CoEnrollmentMatrix 
+{
+    private final List<String> courseIds;
+    private final Map<String, Integer> positions = new HashMap<>();
+    private final int[] enrolled;
+    private final int[] shared;
+
+    CoEnrollmentMatrix(List<String> courseIds, int[] enrolled, int[] shared) 
+    {
+        this.courseIds = Collections.unmodifiableList(courseIds);
+        this.enrolled = enrolled;
+        this.shared = shared;
+        for(int i = 0; i < courseIds.size(); i++) 
+        {
+            positions.put(courseIds.get(i), i);
+        }
+    }
+
+    // Offset of the pair (i, j), i < j, in the packed upper triangle of an n x n matrix
+    static long offset(int n, int i, int j) 
+    {
+        return (long) i * n - (long) i * (i + 1) / 2 + (j - i - 1);
+    }
+
+    // Getters
+    public List<String> getCourseIds() 
+    {
+        return courseIds;
+    }
+
+    public int size() 
+    {
+        return courseIds.size();
+    }
+
+    // Students enrolled in both courses, by position in getCourseIds()
+    public int getCount(int i, int j) 
+    {
+        if(i == j) 
+        {
+            return enrolled[i];
+        }
+        return i < j ? shared[(int) offset(enrolled.length, i, j)] : shared[(int) offset(enrolled.length, j, i)];
+    }
+
+    // Students enrolled in both courses, or -1 if either course is not in the matrix
+    public int getCount(String courseId, String otherCourseId) 
+    {
+        Integer i = positions.get(courseId);
+        Integer j = positions.get(otherCourseId);
+        return i == null || j == null ? -1 : getCount(i, j);
+    }
+}
@@ -1,310 +1,909 @@
 package business;
 
+import data.CompressedBitmap;
 import data.Course;
 import data.DataManager;
+import data.LoadedData;
+import data.Page;
+import data.RosterOrder;
+import data.RosterTransaction;
+import data.Snapshot;
+import data.StorageConfig;
 import data.Student;
+import monitoring.Metrics;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
+// Safe to call from many threads: the maps are concurrent, seats are reserved with CAS on each course,
+// and only requests for the same course or student contend for a lock
 public class EnrollmentManager 
 {
     private DataManager dataManager;
+    private StorageConfig config;
     private Map<String, Student> students;
     private Map<String, Course> courses;
+    private NavigableMap<String, Course> courseCatalog; // The courses by ID, for paged listing
+    private final AtomicBoolean shutDown = new AtomicBoolean();
 
     public EnrollmentManager() 
     {
-        this.dataManager = new DataManager();
-        this.students = dataManager.loadStudents();
-        this.courses = dataManager.loadCourses();
-        loadEnrollments();
+        this(StorageConfig.fromSystemProperties());
+    }
+
+    public EnrollmentManager(StorageConfig config) 
+    {
+        long start = Metrics.start();
+        try 
+        {
+            this.config = config;
+            this.dataManager = new DataManager(config);
+            long recovery = Metrics.start();
+            if(!snapshotsEnabled() || !loadSnapshot()) 
+            {
+                loadFiles();
+            }
+            Metrics.record("recovery", recovery);
+            this.courseCatalog = new ConcurrentSkipListMap<>(courses);
+            dataManager.startCheckpoints(students.values(), courses.values());
+        }
+        finally 
+        {
+            Metrics.record("startup", start);
+        }
+    }
+
+    // Load the data files, replaying the mutation log tail in log mode
+    private void loadFiles() 
+    {
+        if(config.isParallelLoad() && !dataManager.isLazyStudents()) 
+        {
+            LoadedData data = dataManager.loadAllParallel();
+            this.students = adoptStudents(data.getStudents());
+            this.courses = new ConcurrentHashMap<>(data.getCourses());
+            loadEnrollments(data.getEnrollments());
+        }
+        else 
+        {
+            this.students = adoptStudents(dataManager.loadStudents());
+            this.courses = new ConcurrentHashMap<>(dataManager.loadCourses());
+            dataManager.loadEnrollments(this::link); // Streamed: no row is kept per enrollment
+        }
+    }
+
+    // A flyweight store's student map is already the thread-safe index; a heap map is copied
+    private Map<String, Student> adoptStudents(Map<String, Student> loaded) 
+    {
+        return dataManager.getStore().isFlyweight() ? loaded : new ConcurrentHashMap<>(loaded);
+    }
+
+    // A snapshot holds every student, which would defeat lazy student loading
+    private boolean snapshotsEnabled() 
+    {
+        return config.isSnapshotEnabled() && !dataManager.isLazyStudents();
+    }
+
+    // Restore the whole state from the binary snapshot, if one matches the files on disk
+    private boolean loadSnapshot() 
+    {
+        Snapshot snapshot = dataManager.loadSnapshot();
+        if(snapshot == null) 
+        {
+            return false;
+        }
+        this.students = adoptStudents(snapshot.getStudents());
+        this.courses = new ConcurrentHashMap<>(snapshot.getCourses());
+        snapshot.forEachEnrollment((student, course) -> {
+            if(course.enrollStudent(student)) 
+            {
+                student.enroll(course);
+            }
+        });
+        return true;
+    }
+
+    // Write the binary snapshot used for fast startup
+    public void saveSnapshot() 
+    {
+        long start = Metrics.start();
+        try 
+        {
+            dataManager.writeSnapshot(students.values(), courses.values());
+        }
+        finally 
+        {
+            Metrics.record("saveSnapshot", start);
+        }
     }
 
     // Load enrollments and associate students with courses
-    private void loadEnrollments() 
+    private void loadEnrollments(List<String[]> enrollments) 
     {
-        List<String[]> enrollments = dataManager.loadEnrollments();
         for(String[] enrollment : enrollments) 
         {
-            String studentId = enrollment[0];
-            String courseId = enrollment[1];
-            Student student = students.get(studentId);
-            Course course = courses.get(courseId);
-            if(student != null && course != null) 
+            link(enrollment[0], enrollment[1]);
+        }
+    }
+
+    private void link(String studentId, String courseId) 
+    {
+        Student student = students.get(studentId);
+        Course course = courses.get(courseId);
+        if(student != null && course != null) 
+        {
+            if(course.enrollStudent(student)) 
             {
-                boolean enrolled = course.enrollStudent(student);
-                if(enrolled) 
-                {
-                    student.enroll(course);
-                }
+                completeEnrollment(student, course);
             }
         }
     }
 
+    // Lookups for callers that render their own output
+    public Student getStudent(String studentId) 
+    {
+        return students.get(studentId);
+    }
+
+    public Course getCourse(String courseId) 
+    {
+        return courses.get(courseId);
+    }
+
+    public Collection<Course> getCourses() 
+    {
+        return Collections.unmodifiableCollection(courses.values());
+    }
+
     // Add a new student
-    public void addStudent(String studentId, String name, String email) 
+    public EnrollmentResult addStudent(String studentId, String name, String email) 
     {
-        if(!students.containsKey(studentId)) 
+        long start = Metrics.start();
+        try 
         {
-            Student student = new Student(studentId, name, email);
-            students.put(studentId, student);
-            dataManager.saveStudent(student);
-            System.out.println("Student added successfully.");
-        } 
-        else 
+            if(students.containsKey(studentId)) 
+            {
+                return EnrollmentResult.STUDENT_EXISTS;
+            }
+            Student student = dataManager.getStore().newStudent(studentId, name, email);
+            if(students.putIfAbsent(studentId, student) == null) 
+            {
+                dataManager.saveStudent(student);
+                return EnrollmentResult.STUDENT_ADDED;
+            }
+            else 
+            {
+                return EnrollmentResult.STUDENT_EXISTS;
+            }
+        }
+        finally 
         {
-            System.out.println("Error: Student ID already exists.");
+            Metrics.record("addStudent", start);
         }
     }
 
     // Add a new course
-    public void addCourse(String courseId, String name, int capacity) 
+    public EnrollmentResult addCourse(String courseId, String name, int capacity) 
     {
-        if(!courses.containsKey(courseId)) 
+        long start = Metrics.start();
+        try 
         {
-            Course course = new Course(courseId, name, capacity);
-            courses.put(courseId, course);
-            dataManager.saveCourse(course);
-            System.out.println("Course added successfully.");
-        } 
-        else 
+            if(courses.containsKey(courseId)) 
+            {
+                return EnrollmentResult.COURSE_EXISTS;
+            }
+            Course course = dataManager.getStore().newCourse(courseId, name, capacity);
+            if(courses.putIfAbsent(courseId, course) == null) 
+            {
+                courseCatalog.put(courseId, course);
+                dataManager.saveCourse(course);
+                return EnrollmentResult.COURSE_ADDED;
+            }
+            else 
+            {
+                return EnrollmentResult.COURSE_EXISTS;
+            }
+        }
+        finally 
         {
-            System.out.println("Error: Course ID already exists.");
+            Metrics.record("addCourse", start);
         }
     }
 
     // Enroll a student in a course
-    public void enroll(String studentId, String courseId) 
+    public EnrollmentResult enroll(String studentId, String courseId) 
     {
-        Student student = students.get(studentId);
-        Course course = courses.get(courseId);
+        long start = Metrics.start();
+        try 
+        {
+            Student student = students.get(studentId);
+            Course course = courses.get(courseId);
+
+            if(student == null) 
+            {
+                return EnrollmentResult.INVALID_STUDENT;
+            }
+
+            if(course == null) 
+            {
+                return EnrollmentResult.INVALID_COURSE;
+            }
+
+            if(student.isEnrolled(course)) 
+            {
+                return EnrollmentResult.ALREADY_ENROLLED;
+            }
+
+            if(course.isFull()) 
+            {
+                return EnrollmentResult.COURSE_FULL; // Rejected without taking the course lock
+            }
 
-        if(student == null) 
+            // Linked on both sides under the course lock and the student's, and saved before they are
+            // released, so a concurrent drop of the same pair is persisted in the order it happened
+            RosterTransaction enrollment = new RosterTransaction();
+            enrollment.enroll(student, course);
+            switch(enrollment.apply(() -> dataManager.saveEnrollment(studentId, courseId))) 
+            {
+                case APPLIED:
+                    return EnrollmentResult.ENROLLED;
+                case STUDENT_DELETED:
+                    return EnrollmentResult.INVALID_STUDENT;
+                case COURSE_DELETED:
+                    return EnrollmentResult.INVALID_COURSE;
+                case ALREADY_ENROLLED:
+                    return EnrollmentResult.ALREADY_ENROLLED;
+                default:
+                    return EnrollmentResult.COURSE_FULL;
+            }
+        }
+        finally 
         {
-            System.out.println("Error: Invalid Student ID.");
-            return;
+            Metrics.record("enroll", start);
         }
+    }
 
-        if(course == null) 
+    // Enroll many (studentId, courseId) pairs at once: every row is validated against the maps,
+    // capacity is checked once per course, and all accepted rows are persisted with one append.
+    // Results are returned in row order, numbered from 1.
+    public List<EnrollmentRowResult> enrollBatch(Stream<String[]> pairs) 
+    {
+        long start = Metrics.start();
+        try 
+        {
+            List<String[]> rows = pairs.collect(Collectors.toList());
+            EnrollmentResult[] results = new EnrollmentResult[rows.size()];
+            Student[] rowStudents = new Student[rows.size()];
+            Map<Course, List<Integer>> rowsByCourse = new LinkedHashMap<>();
+            Map<String, Integer> firstRow = new HashMap<>(); // First row of each pair
+            Integer[] repeatOf = new Integer[rows.size()];   // First row of a repeated pair; settled after it
+
+            for(int i = 0; i < rows.size(); i++) 
+            {
+                String[] pair = rows.get(i);
+                Student student = pair.length >= 1 ? students.get(pair[0]) : null;
+                Course course = pair.length >= 2 ? courses.get(pair[1]) : null;
+                if(student == null) 
+                {
+                    results[i] = EnrollmentResult.INVALID_STUDENT;
+                }
+                else if(course == null) 
+                {
+                    results[i] = EnrollmentResult.INVALID_COURSE;
+                }
+                else if(firstRow.putIfAbsent(pair[0] + '\0' + pair[1], i) != null) 
+                {
+                    repeatOf[i] = firstRow.get(pair[0] + '\0' + pair[1]);
+                }
+                else if(student.isEnrolled(course)) 
+                {
+                    results[i] = EnrollmentResult.ALREADY_ENROLLED;
+                }
+                else 
+                {
+                    rowStudents[i] = student;
+                    rowsByCourse.computeIfAbsent(course, c -> new ArrayList<>()).add(i);
+                }
+            }
+
+            List<String[]> accepted = new ArrayList<>();
+            for(Map.Entry<Course, List<Integer>> entry : rowsByCourse.entrySet()) 
+            {
+                Course course = entry.getKey();
+                List<Student> candidates = new ArrayList<>(entry.getValue().size());
+                for(int i : entry.getValue()) 
+                {
+                    candidates.add(rowStudents[i]);
+                }
+                Set<Student> enrolled = new HashSet<>(course.enrollStudents(candidates));
+                for(int i : entry.getValue()) 
+                {
+                    Student student = rowStudents[i];
+                    if(enrolled.contains(student)) 
+                    {
+                        results[i] = completeEnrollment(student, course);
+                        if(results[i].isSuccess()) 
+                        {
+                            accepted.add(rows.get(i));
+                        }
+                    }
+                    else 
+                    {
+                        results[i] = course.isRetired() ? EnrollmentResult.INVALID_COURSE : EnrollmentResult.COURSE_FULL;
+                    }
+                }
+            }
+            dataManager.saveEnrollments(accepted);
+
+            // A repeated pair is already enrolled if its first copy got in, and failed the same way if not
+            for(int i = 0; i < rows.size(); i++) 
+            {
+                if(repeatOf[i] != null) 
+                {
+                    EnrollmentResult first = results[repeatOf[i]];
+                    results[i] = first.isSuccess() ? EnrollmentResult.ALREADY_ENROLLED : first;
+                }
+            }
+
+            List<EnrollmentRowResult> report = new ArrayList<>(rows.size());
+            for(int i = 0; i < rows.size(); i++) 
+            {
+                String[] pair = rows.get(i);
+                report.add(new EnrollmentRowResult(i + 1, pair.length >= 1 ? pair[0] : "", pair.length >= 2 ? pair[1] : "", results[i]));
+            }
+            return report;
+        }
+        finally 
         {
-            System.out.println("Error: Invalid Course ID.");
-            return;
+            Metrics.record("enrollBatch", start);
         }
+    }
 
-        if(student.getCourses().contains(course)) 
+    public EnrollmentResult updateStudentDetails(String studentId, String name, String email) 
+    {
+        long start = Metrics.start();
+        try 
         {
-            System.out.println("Error: Student is already enrolled in this course.");
-            return;
+            Student student = students.get(studentId);
+            if (student != null) 
+            {
+                student.setName(name);
+                student.setEmail(email);
+                dataManager.updateStudent(student);
+                return EnrollmentResult.STUDENT_UPDATED;
+            }
+            else 
+            {
+                return EnrollmentResult.INVALID_STUDENT;
+            }
+        }
+        finally 
+        {
+            Metrics.record("updateStudentDetails", start);
         }
+    }
 
-        if(course.enrollStudent(student)) 
+    public EnrollmentResult updateCourseDetails(String courseId, String name, int capacity) 
+    {
+        long start = Metrics.start();
+        try 
         {
-            student.enroll(course);
-            dataManager.saveEnrollment(studentId, courseId);
-            System.out.println("Enrollment successful.");
-        } 
-        else 
+            Course course = courses.get(courseId);
+            if (course != null) 
+            {
+                course.setName(name);
+                course.setCapacity(capacity);
+                dataManager.updateCourse(course);
+                return EnrollmentResult.COURSE_UPDATED;
+            }
+            else 
+            {
+                return EnrollmentResult.INVALID_COURSE;
+            }
+        }
+        finally 
         {
-            System.out.println("Error: Course capacity full or student already enrolled.");
+            Metrics.record("updateCourseDetails", start);
         }
     }
 
-    // Display all students enrolled in a specific course
-    public void displayStudentsInCourse(String courseId) 
+    public EnrollmentResult updateCourseEnrollment(String studentId, String oldCourseId, String newCourseId) 
     {
-        Course course = courses.get(courseId);
-        if(course != null) 
+        long start = Metrics.start();
+        try 
         {
-            List<Student> enrolled = course.getEnrolledStudents();
-            if(enrolled.isEmpty()) 
+            Student student = students.get(studentId);
+            Course oldCourse = courses.get(oldCourseId);
+            Course newCourse = courses.get(newCourseId);
+
+            if(student == null) 
             {
-                System.out.println("No students are enrolled in " + course.getName() + ".");
-            } 
-            else 
+                return EnrollmentResult.INVALID_STUDENT;
+            }
+
+            if(oldCourse == null) 
+            {
+                return EnrollmentResult.INVALID_OLD_COURSE;
+            }
+
+            if(newCourse == null) 
+            {
+                return EnrollmentResult.INVALID_NEW_COURSE;
+            }
+
+            if(oldCourse == newCourse) 
+            {
+                return student.isEnrolled(oldCourse) ? EnrollmentResult.ALREADY_IN_NEW_COURSE : EnrollmentResult.NOT_ENROLLED_IN_OLD_COURSE;
+            }
+
+            // Drop and enroll under both course locks, so no other change to either course lands in between
+            // and a full new course leaves the old enrollment untouched. It is saved under them too, so
+            // transfers of the same student are persisted in the order they were made.
+            RosterTransaction transfer = new RosterTransaction();
+            transfer.drop(student, oldCourse);
+            transfer.enroll(student, newCourse);
+            switch(transfer.apply(() -> dataManager.saveTransaction(transfer.getEnrolled(), transfer.getDropped()))) 
             {
-                System.out.println("Students enrolled in " + course.getName() + ":");
-                for (Student student : enrolled) 
+                case APPLIED:
+                    return EnrollmentResult.TRANSFERRED;
+                case STUDENT_DELETED:
+                    return EnrollmentResult.INVALID_STUDENT;
+                case COURSE_DELETED:
+                    return transfer.getFailedChange() == 0 ? EnrollmentResult.INVALID_OLD_COURSE : EnrollmentResult.INVALID_NEW_COURSE;
+                case NOT_ENROLLED:
+                    return EnrollmentResult.NOT_ENROLLED_IN_OLD_COURSE;
+                case ALREADY_ENROLLED:
+                    return EnrollmentResult.ALREADY_IN_NEW_COURSE;
+                default:
+                    return EnrollmentResult.NEW_COURSE_FULL;
+            }
+        }
+        finally 
+        {
+            Metrics.record("updateCourseEnrollment", start);
+        }
+    }
+
+    // Start a transaction whose changes commit all-or-nothing
+    public Transaction transaction() 
+    {
+        return new Transaction(this);
+    }
+
+    EnrollmentResult commit(Transaction transaction) 
+    {
+        long start = Metrics.start();
+        try 
+        {
+            RosterTransaction changes = new RosterTransaction();
+            for(int i = 0; i < transaction.size(); i++) 
+            {
+                Student student = students.get(transaction.studentId(i));
+                Course course = courses.get(transaction.courseId(i));
+                if(student == null || course == null) 
+                {
+                    transaction.setFailedChange(i);
+                    return student == null ? EnrollmentResult.INVALID_STUDENT : EnrollmentResult.INVALID_COURSE;
+                }
+                if(transaction.isEnroll(i)) 
                 {
-                    System.out.println("- " + student.getName() + " (ID: " + student.getStudentId() + ")");
+                    changes.enroll(student, course);
+                }
+                else 
+                {
+                    changes.drop(student, course);
                 }
             }
-        } 
-        else 
+            // Saved before the locks are released, so conflicting transactions are persisted in commit order
+            RosterTransaction.Outcome outcome = changes.apply(() -> dataManager.saveTransaction(changes.getEnrolled(), changes.getDropped()));
+            transaction.setFailedChange(changes.getFailedChange());
+            switch(outcome) 
+            {
+                case APPLIED:
+                    return EnrollmentResult.TRANSACTION_COMMITTED;
+                case STUDENT_DELETED:
+                    return EnrollmentResult.INVALID_STUDENT;
+                case COURSE_DELETED:
+                    return EnrollmentResult.INVALID_COURSE;
+                case NOT_ENROLLED:
+                    return EnrollmentResult.NOT_ENROLLED;
+                case ALREADY_ENROLLED:
+                    return EnrollmentResult.ALREADY_ENROLLED;
+                default:
+                    return EnrollmentResult.COURSE_FULL;
+            }
+        }
+        finally 
         {
-            System.out.println("Error: Invalid Course ID.");
+            Metrics.record("commit", start);
         }
     }
 
-    // Display all courses a student is enrolled in
-    public void displayCoursesOfStudent(String studentId) 
+    public EnrollmentResult deleteStudentDetails(String studentId) 
     {
-        Student student = students.get(studentId);
-        if (student != null) 
+        long start = Metrics.start();
+        try 
         {
-            List<Course> enrolledCourses = student.getCourses();
-            if(enrolledCourses.isEmpty()) 
+            Student student = students.remove(studentId);
+            if (student != null) 
             {
-                System.out.println("Student " + student.getName() + " is not enrolled in any courses.");
-            } 
-            else 
-            {
-                System.out.println("Courses enrolled by " + student.getName() + ":");
+                // The student's own course list is the reverse index: only its courses are touched.
+                // Retiring it first makes a concurrent enroll back out instead of linking it again.
+                Set<Course> enrolledCourses = student.retire();
                 for(Course course : enrolledCourses) 
                 {
-                    System.out.println("- " + course.getName() + " (ID: " + course.getId() + ")");
+                    course.removeStudent(student);
+                    student.unenroll(course);
                 }
+                dataManager.deleteStudent(student, !enrolledCourses.isEmpty());
+                return EnrollmentResult.STUDENT_DELETED;
             }
-        } 
-        else 
+            else 
+            {
+                return EnrollmentResult.INVALID_STUDENT;
+            }
+        }
+        finally 
         {
-            System.out.println("Error: Invalid Student ID.");
+            Metrics.record("deleteStudentDetails", start);
         }
     }
 
-    public void updateStudentDetails(String studentId, String name, String email) 
+    public EnrollmentResult deleteCourseDetails(String courseId) 
     {
-        Student student = students.get(studentId);
-        if (student != null) 
+        long start = Metrics.start();
+        try 
         {
-            student.setName(name);
-            student.setEmail(email);
-            dataManager.updateStudent(student);
-            System.out.println("Student details updated successfully.");
-        } 
-        else 
+            Course course = courses.remove(courseId);
+            if (course != null) 
+            {
+                courseCatalog.remove(courseId);
+                List<Student> roster = course.removeAllStudents();
+                for(Student student : roster) 
+                {
+                    student.unenroll(course);
+                }
+                dataManager.deleteCourse(course, !roster.isEmpty());
+                return EnrollmentResult.COURSE_DELETED;
+            }
+            else 
+            {
+                return EnrollmentResult.INVALID_COURSE;
+            }
+        }
+        finally 
         {
-            System.out.println("Error: Invalid Student ID.");
+            Metrics.record("deleteCourseDetails", start);
         }
     }
 
-    public void updateCourseDetails(String courseId, String name, int capacity) 
+    public EnrollmentResult deleteCourseEnrollment(String studentId, String courseId) 
     {
-        Course course = courses.get(courseId);
-        if (course != null) 
+        long start = Metrics.start();
+        try 
         {
-            course.setName(name);
-            course.setCapacity(capacity);
-            dataManager.updateCourse(course);
-            System.out.println("Course details updated successfully.");
-        } 
-        else 
+            Student student = students.get(studentId);
+            Course course = courses.get(courseId);
+            if (student == null || course == null) 
+            {
+                return EnrollmentResult.INVALID_STUDENT_OR_COURSE;
+            }
+
+            // Checked and unlinked under the same locks as an enrollment, and saved before they are released
+            RosterTransaction drop = new RosterTransaction();
+            drop.drop(student, course);
+            switch(drop.apply(() -> dataManager.deleteEnrollment(studentId, courseId))) 
+            {
+                case APPLIED:
+                    return EnrollmentResult.ENROLLMENT_DELETED;
+                case NOT_ENROLLED:
+                    return EnrollmentResult.NOT_ENROLLED;
+                default:
+                    return EnrollmentResult.INVALID_STUDENT_OR_COURSE; // Deleted in the meantime
+            }
+        }
+        finally 
         {
-            System.out.println("Error: Invalid Course ID.");
+            Metrics.record("deleteCourseEnrollment", start);
         }
     }
 
-    public void updateCourseEnrollment(String studentId, String oldCourseId, String newCourseId) 
+    // Fold the mutation log into new base files now instead of waiting for the next scheduled checkpoint
+    public void checkpoint() 
     {
-        Student student = students.get(studentId);
-        Course oldCourse = courses.get(oldCourseId);
-        Course newCourse = courses.get(newCourseId);
+        dataManager.checkpoint(students.values(), courses.values());
+    }
+
+    // Block until every mutation made so far is committed to the data files; with write-behind
+    // this waits for the background writer to get past them. Throws if any of them could not be written.
+    public void awaitDurable() throws IOException 
+    {
+        dataManager.flush();
+    }
 
-        if(student == null) 
+    // Drain queued writes, flush and release persistence resources before exit; later calls do nothing
+    public void shutdown() 
+    {
+        if(!shutDown.compareAndSet(false, true)) 
         {
-            System.out.println("Error: Invalid Student ID.");
             return;
         }
+        long start = Metrics.start();
+        try 
+        {
+            dataManager.close();
+            if(snapshotsEnabled()) 
+            {
+                saveSnapshot();
+            }
+        }
+        finally 
+        {
+            Metrics.record("shutdown", start);
+        }
+    }
+
+    // ------------------- Paged Queries -------------------
 
-        if(oldCourse == null) 
+    // One page of a course roster in the given order, after the previous page's cursor (null for the
+    // first page); null if there is no such course
+    public Page<Student> studentsInCoursePage(String courseId, RosterOrder order, String cursor, int limit) 
+    {
+        long start = Metrics.start();
+        try 
         {
-            System.out.println("Error: Invalid Old Course ID.");
-            return;
+            Course course = courses.get(courseId);
+            return course == null ? null : course.getRosterPage(order, cursor, limit);
         }
+        finally 
+        {
+            Metrics.record("studentsInCoursePage", start);
+        }
+    }
 
-        if(newCourse == null) 
+    // One page of a student's courses by course ID; a student holds few courses, so they are sorted
+    // per call. Null if there is no such student.
+    public Page<Course> coursesOfStudentPage(String studentId, String cursor, int limit) 
+    {
+        long start = Metrics.start();
+        try 
         {
-            System.out.println("Error: Invalid New Course ID.");
-            return;
+            Student student = students.get(studentId);
+            if(student == null) 
+            {
+                return null;
+            }
+            NavigableMap<String, Course> sorted = new TreeMap<>();
+            for(Course course : student.getCourses()) 
+            {
+                sorted.put(course.getId(), course);
+            }
+            return Page.of(sorted, cursor, limit, course -> course, courseId -> courseId);
         }
+        finally 
+        {
+            Metrics.record("coursesOfStudentPage", start);
+        }
+    }
 
-        // Check if the student is enrolled in the old course
-        if(!student.getCourses().contains(oldCourse)) 
+    // One page of all courses by course ID
+    public Page<Course> coursesPage(String cursor, int limit) 
+    {
+        long start = Metrics.start();
+        try 
         {
-            System.out.println("Error: Student is not enrolled in the old course.");
-            return;
+            return Page.of(courseCatalog, cursor, limit, course -> course, courseId -> courseId);
         }
+        finally 
+        {
+            Metrics.record("coursesPage", start);
+        }
+    }
 
-        // Check if the student is already enrolled in the new course
-        if(student.getCourses().contains(newCourse)) 
+    // ------------------- Roster Set Queries -------------------
+
+    // Students enrolled in every one of the courses
+    public List<Student> studentsInAllCourses(String... courseIds) 
+    {
+        long start = Metrics.start();
+        try 
         {
-            System.out.println("Error: Student is already enrolled in the new course.");
-            return;
+            return dataManager.getStore().studentsIn(intersection(courseIds));
+        }
+        finally 
+        {
+            Metrics.record("studentsInAllCourses", start);
         }
+    }
 
-        // Enroll the student in the new course, if it has space
-        if(newCourse.enrollStudent(student)) 
+    // Students enrolled in at least one of the courses
+    public List<Student> studentsInAnyCourse(String... courseIds) 
+    {
+        long start = Metrics.start();
+        try 
         {
-            student.enroll(newCourse);
-            // Remove the student from the old course
-            oldCourse.removeStudent(student);
-            student.removeCourse(oldCourse);
+            CompressedBitmap union = new CompressedBitmap();
+            for(String courseId : courseIds) 
+            {
+                union = CompressedBitmap.or(union, rosterOf(courseId));
+            }
+            return dataManager.getStore().studentsIn(union);
+        }
+        finally 
+        {
+            Metrics.record("studentsInAnyCourse", start);
+        }
+    }
 
-            dataManager.saveEnrollment(studentId, newCourseId);
-            dataManager.saveEnrollment(studentId, oldCourseId);  // Optionally update old enrollment details
+    // Students enrolled in the course but in none of the excluded ones
+    public List<Student> studentsOnlyIn(String courseId, String... excludedCourseIds) 
+    {
+        long start = Metrics.start();
+        try 
+        {
+            CompressedBitmap remaining = rosterOf(courseId);
+            for(String excluded : excludedCourseIds) 
+            {
+                remaining = CompressedBitmap.andNot(remaining, rosterOf(excluded));
+            }
+            return dataManager.getStore().studentsIn(remaining);
+        }
+        finally 
+        {
+            Metrics.record("studentsOnlyIn", start);
+        }
+    }
 
-            System.out.println("Student successfully moved to the new course.");
-        } 
-        else 
+    // Number of students enrolled in every one of the courses
+    public int countInAllCourses(String... courseIds) 
+    {
+        long start = Metrics.start();
+        try 
+        {
+            if(courseIds.length == 2) 
+            {
+                return CompressedBitmap.andCardinality(rosterOf(courseIds[0]), rosterOf(courseIds[1]));
+            }
+            return intersection(courseIds).getCardinality();
+        }
+        finally 
         {
-            System.out.println("Error: New course is full.");
+            Metrics.record("countInAllCourses", start);
         }
     }
-    
-    public void deleteStudentDetails(String studentId) 
+
+    // Shared students for every pair of courses, ordered by course ID. Rosters are copied once up
+    // front and the rows are counted in parallel; each pair costs one bitmap intersection count.
+    public CoEnrollmentMatrix coEnrollmentMatrix() 
     {
-        Student student = students.remove(studentId);
-        if (student != null) 
+        long start = Metrics.start();
+        try 
         {
-            dataManager.deleteStudent(student);
-            System.out.println("Student deleted successfully.");
-        } 
-        else 
+            List<Course> ordered = new ArrayList<>(courses.values());
+            ordered.sort(Comparator.comparing(Course::getId));
+            int n = ordered.size();
+            if(CoEnrollmentMatrix.offset(n, n - 1, n) > Integer.MAX_VALUE) 
+            {
+                throw new IllegalStateException("Too many courses for a co-enrollment matrix: " + n);
+            }
+            CompressedBitmap[] rosters = ordered.parallelStream()
+                    .map(Course::getRosterBitmap)
+                    .toArray(CompressedBitmap[]::new);
+            int[] enrolled = new int[n];
+            int[] shared = new int[n < 2 ? 0 : (int) CoEnrollmentMatrix.offset(n, n - 2, n - 1) + 1];
+            IntStream.range(0, n).parallel().forEach(i -> {
+                enrolled[i] = rosters[i].getCardinality();
+                int row = (int) CoEnrollmentMatrix.offset(n, i, i + 1);
+                for(int j = i + 1; j < n; j++) 
+                {
+                    shared[row + j - i - 1] = CompressedBitmap.andCardinality(rosters[i], rosters[j]);
+                }
+            });
+            List<String> courseIds = ordered.stream().map(Course::getId).collect(Collectors.toList());
+            return new CoEnrollmentMatrix(courseIds, enrolled, shared);
+        }
+        finally 
         {
-            System.out.println("Error: Invalid Student ID.");
+            Metrics.record("coEnrollmentMatrix", start);
         }
     }
 
-    public void deleteCourseDetails(String courseId) 
+    // Intersect the smallest rosters first so the running result shrinks as fast as possible
+    private CompressedBitmap intersection(String... courseIds) 
     {
-        Course course = courses.remove(courseId);
-        if (course != null) 
+        if(courseIds.length == 0) 
         {
-            dataManager.deleteCourse(course);
-            System.out.println("Course deleted successfully.");
-        } 
-        else 
+            return new CompressedBitmap();
+        }
+        List<CompressedBitmap> rosters = new ArrayList<>(courseIds.length);
+        for(String courseId : courseIds) 
         {
-            System.out.println("Error: Invalid Course ID.");
+            rosters.add(rosterOf(courseId));
         }
+        rosters.sort(Comparator.comparingInt(CompressedBitmap::getCardinality));
+        CompressedBitmap result = rosters.get(0);
+        for(int i = 1; i < rosters.size() && !result.isEmpty(); i++) 
+        {
+            result = CompressedBitmap.and(result, rosters.get(i));
+        }
+        return result;
     }
 
-    public void deleteCourseEnrollment(String studentId, String courseId) 
+    private CompressedBitmap rosterOf(String courseId) 
     {
-        Student student = students.get(studentId);
         Course course = courses.get(courseId);
-        if (student != null && course != null) 
+        if(course == null) 
         {
-            student.getCourses().remove(course);
-            course.getEnrolledStudents().remove(student);
-            dataManager.deleteEnrollment(studentId, courseId);
-            System.out.println("Enrollment deleted successfully.");
-        } 
-        else 
+            throw new IllegalArgumentException("Invalid Course ID: " + courseId);
+        }
+        return course.getRosterBitmap();
+    }
+
+    // Second half of an enrollment the course has already accepted: add the course on the student's
+    // side. A student or course deleted in the meantime is retired, and the half-made link is undone
+    // so roster and course list stay in step.
+    private EnrollmentResult completeEnrollment(Student student, Course course) 
+    {
+        if(!student.enroll(course)) 
         {
-            System.out.println("Error: Invalid Student ID or Course ID.");
+            course.removeStudent(student);
+            return EnrollmentResult.INVALID_STUDENT;
         }
+        if(course.isRetired()) 
+        {
+            student.unenroll(course);
+            return EnrollmentResult.INVALID_COURSE;
+        }
+        return EnrollmentResult.ENROLLED;
     }
-    
-    // Generate a summary report of all courses and their enrollment status
-    public void generateSummaryReport() 
+
+    // Verify that no course is over capacity and that rosters and student course lists agree;
+    // returns a description of the first violation, or null
+    public String checkInvariants() 
     {
-        System.out.println("----- Course Enrollment Summary -----");
+        long rosterEntries = 0;
         for(Course course : courses.values()) 
         {
-            System.out.println("Course: " + course.getName() + " (ID: " + course.getId() + ")");
-            System.out.println("Enrolled: " + course.getEnrolledStudents().size() + "/" + course.getCapacity());
-            System.out.println("--------------------------------------");
+            List<Student> roster = course.getRoster();
+            if(roster.size() > course.getCapacity()) 
+            {
+                return course.getId() + " has " + roster.size() + " students for " + course.getCapacity() + " seats";
+            }
+            for(Student student : roster) 
+            {
+                if(!student.isEnrolled(course)) 
+                {
+                    return student.getStudentId() + " is on the roster of " + course.getId() + " but not enrolled in it";
+                }
+            }
+            rosterEntries += roster.size();
+        }
+
+        long courseEntries = 0;
+        for(Student student : students.values()) 
+        {
+            courseEntries += student.getCourses().size();
+        }
+        if(rosterEntries != courseEntries) 
+        {
+            return rosterEntries + " roster entries but " + courseEntries + " student course entries";
         }
+        return null;
     }
 }
@@ -0,0 +1,49 @@
+package business;
+
+// Outcome of an EnrollmentManager operation, with the message shown to the user
+public enum EnrollmentResult 
+{
+    STUDENT_ADDED(true, "Student added successfully."),
+    STUDENT_EXISTS(false, "Error: Student ID already exists."),
+    COURSE_ADDED(true, "Course added successfully."),
+    COURSE_EXISTS(false, "Error: Course ID already exists."),
+    ENROLLED(true, "Enrollment successful."),
+    ALREADY_ENROLLED(false, "Error: Student is already enrolled in this course."),
+    COURSE_FULL(false, "Error: Course capacity full or student already enrolled."),
+    STUDENT_UPDATED(true, "Student details updated successfully."),
+    COURSE_UPDATED(true, "Course details updated successfully."),
+    TRANSFERRED(true, "Student successfully moved to the new course."),
+    NOT_ENROLLED_IN_OLD_COURSE(false, "Error: Student is not enrolled in the old course."),
+    ALREADY_IN_NEW_COURSE(false, "Error: Student is already enrolled in the new course."),
+    NEW_COURSE_FULL(false, "Error: New course is full."),
+    STUDENT_DELETED(true, "Student deleted successfully."),
+    COURSE_DELETED(true, "Course deleted successfully."),
+    ENROLLMENT_DELETED(true, "Enrollment deleted successfully."),
+    NOT_ENROLLED(false, "Error: Student is not enrolled in this course."),
+    TRANSACTION_COMMITTED(true, "Transaction committed successfully."),
+    INVALID_STUDENT(false, "Error: Invalid Student ID."),
+    INVALID_COURSE(false, "Error: Invalid Course ID."),
+    INVALID_OLD_COURSE(false, "Error: Invalid Old Course ID."),
+    INVALID_NEW_COURSE(false, "Error: Invalid New Course ID."),
+    INVALID_STUDENT_OR_COURSE(false, "Error: Invalid Student ID or Course ID.");
+
+    private final boolean success;
+    private final String message;
+
+    EnrollmentResult(boolean success, String message) 
+    {
+        this.success = success;
+        this.message = message;
+    }
+
+    // Getters
+    public boolean isSuccess() 
+    {
+        return success;
+    }
+
+    public String getMessage() 
+    {
+        return message;
+    }
+}
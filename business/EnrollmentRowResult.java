@@ -0,0 +1,50 @@
+package business;
+
+// Outcome of one row of a batch enrollment
+public class EnrollmentRowResult 
+{
+    private final int row;
+    private final String studentId;
+    private final String courseId;
+    private final EnrollmentResult result;
+
+    public EnrollmentRowResult(int row, String studentId, String courseId, EnrollmentResult result) 
+    {
+        this.row = row;
+        this.studentId = studentId;
+        this.courseId = courseId;
+        this.result = result;
+    }
+
+    // Getters
+    public int getRow() 
+    {
+        return row;
+    }
+
+    public String getStudentId() 
+    {
+        return studentId;
+    }
+
+    public String getCourseId() 
+    {
+        return courseId;
+    }
+
+    public EnrollmentResult getResult() 
+    {
+        return result;
+    }
+
+    public boolean isSuccess() 
+    {
+        return result.isSuccess();
+    }
+
+    @Override
+    public String toString() 
+    {
+        return "Row " + row + " (" + studentId + ", " + courseId + "): " + result.getMessage();
+    }
+}
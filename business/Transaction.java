@@ -0,0 +1,81 @@
+package business;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Enrollment changes that commit together: either every change takes effect and is saved as one
+// record, or none does. Changes are checked in the order they were added, so a student can be
+// dropped from a course and enrolled back in it, or moved through several courses, in one transaction.
+//
+//   manager.transaction().transfer("S1", "CS101", "CS102").enroll("S2", "CS101").commit();
+public class Transaction 
+{
+    private final EnrollmentManager manager;
+    private final List<String[]> changes = new ArrayList<>(); // {studentId, courseId}
+    private final List<Boolean> enrolls = new ArrayList<>();
+    private int failedChange = -1;
+
+    Transaction(EnrollmentManager manager) 
+    {
+        this.manager = manager;
+    }
+
+    public Transaction enroll(String studentId, String courseId) 
+    {
+        return add(studentId, courseId, true);
+    }
+
+    public Transaction drop(String studentId, String courseId) 
+    {
+        return add(studentId, courseId, false);
+    }
+
+    // Drop the student from one course and enroll them in another
+    public Transaction transfer(String studentId, String oldCourseId, String newCourseId) 
+    {
+        return drop(studentId, oldCourseId).enroll(studentId, newCourseId);
+    }
+
+    public EnrollmentResult commit() 
+    {
+        return manager.commit(this);
+    }
+
+    // Position of the change that stopped the last commit, or -1
+    public int getFailedChange() 
+    {
+        return failedChange;
+    }
+
+    private Transaction add(String studentId, String courseId, boolean enroll) 
+    {
+        changes.add(new String[] {studentId, courseId});
+        enrolls.add(enroll);
+        return this;
+    }
+
+    int size() 
+    {
+        return changes.size();
+    }
+
+    String studentId(int change) 
+    {
+        return changes.get(change)[0];
+    }
+
+    String courseId(int change) 
+    {
+        return changes.get(change)[1];
+    }
+
+    boolean isEnroll(int change) 
+    {
+        return enrolls.get(change);
+    }
+
+    void setFailedChange(int change) 
+    {
+        failedChange = change;
+    }
+}
@@ -0,0 +1,236 @@
+package data;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import monitoring.Metrics;
+
+// Long-lived appender for one file; concurrent appends are coalesced into group commits
+public class AppendWriter 
+{
+    private final FileChannel channel;
+    private final FlushPolicy policy;
+    private final int flushRecords;
+    private final DurabilityMode durability;
+    private final ScheduledFuture<?> flushTask;
+
+    private final Object lock = new Object();
+    private StringBuilder pending = new StringBuilder();
+    private StringBuilder spare = new StringBuilder();
+    private int pendingRecords;
+    private long appended;    // sequence number of the last appended record
+    private long committed;   // sequence number of the last record handed to the OS
+    private long failedUpTo;  // records up to here were lost by a failed commit
+    private boolean committing;
+
+    private final Object forceLock = new Object();
+    private long forced;      // sequence number of the last record forced to the device (BATCHED)
+
+    public AppendWriter(File file, StorageConfig config, ScheduledExecutorService flusher) throws IOException 
+    {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.durability = config.getDurabilityMode();
+        // SYNC needs every append committed before it returns, so it overrides the flush policy
+        this.policy = durability == DurabilityMode.SYNC ? FlushPolicy.PER_OPERATION : config.getFlushPolicy();
+        this.flushRecords = config.getFlushRecords();
+        if((policy == FlushPolicy.INTERVAL || durability == DurabilityMode.BATCHED) && flusher != null) 
+        {
+            long interval = config.getFlushIntervalMillis();
+            this.flushTask = flusher.scheduleWithFixedDelay(this::backgroundFlush, interval, interval, TimeUnit.MILLISECONDS);
+        } 
+        else 
+        {
+            this.flushTask = null;
+        }
+    }
+
+    // Append one line; whether it is on disk when this returns depends on the flush policy and durability mode
+    public void append(String line) throws IOException 
+    {
+        long sequence;
+        boolean full;
+        synchronized(lock) 
+        {
+            pending.append(line).append('\n');
+            sequence = ++appended;
+            full = ++pendingRecords >= flushRecords;
+        }
+        afterAppend(sequence, full);
+    }
+
+    // Append several lines as one group
+    public void appendAll(Collection<String> lines) throws IOException 
+    {
+        if(lines.isEmpty()) 
+        {
+            return;
+        }
+        long sequence;
+        boolean full;
+        synchronized(lock) 
+        {
+            for(String line : lines) 
+            {
+                pending.append(line).append('\n');
+            }
+            appended += lines.size();
+            sequence = appended;
+            pendingRecords += lines.size();
+            full = pendingRecords >= flushRecords;
+        }
+        afterAppend(sequence, full);
+    }
+
+    // Commit everything appended so far; with BATCHED durability also force it to the device
+    public void flush() throws IOException 
+    {
+        long sequence;
+        synchronized(lock) 
+        {
+            sequence = appended;
+        }
+        commit(sequence);
+        if(durability == DurabilityMode.BATCHED) 
+        {
+            force(sequence);
+        }
+    }
+
+    public void close() throws IOException 
+    {
+        if(flushTask != null) 
+        {
+            flushTask.cancel(false);
+        }
+        flush();
+        channel.close();
+    }
+
+    // ------------------- Group Commit -------------------
+
+    private void afterAppend(long sequence, boolean full) throws IOException 
+    {
+        if(policy == FlushPolicy.PER_OPERATION || (policy == FlushPolicy.RECORDS && full)) 
+        {
+            commit(sequence);
+        }
+    }
+
+    private void backgroundFlush() 
+    {
+        try 
+        {
+            flush();
+        } 
+        catch(IOException e) 
+        {
+            System.err.println("Error flushing appended records: " + e.getMessage());
+        }
+    }
+
+    // One force covers every record committed before it; callers already covered return at once
+    private void force(long sequence) throws IOException 
+    {
+        synchronized(forceLock) 
+        {
+            if(forced >= sequence) 
+            {
+                return;
+            }
+            long upTo;
+            synchronized(lock) 
+            {
+                upTo = committed;
+            }
+            long start = Metrics.start();
+            channel.force(false);
+            Metrics.record("force", start);
+            forced = upTo;
+        }
+    }
+
+    // The first caller to find no commit in flight writes every pending record; the others wait for it
+    private void commit(long sequence) throws IOException 
+    {
+        StringBuilder batch;
+        long upTo;
+        synchronized(lock) 
+        {
+            while(committed < sequence && committing) 
+            {
+                try 
+                {
+                    lock.wait();
+                } 
+                catch(InterruptedException e) 
+                {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for group commit");
+                }
+            }
+            if(committed >= sequence) 
+            {
+                if(sequence > 0 && sequence <= failedUpTo) 
+                {
+                    throw new IOException("Group commit failed");
+                }
+                return;
+            }
+            committing = true;
+            batch = pending;
+            pending = spare;
+            spare = null;
+            upTo = appended;
+            pendingRecords = 0;
+        }
+
+        IOException failure = null;
+        long start = Metrics.start();
+        try 
+        {
+            ByteBuffer bytes = StandardCharsets.UTF_8.encode(CharBuffer.wrap(batch));
+            while(bytes.hasRemaining()) 
+            {
+                channel.write(bytes);
+            }
+            if(durability == DurabilityMode.SYNC) 
+            {
+                channel.force(false);
+            }
+            Metrics.add(Metrics.BYTES_WRITTEN, bytes.limit());
+            Metrics.record("groupCommit", start);
+        } 
+        catch(IOException e) 
+        {
+            failure = e;
+        } 
+        finally 
+        {
+            synchronized(lock) 
+            {
+                batch.setLength(0);
+                spare = batch;
+                committed = upTo;
+                if(failure != null) 
+                {
+                    failedUpTo = upTo;
+                }
+                committing = false;
+                lock.notifyAll();
+            }
+        }
+        if(failure != null) 
+        {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,623 @@
+package data;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+// Compressed set of non-negative ints in the Roaring layout: values are split by their high 16 bits
+// into containers, each a sorted char array while it holds at most 4096 values and a 1024-word
+// bitmap beyond that. Set operations work container by container, so sparse and dense rosters both
+// stay small and fast. Not thread-safe; the static operations never modify their inputs.
+public final class CompressedBitmap 
+{
+    private static final int ARRAY_MAX = 4096;
+    private static final int WORDS = 1024;
+
+    private char[] keys = new char[4];
+    private Container[] containers = new Container[4];
+    private int size; // number of containers
+
+    public static CompressedBitmap of(int... values) 
+    {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        for(int value : values) 
+        {
+            bitmap.add(value);
+        }
+        return bitmap;
+    }
+
+    public boolean add(int value) 
+    {
+        char key = (char) (value >>> 16);
+        int i = find(key);
+        if(i < 0) 
+        {
+            i = -i - 1;
+            insertContainer(i, key, new Container());
+        }
+        return containers[i].add((char) value);
+    }
+
+    public boolean remove(int value) 
+    {
+        int i = find((char) (value >>> 16));
+        if(i < 0 || !containers[i].remove((char) value)) 
+        {
+            return false;
+        }
+        if(containers[i].cardinality == 0) 
+        {
+            System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+            System.arraycopy(containers, i + 1, containers, i, size - i - 1);
+            containers[--size] = null;
+        }
+        return true;
+    }
+
+    public boolean contains(int value) 
+    {
+        int i = find((char) (value >>> 16));
+        return i >= 0 && containers[i].contains((char) value);
+    }
+
+    public int getCardinality() 
+    {
+        int cardinality = 0;
+        for(int i = 0; i < size; i++) 
+        {
+            cardinality += containers[i].cardinality;
+        }
+        return cardinality;
+    }
+
+    public boolean isEmpty() 
+    {
+        return size == 0;
+    }
+
+    // Visit every value in ascending order
+    public void forEach(IntConsumer action) 
+    {
+        for(int i = 0; i < size; i++) 
+        {
+            containers[i].forEach(keys[i] << 16, action);
+        }
+    }
+
+    public int[] toArray() 
+    {
+        int[] values = new int[getCardinality()];
+        int[] n = new int[1];
+        forEach(value -> values[n[0]++] = value);
+        return values;
+    }
+
+    public CompressedBitmap copy() 
+    {
+        CompressedBitmap copy = new CompressedBitmap();
+        copy.keys = Arrays.copyOf(keys, Math.max(4, size));
+        copy.containers = new Container[copy.keys.length];
+        for(int i = 0; i < size; i++) 
+        {
+            copy.containers[i] = containers[i].copy();
+        }
+        copy.size = size;
+        return copy;
+    }
+
+    // Bytes held by the keys and containers, for memory accounting
+    public long sizeInBytes() 
+    {
+        long bytes = 2L * keys.length + 4L * containers.length;
+        for(int i = 0; i < size; i++) 
+        {
+            bytes += containers[i].sizeInBytes();
+        }
+        return bytes;
+    }
+
+    // Containers held as bitmaps rather than sorted arrays; package-private for the tests
+    int bitmapContainers() 
+    {
+        int bitmaps = 0;
+        for(int i = 0; i < size; i++) 
+        {
+            bitmaps += containers[i].words != null ? 1 : 0;
+        }
+        return bitmaps;
+    }
+
+    // ------------------- Set Operations -------------------
+
+    public static CompressedBitmap and(CompressedBitmap a, CompressedBitmap b) 
+    {
+        CompressedBitmap result = new CompressedBitmap();
+        int i = 0;
+        int j = 0;
+        while(i < a.size && j < b.size) 
+        {
+            if(a.keys[i] < b.keys[j]) 
+            {
+                i++;
+            }
+            else if(a.keys[i] > b.keys[j]) 
+            {
+                j++;
+            }
+            else 
+            {
+                Container container = Container.and(a.containers[i], b.containers[j]);
+                if(container.cardinality > 0) 
+                {
+                    result.append(a.keys[i], container);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    public static CompressedBitmap or(CompressedBitmap a, CompressedBitmap b) 
+    {
+        CompressedBitmap result = new CompressedBitmap();
+        int i = 0;
+        int j = 0;
+        while(i < a.size || j < b.size) 
+        {
+            if(j == b.size || (i < a.size && a.keys[i] < b.keys[j])) 
+            {
+                result.append(a.keys[i], a.containers[i].copy());
+                i++;
+            }
+            else if(i == a.size || a.keys[i] > b.keys[j]) 
+            {
+                result.append(b.keys[j], b.containers[j].copy());
+                j++;
+            }
+            else 
+            {
+                result.append(a.keys[i], Container.or(a.containers[i], b.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    // Values of a that are not in b
+    public static CompressedBitmap andNot(CompressedBitmap a, CompressedBitmap b) 
+    {
+        CompressedBitmap result = new CompressedBitmap();
+        int j = 0;
+        for(int i = 0; i < a.size; i++) 
+        {
+            while(j < b.size && b.keys[j] < a.keys[i]) 
+            {
+                j++;
+            }
+            Container container = j < b.size && b.keys[j] == a.keys[i]
+                    ? Container.andNot(a.containers[i], b.containers[j])
+                    : a.containers[i].copy();
+            if(container.cardinality > 0) 
+            {
+                result.append(a.keys[i], container);
+            }
+        }
+        return result;
+    }
+
+    // Size of the intersection without building it
+    public static int andCardinality(CompressedBitmap a, CompressedBitmap b) 
+    {
+        int cardinality = 0;
+        int i = 0;
+        int j = 0;
+        while(i < a.size && j < b.size) 
+        {
+            if(a.keys[i] < b.keys[j]) 
+            {
+                i++;
+            }
+            else if(a.keys[i] > b.keys[j]) 
+            {
+                j++;
+            }
+            else 
+            {
+                cardinality += Container.andCardinality(a.containers[i], b.containers[j]);
+                i++;
+                j++;
+            }
+        }
+        return cardinality;
+    }
+
+    // ------------------- Container Directory -------------------
+
+    private int find(char key) 
+    {
+        int low = 0;
+        int high = size - 1;
+        while(low <= high) 
+        {
+            int middle = (low + high) >>> 1;
+            if(keys[middle] < key) 
+            {
+                low = middle + 1;
+            }
+            else if(keys[middle] > key) 
+            {
+                high = middle - 1;
+            }
+            else 
+            {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private void insertContainer(int i, char key, Container container) 
+    {
+        if(size == keys.length) 
+        {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, i, keys, i + 1, size - i);
+        System.arraycopy(containers, i, containers, i + 1, size - i);
+        keys[i] = key;
+        containers[i] = container;
+        size++;
+    }
+
+    // Keys arrive in ascending order when building a result
+    private void append(char key, Container container) 
+    {
+        insertContainer(size, key, container);
+    }
+
+    // ------------------- Containers -------------------
+
+    // Sorted char array while small (words == null), 65536-bit bitmap once it holds over ARRAY_MAX values
+    private static final class Container 
+    {
+        char[] values;
+        long[] words;
+        int cardinality;
+
+        Container() 
+        {
+            values = new char[4];
+        }
+
+        private Container(char[] values, long[] words, int cardinality) 
+        {
+            this.values = values;
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        boolean contains(char value) 
+        {
+            if(words != null) 
+            {
+                return (words[value >>> 6] & (1L << value)) != 0;
+            }
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        boolean add(char value) 
+        {
+            if(words != null) 
+            {
+                long bit = 1L << value;
+                if((words[value >>> 6] & bit) != 0) 
+                {
+                    return false;
+                }
+                words[value >>> 6] |= bit;
+                cardinality++;
+                return true;
+            }
+            int position = Arrays.binarySearch(values, 0, cardinality, value);
+            if(position >= 0) 
+            {
+                return false;
+            }
+            if(cardinality == ARRAY_MAX) 
+            {
+                toBitmap();
+                return add(value);
+            }
+            position = -position - 1;
+            if(cardinality == values.length) 
+            {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, cardinality * 2));
+            }
+            System.arraycopy(values, position, values, position + 1, cardinality - position);
+            values[position] = value;
+            cardinality++;
+            return true;
+        }
+
+        boolean remove(char value) 
+        {
+            if(words != null) 
+            {
+                long bit = 1L << value;
+                if((words[value >>> 6] & bit) == 0) 
+                {
+                    return false;
+                }
+                words[value >>> 6] &= ~bit;
+                cardinality--;
+                if(cardinality <= ARRAY_MAX) 
+                {
+                    toArray();
+                }
+                return true;
+            }
+            int position = Arrays.binarySearch(values, 0, cardinality, value);
+            if(position < 0) 
+            {
+                return false;
+            }
+            System.arraycopy(values, position + 1, values, position, cardinality - position - 1);
+            cardinality--;
+            return true;
+        }
+
+        void forEach(int high, IntConsumer action) 
+        {
+            if(words == null) 
+            {
+                for(int i = 0; i < cardinality; i++) 
+                {
+                    action.accept(high | values[i]);
+                }
+                return;
+            }
+            for(int w = 0; w < WORDS; w++) 
+            {
+                long word = words[w];
+                while(word != 0) 
+                {
+                    action.accept(high | (w << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        Container copy() 
+        {
+            return words == null
+                    ? new Container(Arrays.copyOf(values, Math.max(4, cardinality)), null, cardinality)
+                    : new Container(null, words.clone(), cardinality);
+        }
+
+        long sizeInBytes() 
+        {
+            return 24 + (words != null ? 8L * words.length : 2L * values.length);
+        }
+
+        private void toBitmap() 
+        {
+            words = new long[WORDS];
+            for(int i = 0; i < cardinality; i++) 
+            {
+                words[values[i] >>> 6] |= 1L << values[i];
+            }
+            values = null;
+        }
+
+        private void toArray() 
+        {
+            values = new char[Math.max(4, cardinality)];
+            int n = 0;
+            for(int w = 0; w < WORDS; w++) 
+            {
+                long word = words[w];
+                while(word != 0) 
+                {
+                    values[n++] = (char) ((w << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            words = null;
+        }
+
+        private static Container fromWords(long[] words) 
+        {
+            int cardinality = 0;
+            for(long word : words) 
+            {
+                cardinality += Long.bitCount(word);
+            }
+            Container container = new Container(null, words, cardinality);
+            if(cardinality <= ARRAY_MAX) 
+            {
+                container.toArray();
+            }
+            return container;
+        }
+
+        static Container and(Container a, Container b) 
+        {
+            if(a.words != null && b.words != null) 
+            {
+                long[] words = new long[WORDS];
+                for(int w = 0; w < WORDS; w++) 
+                {
+                    words[w] = a.words[w] & b.words[w];
+                }
+                return fromWords(words);
+            }
+            if(a.words != null) 
+            {
+                return and(b, a);
+            }
+            char[] values = new char[Math.max(4, Math.min(a.cardinality, b.cardinality))];
+            int n = 0;
+            if(b.words != null) 
+            {
+                for(int i = 0; i < a.cardinality; i++) 
+                {
+                    if(b.contains(a.values[i])) 
+                    {
+                        values[n++] = a.values[i];
+                    }
+                }
+            }
+            else 
+            {
+                int i = 0;
+                int j = 0;
+                while(i < a.cardinality && j < b.cardinality) 
+                {
+                    if(a.values[i] < b.values[j]) 
+                    {
+                        i++;
+                    }
+                    else if(a.values[i] > b.values[j]) 
+                    {
+                        j++;
+                    }
+                    else 
+                    {
+                        values[n++] = a.values[i];
+                        i++;
+                        j++;
+                    }
+                }
+            }
+            return new Container(values, null, n);
+        }
+
+        static Container or(Container a, Container b) 
+        {
+            if(a.words == null && b.words == null && a.cardinality + b.cardinality <= ARRAY_MAX) 
+            {
+                char[] values = new char[Math.max(4, a.cardinality + b.cardinality)];
+                int i = 0;
+                int j = 0;
+                int n = 0;
+                while(i < a.cardinality || j < b.cardinality) 
+                {
+                    if(j == b.cardinality || (i < a.cardinality && a.values[i] < b.values[j])) 
+                    {
+                        values[n++] = a.values[i++];
+                    }
+                    else if(i == a.cardinality || a.values[i] > b.values[j]) 
+                    {
+                        values[n++] = b.values[j++];
+                    }
+                    else 
+                    {
+                        values[n++] = a.values[i];
+                        i++;
+                        j++;
+                    }
+                }
+                return new Container(values, null, n);
+            }
+            long[] words = new long[WORDS];
+            a.orInto(words);
+            b.orInto(words);
+            return fromWords(words);
+        }
+
+        static Container andNot(Container a, Container b) 
+        {
+            if(a.words == null) 
+            {
+                char[] values = new char[Math.max(4, a.cardinality)];
+                int n = 0;
+                for(int i = 0; i < a.cardinality; i++) 
+                {
+                    if(!b.contains(a.values[i])) 
+                    {
+                        values[n++] = a.values[i];
+                    }
+                }
+                return new Container(values, null, n);
+            }
+            long[] words = a.words.clone();
+            if(b.words != null) 
+            {
+                for(int w = 0; w < WORDS; w++) 
+                {
+                    words[w] &= ~b.words[w];
+                }
+            }
+            else 
+            {
+                for(int i = 0; i < b.cardinality; i++) 
+                {
+                    words[b.values[i] >>> 6] &= ~(1L << b.values[i]);
+                }
+            }
+            return fromWords(words);
+        }
+
+        static int andCardinality(Container a, Container b) 
+        {
+            if(a.words != null && b.words != null) 
+            {
+                int cardinality = 0;
+                for(int w = 0; w < WORDS; w++) 
+                {
+                    cardinality += Long.bitCount(a.words[w] & b.words[w]);
+                }
+                return cardinality;
+            }
+            if(a.words != null) 
+            {
+                return andCardinality(b, a);
+            }
+            int cardinality = 0;
+            if(b.words != null) 
+            {
+                for(int i = 0; i < a.cardinality; i++) 
+                {
+                    if(b.contains(a.values[i])) 
+                    {
+                        cardinality++;
+                    }
+                }
+                return cardinality;
+            }
+            // Counting merge written without data-dependent branches; a mispredict per step dominates otherwise
+            char[] left = a.values;
+            char[] right = b.values;
+            int i = 0;
+            int j = 0;
+            while(i < a.cardinality && j < b.cardinality) 
+            {
+                int x = left[i];
+                int y = right[j];
+                cardinality += x == y ? 1 : 0;
+                i += x <= y ? 1 : 0;
+                j += y <= x ? 1 : 0;
+            }
+            return cardinality;
+        }
+
+        private void orInto(long[] target) 
+        {
+            if(words != null) 
+            {
+                for(int w = 0; w < WORDS; w++) 
+                {
+                    target[w] |= words[w];
+                }
+                return;
+            }
+            for(int i = 0; i < cardinality; i++) 
+            {
+                target[values[i] >>> 6] |= 1L << values[i];
+            }
+        }
+    }
+}
@@ -1,18 +1,35 @@
 package data;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
+// View over an EnrollmentStore: the roster is student ordinals held by the store, guarded by this.
+// Every change also publishes an immutable RosterVersion, which readers take without the lock.
 public class Course extends Entity 
 {
-    private int capacity;
-    private List<Student> enrolledStudents;
+    private volatile int capacity;
+    private final AtomicInteger seatsTaken = new AtomicInteger(); // Reserved with CAS before the roster lock is taken
+    private final EnrollmentStore store;
+    private final int ordinal;
+    private boolean retired; // Set when the course is deleted; guarded by this
+    private volatile RosterVersion published; // Replaced under this lock after every roster change
+    private volatile RosterIndex index; // Built by the first paged query, then kept current under this lock
 
-    public Course(String courseId, String name, int capacity) 
+    // Created through EnrollmentStore.newCourse
+    Course(EnrollmentStore store, int ordinal, String courseId, String name, int capacity) 
     {
         super(courseId, name); // Inherited from Entity
         this.capacity = capacity;
-        this.enrolledStudents = new ArrayList<>();
+        this.store = store;
+        this.ordinal = ordinal;
+        this.published = RosterVersion.empty(store);
     }
 
     // Getters
@@ -21,9 +38,86 @@ public class Course extends Entity
         return capacity;
     }
 
-    public List<Student> getEnrolledStudents() 
+    public int getOrdinal() 
     {
-        return enrolledStudents;
+        return ordinal;
+    }
+
+    public EnrollmentStore getStore() 
+    {
+        return store;
+    }
+
+    // The current roster version: O(1), never blocks, and never changes while it is iterated
+    public RosterVersion getRoster() 
+    {
+        return published;
+    }
+
+    // One page of the roster in the given order, after the previous page's cursor (null for the first
+    // page). The indexes are built on the first call, so only courses that are paged pay for them.
+    public Page<Student> getRosterPage(RosterOrder order, String cursor, int limit) 
+    {
+        RosterIndex current = index;
+        if(current == null) 
+        {
+            Map<Integer, RosterIndex.Name> names = RosterIndex.resolveAll(published); // Outside the lock
+            synchronized(this) 
+            {
+                if(index == null) 
+                {
+                    index = new RosterIndex(store, published, names);
+                }
+                current = index;
+            }
+        }
+        return current.page(order, cursor, limit);
+    }
+
+    // Copy of the roster as a set, made from the current version without taking the lock
+    public Set<Student> getEnrolledStudents() 
+    {
+        RosterVersion roster = published;
+        Set<Student> copy = new LinkedHashSet<>(roster.size() * 4 / 3 + 1);
+        copy.addAll(roster);
+        return Collections.unmodifiableSet(copy);
+    }
+
+    // Copy of the roster as a bitmap of student ordinals, from the store's index when it keeps one
+    public CompressedBitmap getRosterBitmap() 
+    {
+        synchronized(this) 
+        {
+            CompressedBitmap bitmap = store.bitmapOf(ordinal);
+            if(bitmap != null) 
+            {
+                return bitmap.copy();
+            }
+        }
+        int[] ordinals = published.toOrdinalArray();
+        Arrays.sort(ordinals); // Ascending ordinals fill the containers by appending
+        return CompressedBitmap.of(ordinals);
+    }
+
+    public synchronized boolean isRetired() 
+    {
+        return retired;
+    }
+
+    public int getEnrolledCount() 
+    {
+        return published.size();
+    }
+
+    // Whether every seat is taken or reserved; read without the lock, so only a hint
+    public boolean isFull() 
+    {
+        return seatsTaken.get() >= capacity;
+    }
+
+    public synchronized boolean hasStudent(Student student) 
+    {
+        return student.getStore() == store && roster().contains(student.getOrdinal());
     }
 
     // Setters
@@ -37,19 +131,258 @@ public class Course extends Entity
         this.capacity = capacity; // Update course capacity
     }
 
-    // Enroll a student if capacity allows
+    // Enroll a student if capacity allows; a full course is rejected without taking the roster lock
     public boolean enrollStudent(Student student) 
     {
-        if (enrolledStudents.size() < capacity && !enrolledStudents.contains(student)) {
-            enrolledStudents.add(student);
-            return true;
+        store.checkSameStore(student.getStore());
+        if(!reserveSeat()) 
+        {
+            return false;
+        }
+        RosterIndex.Name name = indexedName(student);
+        synchronized(this) 
+        {
+            if(!retired && link(student, name)) 
+            {
+                return true;
+            }
         }
+        seatsTaken.decrementAndGet(); // Already enrolled or course deleted: give the seat back
         return false;
     }
 
+    // Enroll as many of the students as capacity allows, in order, with a single seat reservation;
+    // returns the students that were enrolled
+    public List<Student> enrollStudents(List<Student> candidates) 
+    {
+        List<Student> enrolled = new ArrayList<>(candidates.size());
+        Map<Integer, RosterIndex.Name> names = new HashMap<>();
+        if(index != null) 
+        {
+            for(Student student : candidates) 
+            {
+                names.put(student.getOrdinal(), RosterIndex.resolve(student));
+            }
+        }
+        synchronized(this) 
+        {
+            if(retired) 
+            {
+                return enrolled;
+            }
+            OrdinalSet roster = roster();
+            List<Student> fresh = new ArrayList<>(candidates.size());
+            for(Student student : candidates) 
+            {
+                store.checkSameStore(student.getStore());
+                if(!roster.contains(student.getOrdinal())) 
+                {
+                    fresh.add(student);
+                }
+            }
+            int granted = reserveSeats(fresh.size());
+            int[] added = new int[granted];
+            for(Student student : fresh.subList(0, granted)) 
+            {
+                roster.add(student.getOrdinal());
+                indexAdd(student.getOrdinal());
+                added[enrolled.size()] = student.getOrdinal();
+                enrolled.add(student);
+                if(index != null) 
+                {
+                    RosterIndex.Name name = names.get(student.getOrdinal());
+                    index.add(student, name != null ? name : RosterIndex.resolve(student));
+                }
+            }
+            published = published.withAll(added, granted);
+        }
+        return enrolled;
+    }
+
     // Remove student from course
     public void removeStudent(Student student) 
     {
-        enrolledStudents.remove(student);
+        boolean removed;
+        synchronized(this) 
+        {
+            removed = student.getStore() == store && unlink(student);
+        }
+        if(removed) 
+        {
+            seatsTaken.decrementAndGet();
+        }
+    }
+
+    // Retire the course and empty its roster in one pass under the lock, for deleting the course;
+    // returns the students removed
+    public List<Student> removeAllStudents() 
+    {
+        int[] ordinals;
+        synchronized(this) 
+        {
+            retired = true;
+            OrdinalSet roster = roster();
+            CompressedBitmap bitmap = store.bitmapOf(ordinal);
+            ordinals = roster.toArray();
+            for(int student : ordinals) 
+            {
+                roster.remove(student);
+                if(bitmap != null) 
+                {
+                    bitmap.remove(student);
+                }
+            }
+            published = published.cleared();
+            index = null;
+        }
+        seatsTaken.addAndGet(-ordinals.length);
+        List<Student> removed = new ArrayList<>(ordinals.length);
+        for(int student : ordinals) 
+        {
+            removed.add(store.student(student));
+        }
+        return removed;
+    }
+
+    private OrdinalSet roster() 
+    {
+        return store.studentsOf(ordinal);
+    }
+
+    // Add to the roster and every view of it without touching the seat count; callers hold this lock.
+    // The name is the one indexedName resolved before the lock was taken.
+    boolean link(Student student, RosterIndex.Name name) 
+    {
+        if(!roster().add(student.getOrdinal())) 
+        {
+            return false;
+        }
+        indexAdd(student.getOrdinal());
+        published = published.with(student.getOrdinal());
+        if(index != null) 
+        {
+            index.add(student, name != null ? name : RosterIndex.resolve(student)); // Index built since
+        }
+        return true;
+    }
+
+    // The student's name for the roster index, read before taking this lock; null while the course
+    // has no index, so courses that are never paged read no names
+    RosterIndex.Name indexedName(Student student) 
+    {
+        return index != null ? RosterIndex.resolve(student) : null;
+    }
+
+    // Re-key a renamed student in the name index; called by the student after the rename, for each
+    // course they are enrolled in
+    void studentRenamed(Student student, RosterIndex.Name name) 
+    {
+        synchronized(this) 
+        {
+            if(index != null) 
+            {
+                index.rename(student, name);
+            }
+        }
+    }
+
+    // Called by the student once the course is on their side too. A rename between link and then
+    // did not find this course among the student's, so the index can hold the older name; re-key it.
+    void studentEnrolled(Student student) 
+    {
+        RosterIndex current = index;
+        if(current != null && current.nameStale(student)) 
+        {
+            RosterIndex.Name name = RosterIndex.resolve(student);
+            synchronized(this) 
+            {
+                if(index != null) 
+                {
+                    index.rename(student, name);
+                }
+            }
+        }
+    }
+
+    // Remove from the roster and every view of it without touching the seat count; callers hold this lock
+    boolean unlink(Student student) 
+    {
+        if(!roster().remove(student.getOrdinal())) 
+        {
+            return false;
+        }
+        CompressedBitmap bitmap = store.bitmapOf(ordinal);
+        if(bitmap != null) 
+        {
+            bitmap.remove(student.getOrdinal());
+        }
+        published = published.without(student.getOrdinal());
+        if(index != null) 
+        {
+            index.remove(student);
+        }
+        return true;
+    }
+
+    // Take or give back seats all at once: false, changing nothing, if taking them would overfill the course
+    boolean adjustSeats(int delta) 
+    {
+        while(true) 
+        {
+            int taken = seatsTaken.get();
+            if(delta > 0 && taken + delta > capacity) 
+            {
+                return false;
+            }
+            if(seatsTaken.compareAndSet(taken, taken + delta)) 
+            {
+                return true;
+            }
+        }
+    }
+
+    private void indexAdd(int studentOrdinal) 
+    {
+        CompressedBitmap bitmap = store.bitmapOf(ordinal);
+        if(bitmap != null) 
+        {
+            bitmap.add(studentOrdinal);
+        }
+    }
+
+    // Take one seat with compare-and-set, failing once the course is at capacity
+    private boolean reserveSeat() 
+    {
+        while(true) 
+        {
+            int taken = seatsTaken.get();
+            if(taken >= capacity) 
+            {
+                return false;
+            }
+            if(seatsTaken.compareAndSet(taken, taken + 1)) 
+            {
+                return true;
+            }
+        }
+    }
+
+    // Take up to the wanted number of seats in one compare-and-set; returns how many were taken
+    private int reserveSeats(int wanted) 
+    {
+        while(wanted > 0) 
+        {
+            int taken = seatsTaken.get();
+            int granted = Math.min(wanted, capacity - taken);
+            if(granted <= 0) 
+            {
+                return 0;
+            }
+            if(seatsTaken.compareAndSet(taken, taken + granted)) 
+            {
+                return granted;
+            }
+        }
+        return 0;
     }
 }
@@ -0,0 +1,366 @@
+package data;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+// Reusable RFC 4180 parser. Each record is exposed as field views into one internal buffer,
+// so no objects are created per field unless the caller asks for a String.
+public class CsvParser 
+{
+    public interface RecordHandler 
+    {
+        void onRecord(CsvParser record);
+    }
+
+    private static final int FIELD_START = 0;
+    private static final int UNQUOTED = 1;
+    private static final int QUOTED = 2;
+    private static final int QUOTE_IN_QUOTED = 3;
+
+    private char[] record = new char[256];  // unescaped content of the current record
+    private int length;
+    private int[] fieldStarts = new int[8];
+    private int[] fieldEnds = new int[8];
+    private int fieldCount;
+    private int fieldStart;
+    private int state = FIELD_START;
+    private boolean recordStarted;
+    private boolean skipLineFeed;
+    private char[] chunk = new char[1 << 16];
+
+    // Parse a single line without its terminator; the fields stay valid until the next call
+    public CsvParser parseLine(CharSequence line) 
+    {
+        reset();
+        int n = line.length();
+        if(chunk.length < n) 
+        {
+            chunk = new char[Math.max(n, chunk.length * 2)];
+        }
+        if(line instanceof String) 
+        {
+            ((String) line).getChars(0, n, chunk, 0);
+        }
+        else 
+        {
+            for(int i = 0; i < n; i++) 
+            {
+                chunk[i] = line.charAt(i);
+            }
+        }
+        feed(chunk, 0, n, null);
+        if(state == UNQUOTED) 
+        {
+            trimField();
+        }
+        if(recordStarted) 
+        {
+            endField();
+        }
+        return this;
+    }
+
+    // Stream every record from the reader to the handler
+    public void parse(Reader reader, RecordHandler handler) throws IOException 
+    {
+        reset();
+        int n;
+        while((n = reader.read(chunk, 0, chunk.length)) != -1) 
+        {
+            feed(chunk, 0, n, handler);
+        }
+        finish(handler);
+    }
+
+    // Stream every record in the buffer to the handler
+    public void parse(CharBuffer buffer, RecordHandler handler) 
+    {
+        reset();
+        if(buffer.hasArray()) 
+        {
+            int offset = buffer.arrayOffset();
+            feed(buffer.array(), offset + buffer.position(), offset + buffer.limit(), handler);
+            buffer.position(buffer.limit());
+        }
+        else 
+        {
+            while(buffer.hasRemaining()) 
+            {
+                int n = Math.min(chunk.length, buffer.remaining());
+                buffer.get(chunk, 0, n);
+                feed(chunk, 0, n, handler);
+            }
+        }
+        finish(handler);
+    }
+
+    // A field as written to a file: quoted when it contains a separator, quote or line break (RFC 4180),
+    // or when it starts or ends with a blank the parser would trim from an unquoted field
+    public static String escape(String field) 
+    {
+        boolean quote = !field.isEmpty() && (isBlank(field.charAt(0)) || isBlank(field.charAt(field.length() - 1)));
+        for(int i = 0; !quote && i < field.length(); i++) 
+        {
+            char c = field.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        return quote ? "\"" + field.replace("\"", "\"\"") + "\"" : field;
+    }
+
+    private static boolean isBlank(char c) 
+    {
+        return c == ' ' || c == '\t';
+    }
+
+    // ------------------- Field Access -------------------
+
+    public int getFieldCount() 
+    {
+        return fieldCount;
+    }
+
+    public int getFieldLength(int index) 
+    {
+        return fieldEnds[index] - fieldStarts[index];
+    }
+
+    public char getChar(int index, int position) 
+    {
+        return record[fieldStarts[index] + position];
+    }
+
+    public String getField(int index) 
+    {
+        return new String(record, fieldStarts[index], fieldEnds[index] - fieldStarts[index]);
+    }
+
+    public String[] getFields() 
+    {
+        String[] fields = new String[fieldCount];
+        for(int i = 0; i < fieldCount; i++) 
+        {
+            fields[i] = getField(i);
+        }
+        return fields;
+    }
+
+    public boolean fieldEquals(int index, String value) 
+    {
+        if(index >= fieldCount) 
+        {
+            return false;
+        }
+        int start = fieldStarts[index];
+        int fieldLength = fieldEnds[index] - start;
+        if(fieldLength != value.length()) 
+        {
+            return false;
+        }
+        for(int i = 0; i < fieldLength; i++) 
+        {
+            if(record[start + i] != value.charAt(i)) 
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getInt(int index) 
+    {
+        int start = fieldStarts[index];
+        int end = fieldEnds[index];
+        if(start == end) 
+        {
+            throw new NumberFormatException("Empty field " + index);
+        }
+        boolean negative = record[start] == '-';
+        if(negative || record[start] == '+') 
+        {
+            start++;
+        }
+        if(start == end) 
+        {
+            throw new NumberFormatException("For input string: \"" + getField(index) + "\"");
+        }
+        long value = 0;
+        for(int i = start; i < end; i++) 
+        {
+            char c = record[i];
+            if(c < '0' || c > '9' || (value = value * 10 + (c - '0')) > (long) Integer.MAX_VALUE + 1) 
+            {
+                throw new NumberFormatException("For input string: \"" + getField(index) + "\"");
+            }
+        }
+        value = negative ? -value : value;
+        if(value > Integer.MAX_VALUE) 
+        {
+            throw new NumberFormatException("For input string: \"" + getField(index) + "\"");
+        }
+        return (int) value;
+    }
+
+    // ------------------- State Machine -------------------
+
+    private void reset() 
+    {
+        length = 0;
+        fieldCount = 0;
+        fieldStart = 0;
+        state = FIELD_START;
+        recordStarted = false;
+        skipLineFeed = false;
+    }
+
+    private void feed(char[] chars, int from, int to, RecordHandler handler) 
+    {
+        for(int i = from; i < to; i++) 
+        {
+            char c = chars[i];
+            if(skipLineFeed) 
+            {
+                skipLineFeed = false;
+                if(c == '\n') 
+                {
+                    continue;
+                }
+            }
+
+            switch(state) 
+            {
+                case FIELD_START:
+                    if(c == '"') 
+                    {
+                        state = QUOTED;
+                        recordStarted = true;
+                    }
+                    else if(c == ',') 
+                    {
+                        recordStarted = true;
+                        endField();
+                    }
+                    else if(c == '\n' || c == '\r') 
+                    {
+                        endLine(c, handler);
+                    }
+                    else if(c != ' ' && c != '\t') 
+                    {
+                        append(c);
+                        state = UNQUOTED;
+                        recordStarted = true;
+                    }
+                    break;
+                case UNQUOTED:
+                    if(c == ',') 
+                    {
+                        trimField();
+                        endField();
+                    }
+                    else if(c == '\n' || c == '\r') 
+                    {
+                        trimField();
+                        endLine(c, handler);
+                    }
+                    else 
+                    {
+                        append(c);
+                    }
+                    break;
+                case QUOTED:
+                    if(c == '"') 
+                    {
+                        state = QUOTE_IN_QUOTED;
+                    }
+                    else 
+                    {
+                        append(c); // Separators and line breaks are data inside quotes
+                    }
+                    break;
+                default: // QUOTE_IN_QUOTED
+                    if(c == '"') 
+                    {
+                        append('"'); // Doubled quote is an escaped quote
+                        state = QUOTED;
+                    }
+                    else if(c == ',') 
+                    {
+                        endField();
+                    }
+                    else if(c == '\n' || c == '\r') 
+                    {
+                        endLine(c, handler);
+                    }
+                    else if(c != ' ' && c != '\t') 
+                    {
+                        append(c); // Malformed input: keep the stray character as data
+                        state = UNQUOTED;
+                    }
+                    break;
+            }
+        }
+    }
+
+    private void finish(RecordHandler handler) 
+    {
+        if(recordStarted || state != FIELD_START) 
+        {
+            if(state == UNQUOTED) 
+            {
+                trimField();
+            }
+            endLine('\n', handler);
+        }
+    }
+
+    private void endLine(char terminator, RecordHandler handler) 
+    {
+        skipLineFeed = terminator == '\r';
+        if(recordStarted) 
+        {
+            endField();
+            if(handler != null) 
+            {
+                handler.onRecord(this);
+            }
+        }
+        // Blank lines produce no record
+        length = 0;
+        fieldCount = 0;
+        fieldStart = 0;
+        state = FIELD_START;
+        recordStarted = false;
+    }
+
+    private void endField() 
+    {
+        if(fieldCount == fieldStarts.length) 
+        {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+        }
+        fieldStarts[fieldCount] = fieldStart;
+        fieldEnds[fieldCount] = length;
+        fieldCount++;
+        fieldStart = length;
+        state = FIELD_START;
+    }
+
+    private void trimField() 
+    {
+        while(length > fieldStart && (record[length - 1] == ' ' || record[length - 1] == '\t')) 
+        {
+            length--;
+        }
+    }
+
+    private void append(char c) 
+    {
+        if(length == record.length) 
+        {
+            record = Arrays.copyOf(record, length * 2);
+        }
+        record[length++] = c;
+    }
+}
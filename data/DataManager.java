@@ -1,259 +1,492 @@
 package data;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import monitoring.Metrics;
 
 public class DataManager 
 {
-    private final String STUDENT_FILE = "students.csv";
-    private final String COURSE_FILE = "courses.csv";
-    private final String ENROLLMENT_FILE = "enrollments.csv";
+    // Each table is hash-partitioned into shard files by its first field, the student or course ID
+    private final File[] STUDENT_FILES;
+    private final File[] COURSE_FILES;
+    private final File[] ENROLLMENT_FILES;
+    private final File SNAPSHOT_FILE;
+    private final File CHECKPOINT_FILE;
+
+    // Mutation log record types
+    private static final String LOG_STUDENT = "S";
+    private static final String LOG_STUDENT_DELETE = "-S";
+    private static final String LOG_COURSE = "C";
+    private static final String LOG_COURSE_DELETE = "-C";
+    private static final String LOG_ENROLL = "E";
+    private static final String LOG_UNENROLL = "-E";
+    private static final String LOG_TRANSACTION = "T"; // T,<E or -E>,<studentId>,<courseId>,...,T
+
+    // Deleting a student or course also deletes the enrollments keyed by it: the upsert and delete
+    // record types of the parent behind each key field (student, then course)
+    private static final String[][] ENROLLMENT_CASCADES = {{LOG_STUDENT, LOG_STUDENT_DELETE}, {LOG_COURSE, LOG_COURSE_DELETE}};
+    private static final String[][] NO_CASCADES = {};
+
+    private final StorageConfig config;
+    private final EnrollmentStore store; // Every student and course this manager loads lives here
+    private final Map<File, AppendWriter> writers = new HashMap<>();
+    private final Map<File, ReadWriteLock> fileLocks = new ConcurrentHashMap<>();
+    private ScheduledExecutorService flusher;
+    private MutationLog log;
+    private ExecutorService compactor;
+    private volatile boolean compacting;
+    private final Object baseFilesLock = new Object(); // Compaction and checkpoints both replace the base files
+    private ScheduledExecutorService checkpointer;
+    private volatile WriteBehindQueue writeBehind;
+    private final boolean lazyStudents; // Student records stay in the students files until read
 
     public DataManager() 
     {
-        createFileIfNotExists(STUDENT_FILE);
-        createFileIfNotExists(COURSE_FILE);
-        createFileIfNotExists(ENROLLMENT_FILE);
+        this(StorageConfig.fromSystemProperties());
     }
 
-    // Create file if it doesn't exist
-    private void createFileIfNotExists(String fileName) 
+    public DataManager(StorageConfig config) 
     {
-        try 
+        this.config = config;
+        this.lazyStudents = config.isLazyStudents() && !config.isLogMode();
+        if(config.isLazyStudents() && !lazyStudents) 
         {
-            File file = new File(fileName);
-            if(!file.exists()) 
+            System.err.println("Lazy student loading needs CSV persistence; loading every student instead");
+        }
+        StudentRecords records = lazyStudents ? new FileStudentRecords(config.getStudentCacheSize()) : config.isOffHeap() ? new OffHeapStudentRecords() : null;
+        this.store = new EnrollmentStore(config.isRosterBitmaps(), records);
+        File directory = config.getDataDirectory();
+        directory.mkdirs();
+        this.STUDENT_FILES = shardFiles(directory, "students", config.getShards());
+        this.COURSE_FILES = shardFiles(directory, "courses", config.getShards());
+        this.ENROLLMENT_FILES = shardFiles(directory, "enrollments", config.getShards());
+        this.SNAPSHOT_FILE = new File(directory, "snapshot.bin");
+        this.CHECKPOINT_FILE = new File(directory, "log.checkpoint");
+        reshard("students", STUDENT_FILES, 1);
+        reshard("courses", COURSE_FILES, 1);
+        reshard("enrollments", ENROLLMENT_FILES, 2);
+        for(File[] table : Arrays.asList(STUDENT_FILES, COURSE_FILES, ENROLLMENT_FILES)) 
+        {
+            for(File file : table) 
             {
-                file.createNewFile();
+                createFileIfNotExists(file);
             }
-        } 
-        catch(IOException e) 
+        }
+        if(config.getFlushPolicy() == FlushPolicy.INTERVAL || config.getDurabilityMode() == DurabilityMode.BATCHED) 
+        {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "append-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        if(config.isLogMode()) 
+        {
+            openLog();
+        }
+        if(config.isWriteBehind()) 
         {
-            System.err.println("Error creating file: " + fileName);
+            openWriteBehind();
         }
     }
 
-    // ------------------- Student Management -------------------
+    public EnrollmentStore getStore() 
+    {
+        return store;
+    }
 
-    public void saveStudent(Student student) 
+    public boolean isLazyStudents() 
     {
-        try(PrintWriter writer = new PrintWriter(new FileWriter(STUDENT_FILE, true))) 
-        {
-            writer.println(student.getStudentId() + "," + escapeComma(student.getName()) + "," + escapeComma(student.getEmail()));
-        } 
-        catch (IOException e) 
-        {
-            System.err.println("Error saving student: " + e.getMessage());
-        }
+        return lazyStudents;
     }
 
-    public Map<String, Student> loadStudents() 
+    // Mutations are queued; the writer thread sends them through the same append and rewrite paths
+    private void openWriteBehind() 
     {
-        Map<String, Student> students = new HashMap<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader(STUDENT_FILE))) 
+        writeBehind = new WriteBehindQueue(config.getWriteBehindCapacity(), new WriteBehindQueue.Sink() 
         {
-            String line;
-            while((line = reader.readLine()) != null) 
+            @Override
+            public void appendAll(File file, List<String> lines) throws IOException 
             {
-                String[] parts = parseCSVLine(line);
-                if(parts.length == 3) 
+                if(file == null) 
                 {
-                    String studentId = parts[0];
-                    String name = parts[1];
-                    String email = parts[2];
-                    Student student = new Student(studentId, name, email);
-                    students.put(studentId, student);
+                    log.appendAll(lines);
+                    compactIfNeeded();
+                }
+                else 
+                {
+                    writeLines(file, lines);
                 }
             }
-        } 
-        catch (IOException e) 
+
+            @Override
+            public void commit() throws IOException 
+            {
+                commitAppends();
+            }
+        });
+    }
+
+    // In log mode the CSV files are the last compacted base and every mutation is one appended record
+    private void openLog() 
+    {
+        try 
         {
-            System.err.println("Error loading students: " + e.getMessage());
+            log = new MutationLog(config.getDataDirectory(), config, flusher);
+            compactor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "log-compactor");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        catch(IOException e) 
+        {
+            System.err.println("Error opening mutation log, falling back to CSV rewrites: " + e.getMessage());
+            log = null;
         }
-        return students;
     }
 
-    public void updateStudent(Student student) 
+    // Drain queued writes, commit pending appends, wait for a running compaction and close every open file
+    public void close() 
     {
-        List<String> lines = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader(STUDENT_FILE))) 
+        try 
         {
-            String line;
-            while ((line = reader.readLine()) != null) 
+            WriteBehindQueue queue = writeBehind;
+            if(queue != null) 
             {
-                String[] parts = parseCSVLine(line);
-                if (parts[0].equals(student.getStudentId())) 
-                {
-                    lines.add(student.getStudentId() + "," + escapeComma(student.getName()) + "," + escapeComma(student.getEmail()));
-                } 
-                else 
+                queue.close();
+                writeBehind = null; // Anything after close is written directly
+            }
+            if(checkpointer != null) 
+            {
+                checkpointer.shutdown();
+                checkpointer.awaitTermination(1, TimeUnit.MINUTES);
+            }
+            if(log != null) 
+            {
+                compactor.shutdown();
+                compactor.awaitTermination(1, TimeUnit.MINUTES);
+                log.close();
+            }
+            synchronized(writers) 
+            {
+                for(AppendWriter writer : writers.values()) 
                 {
-                    lines.add(line);
+                    writer.close();
                 }
+                writers.clear();
             }
-        } 
-        catch (IOException e) 
+        }
+        catch(InterruptedException e) 
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch(IOException e) 
         {
-            System.err.println("Error updating student: " + e.getMessage());
+            System.err.println("Error closing data files: " + e.getMessage());
         }
+        if(flusher != null) 
+        {
+            flusher.shutdown();
+        }
+        store.close();
+    }
 
-        try (PrintWriter writer = new PrintWriter(new FileWriter(STUDENT_FILE))) 
+    // Create file if it doesn't exist
+    private void createFileIfNotExists(File file) 
+    {
+        try 
         {
-            for (String line : lines) 
+            if(!file.exists()) 
             {
-                writer.println(line);
+                file.createNewFile();
             }
-        } 
-        catch (IOException e) 
+        }
+        catch(IOException e) 
+        {
+            System.err.println("Error creating file: " + file);
+        }
+    }
+
+    // ------------------- Shards -------------------
+
+    // One shard keeps the original students.csv naming; n shards are students-0.csv to students-(n-1).csv
+    private static File[] shardFiles(File directory, String table, int shards) 
+    {
+        if(shards <= 1) 
+        {
+            return new File[] {new File(directory, table + ".csv")};
+        }
+        File[] files = new File[shards];
+        for(int i = 0; i < shards; i++) 
         {
-            System.err.println("Error writing updated student data: " + e.getMessage());
+            files[i] = new File(directory, table + "-" + i + ".csv");
         }
+        return files;
+    }
+
+    // The shard holding rows whose first field is the key; String.hashCode is fixed by the language,
+    // so a key maps to the same shard in every run
+    private static File shardOf(File[] shards, String key) 
+    {
+        return shards[shardIndex(shards, key)];
+    }
+
+    private static int shardIndex(Object[] shards, String key) 
+    {
+        return shards.length == 1 ? 0 : Math.floorMod(key.hashCode(), shards.length);
     }
 
-    public void deleteStudent(Student student) 
+    // Files left by another shard count are read back and split over the configured shards. Rows are
+    // keyed, so a crash half way through only leaves duplicates that the next attempt merges.
+    private void reshard(String table, File[] shards, int keyFields) 
     {
-        List<String> lines = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader(STUDENT_FILE))) 
+        Pattern name = Pattern.compile(Pattern.quote(table) + "(-\\d+)?\\.csv");
+        File[] existing = config.getDataDirectory().listFiles((directory, file) -> name.matcher(file).matches());
+        if(existing == null || existing.length == 0 || new HashSet<>(Arrays.asList(existing)).equals(new HashSet<>(Arrays.asList(shards)))) 
+        {
+            return;
+        }
+        Map<String, String[]> rows = new LinkedHashMap<>();
+        parseShards(existing, "resharding " + table, record -> {
+            String[] fields = record.getFields();
+            if(fields.length >= keyFields) 
+            {
+                rows.put(rowKey(fields, 0, keyFields), fields);
+            }
+        });
+        try 
         {
-            String line;
-            while ((line = reader.readLine()) != null) 
+            writeBaseFile(shards, rows.values());
+            Set<File> kept = new HashSet<>(Arrays.asList(shards));
+            for(File file : existing) 
             {
-                String[] parts = parseCSVLine(line);
-                if (!parts[0].equals(student.getStudentId())) 
+                if(!kept.contains(file)) 
                 {
-                    lines.add(line);
+                    Files.deleteIfExists(file.toPath());
                 }
             }
-        } 
-        catch (IOException e) 
+            Metrics.add(Metrics.FILES_RESHARDED, existing.length);
+        }
+        catch(IOException e) 
         {
-            System.err.println("Error deleting student: " + e.getMessage());
+            System.err.println("Error resharding " + table + ": " + e.getMessage());
         }
+    }
 
-        try (PrintWriter writer = new PrintWriter(new FileWriter(STUDENT_FILE))) 
-        {
-            for (String line : lines) 
+    // Parse the shards of a table, all at once when there are several; records reach the handler one
+    // at a time, in file order within a shard and in no particular order across shards
+    private void parseShards(File[] shards, String action, CsvParser.RecordHandler handler) 
+    {
+        Object lock = new Object();
+        CsvParser.RecordHandler serialized = shards.length == 1 ? handler : record -> {
+            synchronized(lock) 
             {
-                writer.println(line);
+                handler.onRecord(record);
             }
-        } 
-        catch (IOException e) 
-        {
-            System.err.println("Error writing updated student data: " + e.getMessage());
-        }
+        };
+        Arrays.stream(shards).parallel().forEach(shard -> {
+            try (Reader reader = openForRead(shard)) 
+            {
+                new CsvParser().parse(reader, serialized);
+            }
+            catch(IOException e) 
+            {
+                System.err.println("Error " + action + ": " + e.getMessage());
+            }
+        });
     }
 
-    // ------------------- Course Management -------------------
+    // ------------------- Student Management -------------------
 
-    public void saveCourse(Course course) 
+    public void saveStudent(Student student) 
     {
-        try(PrintWriter writer = new PrintWriter(new FileWriter(COURSE_FILE, true))) 
+        if(log != null) 
+        {
+            appendToLog(LOG_STUDENT + "," + studentLine(student));
+            return;
+        }
+        try 
         {
-            writer.println(course.getId() + "," + escapeComma(course.getName()) + "," + course.getCapacity());
-        } 
+            appendTo(shardOf(STUDENT_FILES, student.getStudentId()), studentLine(student));
+        }
         catch (IOException e) 
         {
-            System.err.println("Error saving course: " + e.getMessage());
+            System.err.println("Error saving student: " + e.getMessage());
         }
     }
 
-    public Map<String, Course> loadCourses() 
+    public Map<String, Student> loadStudents() 
     {
-        Map<String, Course> courses = new HashMap<>();
-        try(BufferedReader reader = new BufferedReader(new FileReader(COURSE_FILE))) 
+        long start = Metrics.start();
+        try 
         {
-            String line;
-            while ((line = reader.readLine()) != null) 
+            Map<String, Student> students = store.studentMap(16);
+            if(log != null) 
+            {
+                return toStudents(recoverTable(STUDENT_FILES, "students", LOG_STUDENT, LOG_STUDENT_DELETE, 1, NO_CASCADES, tailSegments()));
+            }
+            if(lazyStudents) 
             {
-                String[] parts = parseCSVLine(line);
-                if(parts.length == 3) 
+                // Only the ID index is built; records are read when first asked for
+                Arrays.stream(STUDENT_FILES).parallel().forEach(shard -> {
+                    try 
+                    {
+                        store.scanStudents(shard, students);
+                    }
+                    catch(IOException e) 
+                    {
+                        System.err.println("Error loading students: " + e.getMessage());
+                    }
+                });
+                return students;
+            }
+            parseShards(STUDENT_FILES, "loading students", record -> {
+                if(record.getFieldCount() == 3) 
                 {
-                    String courseId = parts[0];
-                    String name = parts[1];
-                    int capacity = Integer.parseInt(parts[2]);
-                    Course course = new Course(courseId, name, capacity);
-                    courses.put(courseId, course);
+                    String studentId = record.getField(0);
+                    String name = record.getField(1);
+                    String email = record.getField(2);
+                    Student student = store.newStudent(studentId, name, email);
+                    students.put(studentId, student);
                 }
-            }
-        } 
-        catch(IOException e) 
+            });
+            return students;
+        }
+        finally 
         {
-            System.err.println("Error loading courses: " + e.getMessage());
-        } 
-        catch(NumberFormatException e) 
+            Metrics.record("loadStudents", start);
+        }
+    }
+
+    public void updateStudent(Student student) 
+    {
+        if(log != null) 
         {
-            System.err.println("Invalid number format in courses.csv: " + e.getMessage());
+            appendToLog(LOG_STUDENT + "," + studentLine(student));
+            return;
         }
-        return courses;
+        String updated = studentLine(student);
+        rewriteFile(shardOf(STUDENT_FILES, student.getStudentId()), "updating student", (line, fields) -> fields.fieldEquals(0, student.getStudentId()) ? updated : line);
     }
 
-    public void updateCourse(Course course) 
+    // Delete a student together with all of its enrollments. In log mode the one delete record is also
+    // the tombstone for the student's enrollments; otherwise the student's enrollment shard is rewritten
+    // once, and only when the student had any.
+    public void deleteStudent(Student student, boolean withEnrollments) 
     {
-        List<String> lines = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader(COURSE_FILE))) 
+        if(log != null) 
         {
-            String line;
-            while ((line = reader.readLine()) != null) 
-            {
-                String[] parts = parseCSVLine(line);
-                if (parts[0].equals(course.getId())) 
-                {
-                    lines.add(course.getId() + "," + escapeComma(course.getName()) + "," + course.getCapacity());
-                } 
-                else 
-                {
-                    lines.add(line);
-                }
-            }
-        } 
-        catch (IOException e) 
+            appendToLog(LOG_STUDENT_DELETE + "," + CsvParser.escape(student.getStudentId()));
+            return;
+        }
+        rewriteFile(shardOf(STUDENT_FILES, student.getStudentId()), "deleting student", (line, fields) -> fields.fieldEquals(0, student.getStudentId()) ? null : line);
+        if(withEnrollments) 
         {
-            System.err.println("Error updating course: " + e.getMessage());
+            rewriteFile(shardOf(ENROLLMENT_FILES, student.getStudentId()), "deleting student enrollments", (line, fields) -> fields.fieldEquals(0, student.getStudentId()) ? null : line);
         }
+    }
+
+    // ------------------- Course Management -------------------
 
-        try (PrintWriter writer = new PrintWriter(new FileWriter(COURSE_FILE))) 
+    public void saveCourse(Course course) 
+    {
+        if(log != null) 
         {
-            for (String line : lines) 
-            {
-                writer.println(line);
-            }
-        } 
+            appendToLog(LOG_COURSE + "," + courseLine(course));
+            return;
+        }
+        try 
+        {
+            appendTo(shardOf(COURSE_FILES, course.getId()), courseLine(course));
+        }
         catch (IOException e) 
         {
-            System.err.println("Error writing updated course data: " + e.getMessage());
+            System.err.println("Error saving course: " + e.getMessage());
         }
     }
 
-    public void deleteCourse(Course course) 
+    public Map<String, Course> loadCourses() 
     {
-        List<String> lines = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader(COURSE_FILE))) 
+        long start = Metrics.start();
+        try 
         {
-            String line;
-            while ((line = reader.readLine()) != null) 
+            Map<String, Course> courses = new HashMap<>();
+            if(log != null) 
             {
-                String[] parts = parseCSVLine(line);
-                if (!parts[0].equals(course.getId())) 
-                {
-                    lines.add(line);
-                }
+                return toCourses(recoverTable(COURSE_FILES, "courses", LOG_COURSE, LOG_COURSE_DELETE, 1, NO_CASCADES, tailSegments()));
             }
-        } 
-        catch (IOException e) 
+            try 
+            {
+                parseShards(COURSE_FILES, "loading courses", record -> {
+                    if(record.getFieldCount() == 3) 
+                    {
+                        String courseId = record.getField(0);
+                        String name = record.getField(1);
+                        int capacity = record.getInt(2);
+                        Course course = store.newCourse(courseId, name, capacity);
+                        courses.put(courseId, course);
+                    }
+                });
+            }
+            catch(NumberFormatException e) 
+            {
+                System.err.println("Invalid number format in courses.csv: " + e.getMessage());
+            }
+            return courses;
+        }
+        finally 
+        {
+            Metrics.record("loadCourses", start);
+        }
+    }
+
+    public void updateCourse(Course course) 
+    {
+        if(log != null) 
         {
-            System.err.println("Error deleting course: " + e.getMessage());
+            appendToLog(LOG_COURSE + "," + courseLine(course));
+            return;
         }
+        String updated = courseLine(course);
+        rewriteFile(shardOf(COURSE_FILES, course.getId()), "updating course", (line, fields) -> fields.fieldEquals(0, course.getId()) ? updated : line);
+    }
 
-        try (PrintWriter writer = new PrintWriter(new FileWriter(COURSE_FILE))) 
+    // Delete a course together with its roster, persisted like deleteStudent; only enrollment shards
+    // that held part of the roster are replaced
+    public void deleteCourse(Course course, boolean withEnrollments) 
+    {
+        if(log != null) 
+        {
+            appendToLog(LOG_COURSE_DELETE + "," + CsvParser.escape(course.getId()));
+            return;
+        }
+        rewriteFile(shardOf(COURSE_FILES, course.getId()), "deleting course", (line, fields) -> fields.fieldEquals(0, course.getId()) ? null : line);
+        if(withEnrollments) 
         {
-            for (String line : lines) 
+            // Enrollments are sharded by student, so the roster may be in any shard
+            for(File shard : ENROLLMENT_FILES) 
             {
-                writer.println(line);
+                rewriteFile(shard, "deleting course enrollments", (line, fields) -> fields.fieldEquals(1, course.getId()) ? null : line);
             }
-        } 
-        catch (IOException e) 
-        {
-            System.err.println("Error writing updated course data: " + e.getMessage());
         }
     }
 
@@ -261,142 +494,1015 @@ public class DataManager
 
     public void saveEnrollment(String studentId, String courseId) 
     {
-        try(PrintWriter writer = new PrintWriter(new FileWriter(ENROLLMENT_FILE, true))) 
+        if(log != null) 
         {
-            writer.println(studentId + "," + courseId);
-        } 
+            appendToLog(LOG_ENROLL + "," + enrollmentLine(studentId, courseId));
+            return;
+        }
+        try 
+        {
+            appendTo(shardOf(ENROLLMENT_FILES, studentId), enrollmentLine(studentId, courseId));
+        }
         catch(IOException e) 
         {
             System.err.println("Error saving enrollment: " + e.getMessage());
         }
     }
 
-    public List<String[]> loadEnrollments() 
+    // Persist many enrollments with a single append per shard
+    public void saveEnrollments(List<String[]> enrollments) 
     {
-        List<String[]> enrollments = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader(ENROLLMENT_FILE))) 
+        if(enrollments.isEmpty()) 
+        {
+            return;
+        }
+        if(log != null) 
         {
-            String line;
-            while((line = reader.readLine()) != null) 
+            List<String> records = new ArrayList<>(enrollments.size());
+            for(String[] enrollment : enrollments) 
             {
-                String[] parts = parseCSVLine(line);
-                if(parts.length == 2) 
-                {
-                    enrollments.add(parts);
-                }
+                records.add(LOG_ENROLL + "," + enrollmentLine(enrollment[0], enrollment[1]));
+            }
+            appendAllToLog(records);
+            return;
+        }
+        Map<File, List<String>> lines = new LinkedHashMap<>();
+        for(String[] enrollment : enrollments) 
+        {
+            lines.computeIfAbsent(shardOf(ENROLLMENT_FILES, enrollment[0]), shard -> new ArrayList<>()).add(enrollmentLine(enrollment[0], enrollment[1]));
+        }
+        try 
+        {
+            for(Map.Entry<File, List<String>> shard : lines.entrySet()) 
+            {
+                appendAllTo(shard.getKey(), shard.getValue());
             }
-        } 
+        }
         catch(IOException e) 
         {
-            System.err.println("Error loading enrollments: " + e.getMessage());
+            System.err.println("Error saving enrollments: " + e.getMessage());
         }
+    }
+
+    public List<String[]> loadEnrollments() 
+    {
+        List<String[]> enrollments = new ArrayList<>();
+        loadEnrollments((studentId, courseId) -> enrollments.add(new String[] {studentId, courseId}));
         return enrollments;
     }
 
-    public void deleteCourse(String studentId, String courseId) 
+    // Stream every enrollment to the handler without holding a row per enrollment
+    public void loadEnrollments(BiConsumer<String, String> handler) 
     {
-        List<String> lines = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader(ENROLLMENT_FILE))) 
+        long start = Metrics.start();
+        try 
         {
-            String line;
-            while ((line = reader.readLine()) != null) 
+            if(log != null) 
             {
-                String[] parts = parseCSVLine(line);
-                if (!parts[0].equals(studentId) || !parts[1].equals(courseId)) 
+                for(String[] parts : recoverTable(ENROLLMENT_FILES, "enrollments", LOG_ENROLL, LOG_UNENROLL, 2, ENROLLMENT_CASCADES, tailSegments())) 
                 {
-                    lines.add(line);
+                    if(parts.length == 2) 
+                    {
+                        handler.accept(parts[0], parts[1]);
+                    }
                 }
+                return;
             }
-        } 
-        catch (IOException e) 
+            parseShards(ENROLLMENT_FILES, "loading enrollments", record -> {
+                if(record.getFieldCount() == 2) 
+                {
+                    handler.accept(record.getField(0), record.getField(1));
+                }
+            });
+        }
+        finally 
         {
-            System.err.println("Error deleting enrollment: " + e.getMessage());
+            Metrics.record("loadEnrollments", start);
         }
+    }
+
+    public void deleteEnrollment(String studentId, String courseId) 
+    {
+        if(log != null) 
+        {
+            appendToLog(LOG_UNENROLL + "," + enrollmentLine(studentId, courseId));
+            return;
+        }
+        rewriteFile(shardOf(ENROLLMENT_FILES, studentId), "deleting enrollment",
+                (line, fields) -> fields.fieldEquals(0, studentId) && fields.fieldEquals(1, courseId) ? null : line);
+    }
 
-        try (PrintWriter writer = new PrintWriter(new FileWriter(ENROLLMENT_FILE))) 
+    // Persist a committed transaction as one log record, or in CSV mode as one rewrite per enrollment
+    // shard it touches, so a crash keeps all of its changes or none (in CSV mode, none per shard).
+    // Callers hold the transaction's locks, which keeps conflicting transactions in order. In CSV mode
+    // that means a whole-shard rewrite under them, like any CSV drop; log mode only appends a record.
+    public void saveTransaction(List<String[]> enrolled, List<String[]> dropped) 
+    {
+        if(enrolled.isEmpty() && dropped.isEmpty()) 
         {
-            for (String line : lines) 
+            return;
+        }
+        if(log != null) 
+        {
+            StringBuilder record = new StringBuilder(LOG_TRANSACTION);
+            for(String[] enrollment : dropped) 
             {
-                writer.println(line);
+                record.append(',').append(LOG_UNENROLL).append(',').append(enrollmentLine(enrollment[0], enrollment[1]));
             }
-        } 
-        catch (IOException e) 
+            for(String[] enrollment : enrolled) 
+            {
+                record.append(',').append(LOG_ENROLL).append(',').append(enrollmentLine(enrollment[0], enrollment[1]));
+            }
+            appendToLog(record.append(',').append(LOG_TRANSACTION).toString());
+            return;
+        }
+        Map<File, Set<String>> drops = new LinkedHashMap<>();
+        Map<File, List<String>> appends = new LinkedHashMap<>();
+        for(String[] enrollment : dropped) 
+        {
+            drops.computeIfAbsent(shardOf(ENROLLMENT_FILES, enrollment[0]), shard -> new HashSet<>()).add(enrollment[0] + '\0' + enrollment[1]);
+            appends.putIfAbsent(shardOf(ENROLLMENT_FILES, enrollment[0]), new ArrayList<>());
+        }
+        for(String[] enrollment : enrolled) 
+        {
+            appends.computeIfAbsent(shardOf(ENROLLMENT_FILES, enrollment[0]), shard -> new ArrayList<>()).add(enrollmentLine(enrollment[0], enrollment[1]));
+        }
+        for(Map.Entry<File, List<String>> shard : appends.entrySet()) 
         {
-            System.err.println("Error writing updated enrollment data: " + e.getMessage());
+            Set<String> keys = drops.getOrDefault(shard.getKey(), Collections.emptySet());
+            rewriteFile(shard.getKey(), "saving transaction", (line, fields) ->
+                    fields.getFieldCount() == 2 && keys.contains(fields.getField(0) + '\0' + fields.getField(1)) ? null : line, shard.getValue());
         }
     }
 
-    public void deleteEnrollment(String studentId, String courseId) 
+    // ------------------- Parallel Loading -------------------
+
+    // Load the three tables at the same time, each file split into newline-aligned chunks parsed with fork/join
+    public LoadedData loadAllParallel() 
     {
-        List<String> lines = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader(ENROLLMENT_FILE))) 
+        long start = Metrics.start();
+        try 
         {
-            String line;
-            while ((line = reader.readLine()) != null) 
-            {
-                String[] parts = parseCSVLine(line);
-                if (!parts[0].equals(studentId) || !parts[1].equals(courseId)) 
-                {
-                    lines.add(line);
-                }
-            }
-        } 
-        catch (IOException e) 
+            ParallelLoader loader = new ParallelLoader(ForkJoinPool.commonPool());
+            CompletableFuture<Map<String, Student>> students = CompletableFuture.supplyAsync(
+                    () -> toStudents(loadTableParallel(loader, STUDENT_FILES, "students", LOG_STUDENT, LOG_STUDENT_DELETE, 1, NO_CASCADES)));
+            CompletableFuture<Map<String, Course>> courses = CompletableFuture.supplyAsync(
+                    () -> toCourses(loadTableParallel(loader, COURSE_FILES, "courses", LOG_COURSE, LOG_COURSE_DELETE, 1, NO_CASCADES)));
+            CompletableFuture<List<String[]>> enrollments = CompletableFuture.supplyAsync(
+                    () -> toEnrollments(loadTableParallel(loader, ENROLLMENT_FILES, "enrollments", LOG_ENROLL, LOG_UNENROLL, 2, ENROLLMENT_CASCADES)));
+            return new LoadedData(students.join(), courses.join(), enrollments.join());
+        }
+        finally 
         {
-            System.err.println("Error deleting enrollment: " + e.getMessage());
+            Metrics.record("loadAllParallel", start);
         }
+    }
 
-        try (PrintWriter writer = new PrintWriter(new FileWriter(ENROLLMENT_FILE))) 
+    private Collection<String[]> loadTableParallel(ParallelLoader loader, File[] shards, String table, String upsertType, String deleteType, int keyFields, String[][] cascades) 
+    {
+        List<String[]> rows = new ArrayList<>();
+        for(File shard : shards) 
         {
-            for (String line : lines) 
+            try 
             {
-                writer.println(line);
+                rows.addAll(loader.readRows(shard));
+            }
+            catch(IOException e) 
+            {
+                System.err.println("Error loading " + shard.getName() + ": " + e.getMessage());
             }
-        } 
-        catch (IOException e) 
-        {
-            System.err.println("Error writing updated enrollment data: " + e.getMessage());
         }
+        return log != null ? applyLog(rows, upsertType, deleteType, keyFields, cascades, tailSegments(), table) : rows;
     }
 
-    // ------------------- Helper Methods -------------------
-
-    private String escapeComma(String field) 
+    private Map<String, Student> toStudents(Collection<String[]> rows) 
     {
-        if(field.contains(",")) 
+        Map<String, Student> students = store.studentMap(rows.size());
+        for(String[] parts : rows) 
         {
-            return "\"" + field.replace("\"", "\"\"") + "\"";
+            if(parts.length == 3) 
+            {
+                students.put(parts[0], store.newStudent(parts[0], parts[1], parts[2]));
+            }
         }
-        return field;
+        return students;
     }
 
-    private String[] parseCSVLine(String line) 
+    private Map<String, Course> toCourses(Collection<String[]> rows) 
     {
-        List<String> tokens = new ArrayList<>();
-        boolean inQuotes = false;
-        StringBuilder sb = new StringBuilder();
-
-        for(char c : line.toCharArray()) 
+        Map<String, Course> courses = new HashMap<>(rows.size() * 4 / 3 + 1);
+        for(String[] parts : rows) 
         {
-            if(c == '\"') 
+            if(parts.length == 3) 
             {
-                inQuotes = !inQuotes;
-                if(inQuotes && sb.length() > 0 && sb.charAt(sb.length() - 1) == '\"') 
+                try 
                 {
-                    sb.append('\"');
+                    courses.put(parts[0], store.newCourse(parts[0], parts[1], Integer.parseInt(parts[2])));
                 }
-            } 
-            else if(c == ',' && !inQuotes) 
-            {
-                tokens.add(sb.toString().trim());
-                sb.setLength(0);
-            } 
-            else 
+                catch(NumberFormatException e) 
+                {
+                    System.err.println("Invalid number format in courses.csv: " + e.getMessage());
+                }
+            }
+        }
+        return courses;
+    }
+
+    private List<String[]> toEnrollments(Collection<String[]> rows) 
+    {
+        List<String[]> enrollments = new ArrayList<>(rows.size());
+        for(String[] parts : rows) 
+        {
+            if(parts.length == 2) 
             {
-                sb.append(c);
+                enrollments.add(parts);
             }
         }
-        tokens.add(sb.toString().trim());
-        return tokens.toArray(new String[0]);
+        return enrollments;
+    }
+
+    // ------------------- Appenders -------------------
+
+    // Appends share a file's lock so they coalesce; a rewrite holds it exclusively so no append is lost
+    private ReadWriteLock lockFor(File file) 
+    {
+        return fileLocks.computeIfAbsent(file, f -> new ReentrantReadWriteLock());
+    }
+
+    private void appendTo(File file, String line) throws IOException 
+    {
+        WriteBehindQueue queue = writeBehind;
+        if(queue != null) 
+        {
+            queue.append(file, line);
+            return;
+        }
+        ReadWriteLock lock = lockFor(file);
+        lock.readLock().lock();
+        try 
+        {
+            writerFor(file).append(line);
+        }
+        finally 
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void appendAllTo(File file, List<String> lines) throws IOException 
+    {
+        WriteBehindQueue queue = writeBehind;
+        if(queue != null) 
+        {
+            queue.appendAll(file, lines);
+            return;
+        }
+        writeLines(file, lines);
+    }
+
+    private void writeLines(File file, List<String> lines) throws IOException 
+    {
+        ReadWriteLock lock = lockFor(file);
+        lock.readLock().lock();
+        try 
+        {
+            writerFor(file).appendAll(lines);
+        }
+        finally 
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Rewrite a whole file; the rewriter returns the line to write, or null to drop it
+    private void rewriteFile(File file, String action, BiFunction<String, CsvParser, String> rewriter) 
+    {
+        rewriteFile(file, action, rewriter, Collections.emptyList());
+    }
+
+    // Rewrite a whole file and add the appended lines at its end, in the same atomic replace
+    private void rewriteFile(File file, String action, BiFunction<String, CsvParser, String> rewriter, List<String> appended) 
+    {
+        WriteBehindQueue queue = writeBehind;
+        if(queue != null) 
+        {
+            queue.submit(() -> rewriteFileNow(file, action, rewriter, appended));
+            return;
+        }
+        try 
+        {
+            rewriteFileNow(file, action, rewriter, appended);
+        }
+        catch(IOException e) 
+        {
+            System.err.println("Error " + e.getMessage());
+        }
+    }
+
+    // Failures are thrown with the action, or the write, that failed as the message prefix
+    private void rewriteFileNow(File file, String action, BiFunction<String, CsvParser, String> rewriter, List<String> appended) throws IOException 
+    {
+        long start = Metrics.start();
+        try 
+        {
+            ReadWriteLock lock = lockFor(file);
+            lock.writeLock().lock();
+            try 
+            {
+                // The appender's channel would keep writing to the replaced file; the next append reopens it
+                closeWriter(file);
+                Metrics.increment(Metrics.FILE_REWRITES);
+                List<String> lines = new ArrayList<>();
+                boolean[] changed = new boolean[1];
+                // Parsed as a stream rather than line by line: a quoted field may hold a line break
+                try (BufferedReader reader = openForRead(file)) 
+                {
+                    new CsvParser().parse(reader, record -> {
+                        String line = recordLine(record);
+                        String rewritten = rewriter.apply(line, record);
+                        if (rewritten != null) 
+                        {
+                            lines.add(rewritten);
+                        }
+                        changed[0] |= !line.equals(rewritten);
+                    });
+                }
+                catch (IOException e) 
+                {
+                    throw new IOException(action + ": " + e.getMessage(), e);
+                }
+                lines.addAll(appended);
+                if(!changed[0] && appended.isEmpty()) 
+                {
+                    return; // Nothing matched in this shard
+                }
+
+                try 
+                {
+                    replaceFile(file, writer -> {
+                        for (String line : lines) 
+                        {
+                            writer.println(line);
+                        }
+                    });
+                }
+                catch (IOException e) 
+                {
+                    throw new IOException("writing updated " + file.getName() + ": " + e.getMessage(), e);
+                }
+            }
+            finally 
+            {
+                lock.writeLock().unlock();
+            }
+        }
+        finally 
+        {
+            Metrics.record("rewriteFile", start);
+        }
+    }
+
+    private interface LineWriter 
+    {
+        void writeTo(PrintWriter writer) throws IOException;
+    }
+
+    // Writes the content of several files at once, one writer per target
+    private interface ShardWriter 
+    {
+        void writeTo(PrintWriter[] writers) throws IOException;
+    }
+
+    private void replaceFile(File target, LineWriter content) throws IOException 
+    {
+        replaceFiles(new File[] {target}, writers -> content.writeTo(writers[0]));
+    }
+
+    // Write the new content to temporary files and rename each over its target, so a crash leaves every
+    // file old or new, never a truncated one. Unless durability is NONE the content is forced before
+    // the renames and the directory entries after them.
+    private void replaceFiles(File[] targets, ShardWriter content) throws IOException 
+    {
+        File[] temps = new File[targets.length];
+        FileOutputStream[] outs = new FileOutputStream[targets.length];
+        PrintWriter[] writers = new PrintWriter[targets.length];
+        boolean force = config.getDurabilityMode() != DurabilityMode.NONE;
+        try 
+        {
+            for(int i = 0; i < targets.length; i++) 
+            {
+                temps[i] = new File(targets[i].getPath() + ".tmp");
+                outs[i] = new FileOutputStream(temps[i]);
+                writers[i] = new PrintWriter(new BufferedWriter(new OutputStreamWriter(outs[i], StandardCharsets.UTF_8)));
+            }
+            content.writeTo(writers);
+            for(int i = 0; i < targets.length; i++) 
+            {
+                writers[i].flush();
+                if(writers[i].checkError()) 
+                {
+                    throw new IOException("Could not write " + temps[i].getName());
+                }
+                if(force) 
+                {
+                    outs[i].getChannel().force(true);
+                }
+            }
+        }
+        finally 
+        {
+            for(int i = 0; i < targets.length; i++) 
+            {
+                if(writers[i] != null) 
+                {
+                    writers[i].close();
+                }
+                else if(outs[i] != null) 
+                {
+                    outs[i].close();
+                }
+            }
+        }
+        for(int i = 0; i < targets.length; i++) 
+        {
+            Metrics.add(Metrics.BYTES_WRITTEN, temps[i].length());
+            Files.move(temps[i].toPath(), targets[i].toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        if(force) 
+        {
+            forceDirectory(targets[0].getAbsoluteFile().getParentFile());
+        }
+    }
+
+    // Make a rename durable; not every platform can open a directory, and there it is skipped
+    private void forceDirectory(File directory) 
+    {
+        try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) 
+        {
+            channel.force(true);
+        }
+        catch(IOException e) 
+        {
+            // Best effort
+        }
+    }
+
+    // One long-lived appender per file instead of opening a FileWriter per record
+    private AppendWriter writerFor(File file) throws IOException 
+    {
+        synchronized(writers) 
+        {
+            AppendWriter writer = writers.get(file);
+            if(writer == null) 
+            {
+                writer = new AppendWriter(file, config, flusher);
+                writers.put(file, writer);
+            }
+            return writer;
+        }
+    }
+
+    // Barrier: returns once every earlier mutation is written and committed, including queued ones
+    public void flush() throws IOException 
+    {
+        WriteBehindQueue queue = writeBehind;
+        if(queue != null) 
+        {
+            try 
+            {
+                queue.awaitDurable();
+            }
+            catch(InterruptedException e) 
+            {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for queued writes");
+            }
+            return;
+        }
+        commitAppends();
+    }
+
+    // Commit every pending append, including the mutation log
+    private void commitAppends() throws IOException 
+    {
+        List<AppendWriter> open;
+        synchronized(writers) 
+        {
+            open = new ArrayList<>(writers.values());
+        }
+        for(AppendWriter writer : open) 
+        {
+            writer.flush();
+        }
+        if(log != null) 
+        {
+            log.flush();
+        }
+    }
+
+    // Make pending appends visible before a file is read back for a rewrite
+    private void closeWriter(File file) 
+    {
+        AppendWriter writer;
+        synchronized(writers) 
+        {
+            writer = writers.remove(file);
+        }
+        if(writer != null) 
+        {
+            try 
+            {
+                writer.close();
+            }
+            catch(IOException e) 
+            {
+                System.err.println("Error closing " + file.getName() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // ------------------- Binary Snapshot -------------------
+
+    // Write every student, course and enrollment to the binary snapshot, stamped with the current state of the text files
+    public void writeSnapshot(Collection<Student> students, Collection<Course> courses) 
+    {
+        long start = Metrics.start();
+        try 
+        {
+            File temp = new File(SNAPSHOT_FILE.getPath() + ".tmp");
+            try 
+            {
+                flush();
+                Snapshot.write(temp, sourceFingerprint(), students, courses);
+                Metrics.add(Metrics.BYTES_WRITTEN, temp.length());
+                Files.move(temp.toPath(), SNAPSHOT_FILE.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch(IOException e) 
+            {
+                System.err.println("Error writing snapshot: " + e.getMessage());
+            }
+        }
+        finally 
+        {
+            Metrics.record("writeSnapshot", start);
+        }
+    }
+
+    // Returns null when there is no snapshot or the text files changed after it was written
+    public Snapshot loadSnapshot() 
+    {
+        long start = Metrics.start();
+        try 
+        {
+            if(!SNAPSHOT_FILE.exists()) 
+            {
+                return null;
+            }
+            try 
+            {
+                Metrics.add(Metrics.BYTES_READ, SNAPSHOT_FILE.length());
+                return Snapshot.read(SNAPSHOT_FILE, sourceFingerprint(), store);
+            }
+            catch(IOException | RuntimeException e) 
+            {
+                System.err.println("Ignoring unreadable snapshot: " + e.getMessage());
+                return null;
+            }
+        }
+        finally 
+        {
+            Metrics.record("loadSnapshot", start);
+        }
+    }
+
+    // Length and modification time of every file the snapshot was derived from
+    private long[] sourceFingerprint() 
+    {
+        List<File> sources = new ArrayList<>();
+        for(File[] table : Arrays.asList(STUDENT_FILES, COURSE_FILES, ENROLLMENT_FILES)) 
+        {
+            sources.addAll(Arrays.asList(table));
+        }
+        if(log != null) 
+        {
+            sources.addAll(log.getSegments());
+        }
+        long[] fingerprint = new long[sources.size() * 2];
+        for(int i = 0; i < sources.size(); i++) 
+        {
+            fingerprint[i * 2] = sources.get(i).length();
+            fingerprint[i * 2 + 1] = sources.get(i).lastModified();
+        }
+        return fingerprint;
+    }
+
+    // ------------------- Mutation Log -------------------
+
+    private void appendToLog(String record) 
+    {
+        WriteBehindQueue queue = writeBehind;
+        if(queue != null) 
+        {
+            queue.append(null, record);
+            return;
+        }
+        try 
+        {
+            log.append(record);
+        }
+        catch(IOException e) 
+        {
+            System.err.println("Error appending to mutation log: " + e.getMessage());
+            return;
+        }
+        compactIfNeeded();
+    }
+
+    private void appendAllToLog(List<String> records) 
+    {
+        WriteBehindQueue queue = writeBehind;
+        if(queue != null) 
+        {
+            queue.appendAll(null, records);
+            return;
+        }
+        writeLogRecords(records);
+    }
+
+    private void writeLogRecords(List<String> records) 
+    {
+        try 
+        {
+            log.appendAll(records);
+        }
+        catch(IOException e) 
+        {
+            System.err.println("Error appending to mutation log: " + e.getMessage());
+            return;
+        }
+        compactIfNeeded();
+    }
+
+    private void compactIfNeeded() 
+    {
+        if(!compacting && log.getRecordsInSegment() >= config.getCompactionThreshold()) 
+        {
+            scheduleCompaction();
+        }
+    }
+
+    // Seal the active segment and fold every sealed segment into fresh base files in the background
+    private synchronized void scheduleCompaction() 
+    {
+        if(compacting) 
+        {
+            return;
+        }
+        List<File> sealed;
+        try 
+        {
+            sealed = log.rotate();
+        }
+        catch(IOException e) 
+        {
+            System.err.println("Error rotating mutation log: " + e.getMessage());
+            return;
+        }
+
+        compacting = true;
+        compactor.submit(() -> {
+            try 
+            {
+                compact(sealed);
+            }
+            finally 
+            {
+                compacting = false;
+            }
+        });
+    }
+
+    private void compact(List<File> sealed) 
+    {
+        long start = Metrics.start();
+        try 
+        {
+            synchronized(baseFilesLock) 
+            {
+                // A checkpoint taken since the rotation may already have folded and removed some of them
+                sealed.removeIf(segment -> !segment.exists());
+                if(sealed.isEmpty()) 
+                {
+                    return;
+                }
+                writeBaseFile(STUDENT_FILES, recoverTable(STUDENT_FILES, "students", LOG_STUDENT, LOG_STUDENT_DELETE, 1, NO_CASCADES, sealed));
+                writeBaseFile(COURSE_FILES, recoverTable(COURSE_FILES, "courses", LOG_COURSE, LOG_COURSE_DELETE, 1, NO_CASCADES, sealed));
+                writeBaseFile(ENROLLMENT_FILES, recoverTable(ENROLLMENT_FILES, "enrollments", LOG_ENROLL, LOG_UNENROLL, 2, ENROLLMENT_CASCADES, sealed));
+                // Records are absolute upserts/deletes, so replaying a segment twice after a crash here is harmless
+                retireSegments(sealed);
+            }
+        }
+        catch(IOException e) 
+        {
+            System.err.println("Error compacting mutation log: " + e.getMessage());
+        }
+        finally 
+        {
+            Metrics.record("compaction", start);
+        }
+    }
+
+    // ------------------- Checkpoints -------------------
+
+    // Checkpoint the live collections every configured interval from a background thread (log mode only;
+    // in CSV mode the data files already are the current state)
+    public void startCheckpoints(Collection<Student> students, Collection<Course> courses) 
+    {
+        long interval = config.getCheckpointIntervalSeconds();
+        if(log == null || interval <= 0) 
+        {
+            return;
+        }
+        checkpointer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "checkpointer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        checkpointer.scheduleWithFixedDelay(() -> checkpoint(students, courses), interval, interval, TimeUnit.SECONDS);
+    }
+
+    // Write the in-memory state as the new base files and drop the log segments it covers. Writers
+    // only wait for the log rotation that marks the cut; the state is read while they carry on.
+    // Every mutation changes memory before it is logged, so the copy holds everything logged before
+    // the cut, plus possibly some later changes whose records are in the tail. Recovery replays the
+    // tail over the base files, and replaying a record whose effect is already there changes nothing.
+    public void checkpoint(Collection<Student> students, Collection<Course> courses) 
+    {
+        if(log == null) 
+        {
+            return;
+        }
+        long start = Metrics.start();
+        try 
+        {
+            synchronized(baseFilesLock) 
+            {
+                long pause = Metrics.start();
+                List<File> sealed = log.rotate();
+                Metrics.record("checkpointPause", pause);
+
+                replaceFiles(STUDENT_FILES, writers -> {
+                    for(Student student : students) 
+                    {
+                        writers[shardIndex(writers, student.getStudentId())].println(studentLine(student));
+                    }
+                });
+                replaceFiles(COURSE_FILES, writers -> {
+                    for(Course course : courses) 
+                    {
+                        writers[shardIndex(writers, course.getId())].println(courseLine(course));
+                    }
+                });
+                replaceFiles(ENROLLMENT_FILES, writers -> {
+                    for(Course course : courses) 
+                    {
+                        for(Student student : course.getRoster()) 
+                        {
+                            writers[shardIndex(writers, student.getStudentId())].println(enrollmentLine(student.getStudentId(), course.getId()));
+                        }
+                    }
+                });
+                retireSegments(sealed);
+            }
+        }
+        catch(IOException e) 
+        {
+            System.err.println("Error writing checkpoint: " + e.getMessage());
+        }
+        finally 
+        {
+            Metrics.record("checkpoint", start);
+        }
+    }
+
+    // The base files now include every record of these segments: move the replay start past them,
+    // then delete them. A crash in between only means they are replayed, harmlessly, once more.
+    private void retireSegments(List<File> sealed) throws IOException 
+    {
+        long next = MutationLog.segmentNumber(sealed.get(sealed.size() - 1)) + 1;
+        if(next > firstTailSegment()) 
+        {
+            replaceFile(CHECKPOINT_FILE, writer -> writer.println(next));
+        }
+        for(File segment : sealed) 
+        {
+            Files.deleteIfExists(segment.toPath());
+        }
+    }
+
+    // First segment not yet folded into the base files; 0 before any checkpoint or compaction
+    private long firstTailSegment() 
+    {
+        if(!CHECKPOINT_FILE.exists()) 
+        {
+            return 0;
+        }
+        try 
+        {
+            return Long.parseLong(new String(Files.readAllBytes(CHECKPOINT_FILE.toPath()), StandardCharsets.UTF_8).trim());
+        }
+        catch(IOException | NumberFormatException e) 
+        {
+            System.err.println("Ignoring unreadable " + CHECKPOINT_FILE.getName() + ": " + e.getMessage());
+            return 0;
+        }
+    }
+
+    // The segments recovery has to replay over the base files
+    private List<File> tailSegments() 
+    {
+        return log.getSegmentsFrom(firstTailSegment());
+    }
+
+    // Base file rows with the log records of one table applied in order
+    private Collection<String[]> recoverTable(File[] shards, String table, String upsertType, String deleteType, int keyFields, String[][] cascades, List<File> segments) 
+    {
+        List<String[]> base = new ArrayList<>();
+        parseShards(shards, "reading " + table, record -> base.add(record.getFields()));
+        return applyLog(base, upsertType, deleteType, keyFields, cascades, segments, table);
+    }
+
+    // Rows keyed by their first keyFields columns; upserts replace, deletes remove. With cascades, a
+    // parent delete (cascades[k][1] with one ID) removes every row whose field k matches and that was
+    // written before it, and a row logged while its parent stands deleted is dropped: an enrollment
+    // that raced the delete of its student or course must not come back if the ID is reused. A
+    // transaction record is applied change by change, and skipped whole if a crash cut it short.
+    private Collection<String[]> applyLog(List<String[]> base, String upsertType, String deleteType, int keyFields, String[][] cascades, List<File> segments, String table) 
+    {
+        Map<String, String[]> rows = new LinkedHashMap<>();
+        for(String[] parts : base) 
+        {
+            if(parts.length >= keyFields) 
+            {
+                rows.put(rowKey(parts, 0, keyFields), parts);
+            }
+        }
+
+        // Sequence of the last upsert per row and of the last parent delete per ID; base rows count as 0
+        Map<String, Long> written = new HashMap<>();
+        List<Map<String, Long>> tombstones = new ArrayList<>(cascades.length);
+        List<Set<String>> deletedParents = new ArrayList<>(cascades.length);
+        for(int k = 0; k < cascades.length; k++) 
+        {
+            tombstones.add(new HashMap<>());
+            deletedParents.add(new HashSet<>());
+        }
+        long[] sequence = new long[1];
+        try 
+        {
+            // One record or one change of a transaction record
+            Consumer<String[]> apply = parts -> {
+                if(parts[0].equals(upsertType) && parts.length > keyFields) 
+                {
+                    for(int k = 0; k < cascades.length; k++) 
+                    {
+                        if(deletedParents.get(k).contains(parts[1 + k])) 
+                        {
+                            return;
+                        }
+                    }
+                    String key = rowKey(parts, 1, keyFields);
+                    rows.put(key, Arrays.copyOfRange(parts, 1, parts.length));
+                    if(cascades.length > 0) 
+                    {
+                        written.put(key, sequence[0]);
+                    }
+                }
+                else if(parts[0].equals(deleteType) && parts.length > keyFields) 
+                {
+                    rows.remove(rowKey(parts, 1, keyFields));
+                }
+                else if(parts.length >= 2) 
+                {
+                    for(int k = 0; k < cascades.length; k++) 
+                    {
+                        if(parts[0].equals(cascades[k][1]) && parts.length == 2) 
+                        {
+                            tombstones.get(k).put(parts[1], sequence[0]);
+                            deletedParents.get(k).add(parts[1]);
+                        }
+                        else if(parts[0].equals(cascades[k][0])) 
+                        {
+                            deletedParents.get(k).remove(parts[1]);
+                        }
+                    }
+                }
+            };
+            MutationLog.replay(segments, record -> {
+                String[] parts = record.getFields();
+                if(parts.length == 0) 
+                {
+                    return;
+                }
+                sequence[0]++;
+                Metrics.increment(Metrics.LOG_RECORDS_REPLAYED);
+                if(!parts[0].equals(LOG_TRANSACTION)) 
+                {
+                    apply.accept(parts);
+                }
+                else if(parts.length % 3 == 2 && parts[parts.length - 1].equals(LOG_TRANSACTION)) 
+                {
+                    // A record cut short by a crash lacks the closing T and is skipped whole
+                    for(int i = 1; i < parts.length - 1; i += 3) 
+                    {
+                        apply.accept(Arrays.copyOfRange(parts, i, i + 3));
+                    }
+                }
+            });
+        }
+        catch(IOException e) 
+        {
+            System.err.println("Error recovering " + table + " from mutation log: " + e.getMessage());
+        }
+
+        for(int k = 0; k < cascades.length; k++) 
+        {
+            Map<String, Long> deleted = tombstones.get(k);
+            if(deleted.isEmpty()) 
+            {
+                continue;
+            }
+            int field = k;
+            rows.entrySet().removeIf(row -> {
+                Long tombstone = deleted.get(row.getValue()[field]);
+                return tombstone != null && written.getOrDefault(row.getKey(), 0L) < tombstone;
+            });
+        }
+        return rows.values();
+    }
+
+    private String rowKey(String[] parts, int from, int keyFields) 
+    {
+        return keyFields == 1 ? parts[from] : parts[from] + '\0' + parts[from + 1];
+    }
+
+    // Replace the shards of a base table through temporary files so readers never see one half written
+    private void writeBaseFile(File[] shards, Collection<String[]> rows) throws IOException 
+    {
+        replaceFiles(shards, writers -> {
+            for(String[] row : rows) 
+            {
+                PrintWriter writer = writers[shardIndex(writers, row[0])];
+                StringBuilder line = new StringBuilder();
+                for(int i = 0; i < row.length; i++) 
+                {
+                    if(i > 0) 
+                    {
+                        line.append(',');
+                    }
+                    line.append(CsvParser.escape(row[i]));
+                }
+                writer.println(line);
+            }
+        });
+    }
+
+    // ------------------- Helper Methods -------------------
+
+    // Data files are written as UTF-8 whatever the platform charset is, so they are read as UTF-8
+    private BufferedReader openForRead(File file) throws IOException 
+    {
+        Metrics.add(Metrics.BYTES_READ, file.length());
+        return Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8);
+    }
+
+    // One parsed record written back as a line
+    private String recordLine(CsvParser record) 
+    {
+        StringBuilder line = new StringBuilder();
+        for(int i = 0; i < record.getFieldCount(); i++) 
+        {
+            if(i > 0) 
+            {
+                line.append(',');
+            }
+            line.append(CsvParser.escape(record.getField(i)));
+        }
+        return line.toString();
+    }
+
+    private String studentLine(Student student) 
+    {
+        return CsvParser.escape(student.getStudentId()) + "," + CsvParser.escape(student.getName()) + "," + CsvParser.escape(student.getEmail());
+    }
+
+    private String courseLine(Course course) 
+    {
+        return CsvParser.escape(course.getId()) + "," + CsvParser.escape(course.getName()) + "," + course.getCapacity();
+    }
+
+    private String enrollmentLine(String studentId, String courseId) 
+    {
+        return CsvParser.escape(studentId) + "," + CsvParser.escape(courseId);
     }
 }
@@ -0,0 +1,9 @@
+package data;
+
+// When written data is forced from the OS cache to the storage device with FileChannel.force
+public enum DurabilityMode 
+{
+    NONE,    // never forced: fastest, but a power loss drops whatever the OS had not written back yet
+    BATCHED, // forced every flush interval and at flush barriers, so many commits share one force
+    SYNC     // every append is committed and forced before it returns, whatever the flush policy
+}
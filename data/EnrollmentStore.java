@@ -0,0 +1,441 @@
+package data;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+
+// Holds the enrollment graph as primitive ints. Every student and course gets a dense ordinal when
+// it is created; each side of an enrollment is one int in an OrdinalSet indexed by that ordinal, so an
+// enrollment costs a few bytes instead of a hash set entry and an object reference on each side.
+// Student and Course are thin views that keep their ordinal and read their adjacency from here.
+// With StudentRecords (off-heap, or left in the data files) a Student is a flyweight made on each access.
+public class EnrollmentStore 
+{
+    private static final int STUDENT_LOCK_STRIPES = 1024;
+    private static final VarHandle STAMP = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final OrdinalSet NO_COURSES = new OrdinalSet(); // Shared by students never enrolled; never added to
+    private static final OrdinalSet RETIRED = new OrdinalSet();    // Marks a deleted student; never added to
+
+    // Written under this lock, read without it: arrays are replaced, never shrunk, on growth
+    private volatile Student[] students;  // Canonical students; null with student records
+    private final StudentRecords records; // Records behind flyweight students; null on the heap
+    private final Object[] studentLocks = new Object[STUDENT_LOCK_STRIPES];
+    private volatile Course[] courses = new Course[64];
+    private volatile OrdinalSet[] coursesOfStudent = new OrdinalSet[64];
+    private volatile int[] nameStamps = new int[64]; // Renames per student, for name-ordered roster indexes
+    private volatile OrdinalSet[] studentsOfCourse = new OrdinalSet[64];
+    private volatile CompressedBitmap[] bitmapOfCourse; // Optional second copy of each roster; null when disabled
+    private int studentCount;
+    private int courseCount;
+
+    public EnrollmentStore() 
+    {
+        this(false, false);
+    }
+
+    // With roster bitmaps every course also keeps its roster as a CompressedBitmap for set queries;
+    // off-heap, student records are kept in direct memory and indexed through studentMap()
+    public EnrollmentStore(boolean rosterBitmaps, boolean offHeap) 
+    {
+        this(rosterBitmaps, offHeap ? new OffHeapStudentRecords() : null);
+    }
+
+    EnrollmentStore(boolean rosterBitmaps, StudentRecords records) 
+    {
+        if(rosterBitmaps) 
+        {
+            bitmapOfCourse = new CompressedBitmap[64];
+        }
+        this.records = records;
+        students = records != null ? null : new Student[64];
+        for(int i = 0; i < STUDENT_LOCK_STRIPES; i++) 
+        {
+            studentLocks[i] = new Object();
+        }
+    }
+
+    // ------------------- Entities -------------------
+
+    public Student newStudent(String studentId, String name, String email) 
+    {
+        synchronized(this) 
+        {
+            growStudents();
+            Student student;
+            if(records == null) 
+            {
+                student = new Student(this, studentCount, studentId, name, email);
+                students[studentCount] = student;
+            }
+            else 
+            {
+                records.add(studentCount, studentId, name, email);
+                student = new Student(this, studentCount, studentId, null, null);
+            }
+            studentCount++;
+            return student;
+        }
+    }
+
+    // Lazy loading: a student whose record stays at this address in a scanned students file
+    Student newStoredStudent(String studentId, long address) 
+    {
+        synchronized(this) 
+        {
+            growStudents();
+            ((FileStudentRecords) records).addStored(studentCount, studentId, address);
+            return new Student(this, studentCount++, studentId, null, null);
+        }
+    }
+
+    // Callers hold this lock
+    private void growStudents() 
+    {
+        if(studentCount == coursesOfStudent.length) 
+        {
+            coursesOfStudent = Arrays.copyOf(coursesOfStudent, studentCount * 2);
+            nameStamps = Arrays.copyOf(nameStamps, studentCount * 2);
+            if(records == null) 
+            {
+                students = Arrays.copyOf(students, studentCount * 2);
+            }
+        }
+    }
+
+    public Course newCourse(String courseId, String name, int capacity) 
+    {
+        synchronized(this) 
+        {
+            if(courseCount == courses.length) 
+            {
+                courses = Arrays.copyOf(courses, courseCount * 2);
+                studentsOfCourse = Arrays.copyOf(studentsOfCourse, courseCount * 2);
+                if(bitmapOfCourse != null) 
+                {
+                    bitmapOfCourse = Arrays.copyOf(bitmapOfCourse, courseCount * 2);
+                }
+            }
+            Course course = new Course(this, courseCount, courseId, name, capacity);
+            courses[courseCount] = course;
+            studentsOfCourse[courseCount] = new OrdinalSet();
+            if(bitmapOfCourse != null) 
+            {
+                bitmapOfCourse[courseCount] = new CompressedBitmap();
+            }
+            courseCount++;
+            return course;
+        }
+    }
+
+    // Lock-free: an ordinal reaches a reader only through a set written after the entity was
+    // registered, and the entity locks order that write before the read
+    Student student(int ordinal) 
+    {
+        return records == null ? students[ordinal] : new Student(this, ordinal, null, null, null);
+    }
+
+    Course course(int ordinal) 
+    {
+        return courses[ordinal];
+    }
+
+    // Count a rename of the student and return its stamp; the caller has written the new name, and
+    // holds the student's lock so the stamps of one student follow the order of its renames
+    int studentRenamed(int studentOrdinal) 
+    {
+        synchronized(this) 
+        {
+            int stamp = nameStamps[studentOrdinal] + 1;
+            STAMP.setVolatile(nameStamps, studentOrdinal, stamp);
+            return stamp;
+        }
+    }
+
+    int nameStamp(int studentOrdinal) 
+    {
+        return (int) STAMP.getVolatile(nameStamps, studentOrdinal);
+    }
+
+    // The adjacency of one entity; callers hold that entity's lock. A student's set is created on
+    // first enrollment, so reads of a student never enrolled share an empty set
+    OrdinalSet coursesOf(int studentOrdinal) 
+    {
+        OrdinalSet courses = coursesOfStudent[studentOrdinal];
+        return courses == null ? NO_COURSES : courses;
+    }
+
+    OrdinalSet coursesForUpdate(int studentOrdinal) 
+    {
+        synchronized(this) 
+        {
+            if(coursesOfStudent[studentOrdinal] == null) 
+            {
+                coursesOfStudent[studentOrdinal] = new OrdinalSet();
+            }
+            return coursesOfStudent[studentOrdinal];
+        }
+    }
+
+    // Drop a deleted student's courses and refuse further enrollments; callers hold its lock
+    void retireStudent(int studentOrdinal) 
+    {
+        synchronized(this) 
+        {
+            coursesOfStudent[studentOrdinal] = RETIRED;
+        }
+    }
+
+    boolean isRetired(int studentOrdinal) 
+    {
+        return coursesOfStudent[studentOrdinal] == RETIRED;
+    }
+
+    // Striped so that every flyweight of one student shares a lock
+    Object studentLock(int studentOrdinal) 
+    {
+        return studentLocks[studentOrdinal & (STUDENT_LOCK_STRIPES - 1)];
+    }
+
+    // The distinct locks of several students in stripe order, so they can be taken together without deadlock
+    List<Object> studentLocks(Collection<Student> students) 
+    {
+        TreeMap<Integer, Object> stripes = new TreeMap<>();
+        for(Student student : students) 
+        {
+            int stripe = student.getOrdinal() & (STUDENT_LOCK_STRIPES - 1);
+            stripes.put(stripe, studentLocks[stripe]);
+        }
+        return new ArrayList<>(stripes.values());
+    }
+
+    OrdinalSet studentsOf(int courseOrdinal) 
+    {
+        return studentsOfCourse[courseOrdinal];
+    }
+
+    // The course's roster bitmap, or null when roster bitmaps are off; callers hold the course lock
+    CompressedBitmap bitmapOf(int courseOrdinal) 
+    {
+        CompressedBitmap[] bitmaps = bitmapOfCourse;
+        return bitmaps == null ? null : bitmaps[courseOrdinal];
+    }
+
+    public boolean hasRosterBitmaps() 
+    {
+        return bitmapOfCourse != null;
+    }
+
+    // Students for the ordinals in a bitmap, in ordinal (creation) order
+    public List<Student> studentsIn(CompressedBitmap ordinals) 
+    {
+        List<Student> result = new ArrayList<>(ordinals.getCardinality());
+        ordinals.forEach(ordinal -> result.add(student(ordinal)));
+        return result;
+    }
+
+    // ------------------- Student Records -------------------
+
+    // Whether students are flyweights over StudentRecords rather than canonical heap objects
+    public boolean isFlyweight() 
+    {
+        return records != null;
+    }
+
+    // Lazy loading: register every student of a students file, leaving the records in the file
+    void scanStudents(File file, Map<String, Student> students) throws IOException 
+    {
+        ((FileStudentRecords) records).scan(file, (record, address) -> {
+            if(record.getFieldCount() == 3) 
+            {
+                String studentId = record.getField(0);
+                students.put(studentId, address < 0 ? newStudent(studentId, record.getField(1), record.getField(2)) : newStoredStudent(studentId, address));
+            }
+        });
+    }
+
+    // Release the files or memory behind student records
+    public void close() 
+    {
+        if(records != null) 
+        {
+            records.close();
+        }
+    }
+
+    String studentField(int studentOrdinal, int field) 
+    {
+        return records.get(studentOrdinal, field);
+    }
+
+    void updateStudentField(int studentOrdinal, int field, String value) 
+    {
+        synchronized(this) 
+        {
+            records.update(studentOrdinal, field, value);
+        }
+    }
+
+    // Map to register loaded students in: a new HashMap on the heap, or a view of the records' ID
+    // index, which is thread-safe and whose values are flyweights to be compared with equals, never ==
+    public Map<String, Student> studentMap(int expectedSize) 
+    {
+        return records == null ? new HashMap<>(expectedSize * 4 / 3 + 1) : new StudentMap();
+    }
+
+    private final class StudentMap extends AbstractMap<String, Student> 
+    {
+        @Override
+        public Student get(Object key) 
+        {
+            int ordinal = key instanceof String ? records.find((String) key) : -1;
+            return ordinal < 0 ? null : student(ordinal);
+        }
+
+        @Override
+        public boolean containsKey(Object key) 
+        {
+            return key instanceof String && records.find((String) key) >= 0;
+        }
+
+        @Override
+        public Student put(String studentId, Student student) 
+        {
+            checkSameStore(student.getStore());
+            int previous = records.put(studentId, student.getOrdinal(), false);
+            return previous < 0 ? null : student(previous);
+        }
+
+        @Override
+        public Student putIfAbsent(String studentId, Student student) 
+        {
+            checkSameStore(student.getStore());
+            int existing = records.put(studentId, student.getOrdinal(), true);
+            return existing < 0 ? null : student(existing);
+        }
+
+        @Override
+        public Student remove(Object key) 
+        {
+            int ordinal = key instanceof String ? records.remove((String) key) : -1;
+            return ordinal < 0 ? null : student(ordinal);
+        }
+
+        @Override
+        public int size() 
+        {
+            return records.size();
+        }
+
+        // Weakly consistent: iterates the students indexed when the iterator was created
+        @Override
+        public Set<Map.Entry<String, Student>> entrySet() 
+        {
+            return new AbstractSet<Map.Entry<String, Student>>() 
+            {
+                @Override
+                public Iterator<Map.Entry<String, Student>> iterator() 
+                {
+                    int[] ordinals = records.indexedOrdinals();
+                    return new Iterator<Map.Entry<String, Student>>() 
+                    {
+                        private int next;
+
+                        @Override
+                        public boolean hasNext() 
+                        {
+                            return next < ordinals.length;
+                        }
+
+                        @Override
+                        public Map.Entry<String, Student> next() 
+                        {
+                            if(next == ordinals.length) 
+                            {
+                                throw new NoSuchElementException();
+                            }
+                            Student student = student(ordinals[next++]);
+                            return new AbstractMap.SimpleImmutableEntry<>(student.getStudentId(), student);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() 
+                {
+                    return records.size();
+                }
+            };
+        }
+    }
+
+    // Ordinals only mean something inside the store that issued them
+    void checkSameStore(EnrollmentStore other) 
+    {
+        if(other != this) 
+        {
+            throw new IllegalArgumentException("Student and course belong to different enrollment stores");
+        }
+    }
+
+    // ------------------- Memory Accounting -------------------
+
+    public synchronized int getStudentCount() 
+    {
+        return studentCount;
+    }
+
+    public synchronized int getCourseCount() 
+    {
+        return courseCount;
+    }
+
+    // Approximate bytes used by the adjacency: the per-entity sets and their arrays
+    public synchronized long adjacencyBytes() 
+    {
+        long bytes = 16L + 4L * (coursesOfStudent.length + studentsOfCourse.length);
+        for(int i = 0; i < studentCount; i++) 
+        {
+            OrdinalSet courses = coursesOfStudent[i];
+            bytes += courses == null || courses == RETIRED ? 0 : 32 + courses.arrayBytes();
+        }
+        for(int i = 0; i < courseCount; i++) 
+        {
+            bytes += 32 + studentsOfCourse[i].arrayBytes();
+        }
+        return bytes;
+    }
+
+    // Direct memory holding student records, 0 on the heap or when they stay in the data files
+    public synchronized long offHeapBytes() 
+    {
+        return records == null ? 0 : records.recordBytes();
+    }
+
+    // Approximate bytes used by the roster bitmaps, 0 when they are off
+    public synchronized long rosterBitmapBytes() 
+    {
+        if(bitmapOfCourse == null) 
+        {
+            return 0;
+        }
+        long bytes = 16L + 4L * bitmapOfCourse.length;
+        for(int i = 0; i < courseCount; i++) 
+        {
+            bytes += 16 + bitmapOfCourse[i].sizeInBytes();
+        }
+        return bytes;
+    }
+}
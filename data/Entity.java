@@ -21,4 +21,25 @@ public class Entity
     {
         return name;
     }
+
+    // Entities of the same type are identified by their ID
+    @Override
+    public boolean equals(Object other) 
+    {
+        if(this == other) 
+        {
+            return true;
+        }
+        if(other == null || other.getClass() != getClass()) 
+        {
+            return false;
+        }
+        return id.equals(((Entity) other).id);
+    }
+
+    @Override
+    public int hashCode() 
+    {
+        return id.hashCode();
+    }
 }
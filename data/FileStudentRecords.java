@@ -0,0 +1,300 @@
+package data;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import monitoring.Metrics;
+
+// Student records left in the students CSV files and read on demand. Loading scans each file once
+// for where every record starts and keeps only the student IDs, packed into byte chunks, so the ID
+// index never goes to disk. A record is parsed when a flyweight first asks for its name or email and
+// is kept in a bounded, striped LRU cache. Each scanned file stays open, so its offsets
+// stay valid after a rewrite replaces the file: the channel keeps reading the version it scanned,
+// as POSIX file systems allow. Students added or changed since loading live in an in-memory overlay.
+final class FileStudentRecords extends StudentRecords 
+{
+    private static final int CACHE_STRIPES = 16;
+    private static final long IN_OVERLAY = -1; // Address of a record held by the overlay; 0 is not yet published
+    private static final int MAX_FILES = 1 << 8;
+    private static final long MAX_OFFSET = 1L << 40;
+    private static final int MAX_LENGTH = 0xFFFF;
+    private static final int ID_CHUNK_BYTES = 1 << 20;
+    private static final VarHandle ADDRESS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    // Address: file in the top 8 bits, offset in the next 40 and record length in the low 16
+    private volatile FileChannel[] files = new FileChannel[0]; // Appended to under this lock
+    private volatile long[] addresses = new long[64];
+    // IDs as a two-byte length and UTF-8 bytes; a reference is chunk << 32 | offset, plus one so 0 means unset
+    private volatile byte[][] idChunks = new byte[0][];
+    private int idChunkPosition = ID_CHUNK_BYTES;
+    private volatile long[] idRefs = new long[64];
+    private final Map<Integer, String[]> overlay = new ConcurrentHashMap<>();
+    private final List<LinkedHashMap<Integer, String[]>> cache = new ArrayList<>(CACHE_STRIPES);
+
+    // Receives each record found by a scan with its address, or IN_OVERLAY when it cannot be addressed
+    interface ScanHandler 
+    {
+        void onRecord(CsvParser record, long address);
+    }
+
+    FileStudentRecords(int cacheSize) 
+    {
+        int perStripe = Math.max(1, cacheSize / CACHE_STRIPES);
+        for(int i = 0; i < CACHE_STRIPES; i++) 
+        {
+            cache.add(new LinkedHashMap<Integer, String[]>(16, 0.75f, true) 
+            {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, String[]> eldest) 
+                {
+                    return size() > perStripe;
+                }
+            });
+        }
+    }
+
+    // ------------------- Scanning -------------------
+
+    // Find every record of a students file, honouring quoted line breaks, without keeping any of them
+    void scan(File file, ScanHandler handler) throws IOException 
+    {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        int fileIndex;
+        synchronized(this) 
+        {
+            fileIndex = files.length;
+            files = Arrays.copyOf(files, fileIndex + 1);
+            files[fileIndex] = channel;
+        }
+        Metrics.add(Metrics.BYTES_READ, channel.size());
+        CsvParser parser = new CsvParser();
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        byte[] record = new byte[256];
+        int length = 0;
+        long recordStart = 0;
+        long position = 0;
+        boolean quoted = false;
+        while(channel.read(buffer, position) > 0) 
+        {
+            buffer.flip();
+            while(buffer.hasRemaining()) 
+            {
+                byte b = buffer.get();
+                position++;
+                if(b == '"') 
+                {
+                    quoted = !quoted;
+                }
+                else if(b == '\n' && !quoted) 
+                {
+                    emit(parser, record, length, recordStart, fileIndex, handler);
+                    length = 0;
+                    recordStart = position;
+                    continue;
+                }
+                if(length == record.length) 
+                {
+                    record = Arrays.copyOf(record, length * 2);
+                }
+                record[length++] = b;
+            }
+            buffer.clear();
+        }
+        emit(parser, record, length, recordStart, fileIndex, handler);
+    }
+
+    private void emit(CsvParser parser, byte[] record, int length, long offset, int fileIndex, ScanHandler handler) 
+    {
+        if(length > 0 && record[length - 1] == '\r') 
+        {
+            length--;
+        }
+        if(length == 0) 
+        {
+            return;
+        }
+        parser.parseLine(new String(record, 0, length, StandardCharsets.UTF_8));
+        boolean addressable = fileIndex < MAX_FILES && offset < MAX_OFFSET && length <= MAX_LENGTH;
+        handler.onRecord(parser, addressable ? ((long) fileIndex << 56) | (offset << 16) | length : IN_OVERLAY);
+    }
+
+    // ------------------- Records -------------------
+
+    // A scanned record still in its file; callers hold the store lock and add ordinals in order
+    void addStored(int ordinal, String studentId, long address) 
+    {
+        if(ordinal == addresses.length) 
+        {
+            addresses = Arrays.copyOf(addresses, ordinal * 2);
+            idRefs = Arrays.copyOf(idRefs, ordinal * 2);
+        }
+        ADDRESS.setRelease(idRefs, ordinal, appendId(studentId));
+        ADDRESS.setRelease(addresses, ordinal, address);
+    }
+
+    @Override
+    void add(int ordinal, String studentId, String name, String email) 
+    {
+        overlay.put(ordinal, new String[] {studentId, name, email});
+        addStored(ordinal, studentId, IN_OVERLAY);
+    }
+
+    @Override
+    void update(int ordinal, int field, String value) 
+    {
+        String[] fields = read(ordinal).clone();
+        fields[field] = value;
+        overlay.put(ordinal, fields);
+        ADDRESS.setRelease(addresses, ordinal, IN_OVERLAY);
+        LinkedHashMap<Integer, String[]> stripe = cache.get(ordinal & (CACHE_STRIPES - 1));
+        synchronized(stripe) 
+        {
+            stripe.remove(ordinal);
+        }
+    }
+
+    @Override
+    String get(int ordinal, int field) 
+    {
+        if(field == ID) 
+        {
+            long ref = (long) ADDRESS.getAcquire(idRefs, ordinal) - 1;
+            byte[] chunk = idChunks[(int) (ref >>> 32)];
+            int position = (int) ref;
+            return new String(chunk, position + 2, idLength(chunk, position), StandardCharsets.UTF_8);
+        }
+        return read(ordinal)[field];
+    }
+
+    @Override
+    boolean idEquals(int ordinal, byte[] key) 
+    {
+        long[] idRefs = this.idRefs;
+        long ref = ordinal < idRefs.length ? (long) ADDRESS.getAcquire(idRefs, ordinal) - 1 : -1;
+        if(ref < 0) 
+        {
+            return false;
+        }
+        byte[] chunk = idChunks[(int) (ref >>> 32)];
+        int position = (int) ref;
+        return idLength(chunk, position) == key.length
+                && Arrays.equals(chunk, position + 2, position + 2 + key.length, key, 0, key.length);
+    }
+
+    // Callers hold the store lock
+    private long appendId(String studentId) 
+    {
+        byte[] bytes = studentId.getBytes(StandardCharsets.UTF_8);
+        if(bytes.length > MAX_LENGTH) 
+        {
+            throw new IllegalArgumentException("Student ID longer than " + MAX_LENGTH + " bytes");
+        }
+        if(idChunkPosition + 2 + bytes.length > ID_CHUNK_BYTES) 
+        {
+            byte[][] grown = Arrays.copyOf(idChunks, idChunks.length + 1);
+            grown[idChunks.length] = new byte[ID_CHUNK_BYTES];
+            idChunks = grown;
+            idChunkPosition = 0;
+        }
+        byte[] chunk = idChunks[idChunks.length - 1];
+        chunk[idChunkPosition] = (byte) (bytes.length >>> 8);
+        chunk[idChunkPosition + 1] = (byte) bytes.length;
+        System.arraycopy(bytes, 0, chunk, idChunkPosition + 2, bytes.length);
+        long ref = ((long) (idChunks.length - 1) << 32) | idChunkPosition;
+        idChunkPosition += 2 + bytes.length;
+        return ref + 1;
+    }
+
+    private static int idLength(byte[] chunk, int position) 
+    {
+        return ((chunk[position] & 0xFF) << 8) | (chunk[position + 1] & 0xFF);
+    }
+
+    // Records stay in the files, so none are held outside the heap
+    @Override
+    long recordBytes() 
+    {
+        return 0;
+    }
+
+    @Override
+    void close() 
+    {
+        synchronized(this) 
+        {
+            for(FileChannel channel : files) 
+            {
+                try 
+                {
+                    channel.close();
+                }
+                catch(IOException e) 
+                {
+                    System.err.println("Error closing students file: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // The overlay first, then the cache, then the file
+    private String[] read(int ordinal) 
+    {
+        long address = (long) ADDRESS.getAcquire(addresses, ordinal);
+        if(address == IN_OVERLAY) 
+        {
+            return overlay.get(ordinal);
+        }
+        LinkedHashMap<Integer, String[]> stripe = cache.get(ordinal & (CACHE_STRIPES - 1));
+        synchronized(stripe) 
+        {
+            String[] fields = stripe.get(ordinal);
+            if(fields != null) 
+            {
+                return fields;
+            }
+        }
+        Metrics.increment(Metrics.STUDENT_CACHE_MISSES);
+        String[] fields = load(address);
+        synchronized(stripe) 
+        {
+            stripe.put(ordinal, fields);
+        }
+        return fields;
+    }
+
+    private String[] load(long address) 
+    {
+        FileChannel channel = files[(int) (address >>> 56)];
+        long offset = (address >>> 16) & (MAX_OFFSET - 1);
+        ByteBuffer buffer = ByteBuffer.allocate((int) (address & MAX_LENGTH));
+        try 
+        {
+            while(buffer.hasRemaining()) 
+            {
+                if(channel.read(buffer, offset + buffer.position()) < 0) 
+                {
+                    throw new IOException("Students file shorter than its index");
+                }
+            }
+        }
+        catch(IOException e) 
+        {
+            throw new UncheckedIOException("Error reading student record", e);
+        }
+        Metrics.add(Metrics.BYTES_READ, buffer.capacity());
+        String line = new String(buffer.array(), StandardCharsets.UTF_8);
+        return new CsvParser().parseLine(line).getFields();
+    }
+}
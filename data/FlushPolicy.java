@@ -0,0 +1,9 @@
+package data;
+
+// When appended records are handed to the operating system
+public enum FlushPolicy 
+{
+    PER_OPERATION, // every append waits for the group commit that contains it
+    INTERVAL,      // a background task commits pending records every flush interval
+    RECORDS        // the append that fills the record quota commits the whole group
+}
@@ -0,0 +1,35 @@
+package data;
+
+import java.util.List;
+import java.util.Map;
+
+// Everything read from the data files in one load, before enrollments are linked
+public class LoadedData 
+{
+    private final Map<String, Student> students;
+    private final Map<String, Course> courses;
+    private final List<String[]> enrollments;
+
+    public LoadedData(Map<String, Student> students, Map<String, Course> courses, List<String[]> enrollments) 
+    {
+        this.students = students;
+        this.courses = courses;
+        this.enrollments = enrollments;
+    }
+
+    // Getters
+    public Map<String, Student> getStudents() 
+    {
+        return students;
+    }
+
+    public Map<String, Course> getCourses() 
+    {
+        return courses;
+    }
+
+    public List<String[]> getEnrollments() 
+    {
+        return enrollments;
+    }
+}
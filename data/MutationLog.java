@@ -0,0 +1,225 @@
+package data;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import monitoring.Metrics;
+
+// Append-only log of mutations, split into numbered segments (mutations-000001.log, ...)
+public class MutationLog 
+{
+    private static final String SEGMENT_PREFIX = "mutations-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final File directory;
+    private final StorageConfig config;
+    private final ScheduledExecutorService flusher;
+    private final ReadWriteLock rotationLock = new ReentrantReadWriteLock(); // appends share, rotation excludes
+    private final AtomicInteger recordsInSegment = new AtomicInteger();
+    private long activeSegment;
+    private AppendWriter writer;
+
+    public MutationLog(File directory, StorageConfig config, ScheduledExecutorService flusher) throws IOException 
+    {
+        this.directory = directory;
+        this.config = config;
+        this.flusher = flusher;
+        List<File> existing = listSegments(directory);
+        if(!existing.isEmpty()) 
+        {
+            repairTail(existing.get(existing.size() - 1));
+        }
+        this.activeSegment = existing.isEmpty() ? 1 : segmentNumber(existing.get(existing.size() - 1));
+        this.writer = openSegment(activeSegment);
+    }
+
+    // Append one record; concurrent appends share a group commit
+    public void append(String record) throws IOException 
+    {
+        rotationLock.readLock().lock();
+        try 
+        {
+            writer.append(record);
+            recordsInSegment.incrementAndGet();
+        } 
+        finally 
+        {
+            rotationLock.readLock().unlock();
+        }
+    }
+
+    // Append several records as one group commit
+    public void appendAll(Collection<String> records) throws IOException 
+    {
+        rotationLock.readLock().lock();
+        try 
+        {
+            writer.appendAll(records);
+            recordsInSegment.addAndGet(records.size());
+        } 
+        finally 
+        {
+            rotationLock.readLock().unlock();
+        }
+    }
+
+    public int getRecordsInSegment() 
+    {
+        return recordsInSegment.get();
+    }
+
+    // All segments on disk, oldest first
+    public List<File> getSegments() 
+    {
+        return listSegments(directory);
+    }
+
+    // Segments numbered first or later, oldest first
+    public List<File> getSegmentsFrom(long first) 
+    {
+        List<File> segments = listSegments(directory);
+        segments.removeIf(segment -> segmentNumber(segment) < first);
+        return segments;
+    }
+
+    // Seal the active segment and start a new one; returns every sealed segment, oldest first
+    public List<File> rotate() throws IOException 
+    {
+        long newSegment;
+        rotationLock.writeLock().lock();
+        try 
+        {
+            writer.close();
+            activeSegment++;
+            writer = openSegment(activeSegment);
+            recordsInSegment.set(0);
+            newSegment = activeSegment;
+        } 
+        finally 
+        {
+            rotationLock.writeLock().unlock();
+        }
+
+        List<File> sealed = new ArrayList<>();
+        for(File segment : listSegments(directory)) 
+        {
+            if(segmentNumber(segment) < newSegment) 
+            {
+                sealed.add(segment);
+            }
+        }
+        return sealed;
+    }
+
+    // Commit every pending record of the active segment
+    public void flush() throws IOException 
+    {
+        rotationLock.readLock().lock();
+        try 
+        {
+            writer.flush();
+        } 
+        finally 
+        {
+            rotationLock.readLock().unlock();
+        }
+    }
+
+    public void close() throws IOException 
+    {
+        rotationLock.writeLock().lock();
+        try 
+        {
+            writer.close();
+        } 
+        finally 
+        {
+            rotationLock.writeLock().unlock();
+        }
+    }
+
+    // Feed every record of the given segments to the handler, in log order; a quoted field may span lines
+    public static void replay(List<File> segments, CsvParser.RecordHandler handler) throws IOException 
+    {
+        CsvParser parser = new CsvParser();
+        for(File segment : segments) 
+        {
+            Metrics.add(Metrics.BYTES_READ, segment.length());
+            try(BufferedReader reader = Files.newBufferedReader(segment.toPath(), StandardCharsets.UTF_8)) 
+            {
+                parser.parse(reader, handler);
+            }
+        }
+    }
+
+    // ------------------- Helper Methods -------------------
+
+    // A crash can leave the last segment ending in part of a record. Cut it back to the last line break
+    // outside quotes before appending to it: a record torn inside a quoted field would otherwise run on
+    // into the next one appended.
+    private static void repairTail(File segment) throws IOException 
+    {
+        try(FileChannel channel = FileChannel.open(segment.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) 
+        {
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+            long position = 0;
+            long end = 0; // Just past the last complete record
+            boolean quoted = false;
+            int n;
+            while((n = channel.read(buffer, position)) > 0) 
+            {
+                for(int i = 0; i < n; i++) 
+                {
+                    byte b = buffer.get(i);
+                    if(b == '"') 
+                    {
+                        quoted = !quoted; // A doubled quote toggles twice, so parity stays right
+                    }
+                    else if(b == '\n' && !quoted) 
+                    {
+                        end = position + i + 1;
+                    }
+                }
+                position += n;
+                buffer.clear();
+            }
+            if(end < position) 
+            {
+                System.err.println("Discarding an incomplete record at the end of " + segment.getName());
+                channel.truncate(end);
+            }
+        }
+    }
+
+    private AppendWriter openSegment(long number) throws IOException 
+    {
+        File file = new File(directory, String.format("%s%06d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+        return new AppendWriter(file, config, flusher);
+    }
+
+    private static List<File> listSegments(File directory) 
+    {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        List<File> segments = new ArrayList<>();
+        if(files != null) 
+        {
+            segments.addAll(Arrays.asList(files));
+        }
+        segments.sort(Comparator.comparingLong(MutationLog::segmentNumber));
+        return segments;
+    }
+
+    static long segmentNumber(File segment) 
+    {
+        String name = segment.getName();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,129 @@
+package data;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Student fields kept off the Java heap: each record is the UTF-8 ID, name and email, each prefixed
+// by a two-byte length, appended to direct ByteBuffer slabs. Records are located through a per-ordinal
+// address and never freed; an update appends a new version and moves the address. The heap keeps
+// only primitive arrays, which the garbage collector never has to trace.
+final class OffHeapStudentRecords extends StudentRecords 
+{
+    private static final int SLAB_BYTES = 1 << 24;
+    private static final int MAX_FIELD_BYTES = 0xFFFF;
+    private static final VarHandle ADDRESS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    // Slabs and addresses are appended under the owning store's lock and read without it
+    private volatile ByteBuffer[] slabs = new ByteBuffer[0];
+    private int slabPosition = SLAB_BYTES;   // write position in the last slab
+    private volatile long[] addresses = new long[64];
+    private long recordBytes;
+
+    @Override
+    void add(int ordinal, String studentId, String name, String email) 
+    {
+        if(ordinal == addresses.length) 
+        {
+            addresses = Arrays.copyOf(addresses, ordinal * 2);
+        }
+        ADDRESS.setRelease(addresses, ordinal, append(studentId, name, email));
+    }
+
+    @Override
+    void update(int ordinal, int field, String value) 
+    {
+        String[] fields = {get(ordinal, ID), get(ordinal, NAME), get(ordinal, EMAIL)};
+        fields[field] = value;
+        ADDRESS.setRelease(addresses, ordinal, append(fields[ID], fields[NAME], fields[EMAIL]));
+    }
+
+    @Override
+    String get(int ordinal, int field) 
+    {
+        long address = (long) ADDRESS.getAcquire(addresses, ordinal);
+        ByteBuffer slab = slabs[(int) (address >>> 32)];
+        int position = skipTo(slab, (int) address, field);
+        byte[] bytes = new byte[slab.getShort(position) & 0xFFFF];
+        slab.get(position + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Superseded versions included
+    @Override
+    long recordBytes() 
+    {
+        return recordBytes;
+    }
+
+    private long append(String studentId, String name, String email) 
+    {
+        byte[][] fields = {encode(studentId), encode(name), encode(email)};
+        int length = 6 + fields[0].length + fields[1].length + fields[2].length;
+        if(slabPosition + length > SLAB_BYTES) 
+        {
+            ByteBuffer[] grown = Arrays.copyOf(slabs, slabs.length + 1);
+            grown[slabs.length] = ByteBuffer.allocateDirect(SLAB_BYTES);
+            slabs = grown;
+            slabPosition = 0;
+        }
+        int slab = slabs.length - 1;
+        ByteBuffer buffer = slabs[slab];
+        int start = slabPosition;
+        for(byte[] field : fields) 
+        {
+            buffer.putShort(slabPosition, (short) field.length);
+            buffer.put(slabPosition + 2, field);
+            slabPosition += 2 + field.length;
+        }
+        recordBytes += length;
+        return ((long) slab << 32) | start;
+    }
+
+    private static byte[] encode(String value) 
+    {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if(bytes.length > MAX_FIELD_BYTES) 
+        {
+            throw new IllegalArgumentException("Student field longer than " + MAX_FIELD_BYTES + " bytes");
+        }
+        return bytes;
+    }
+
+    private static int skipTo(ByteBuffer slab, int position, int field) 
+    {
+        for(int f = 0; f < field; f++) 
+        {
+            position += 2 + (slab.getShort(position) & 0xFFFF);
+        }
+        return position;
+    }
+
+    // Compare the stored ID with the key byte by byte, without decoding it
+    @Override
+    boolean idEquals(int ordinal, byte[] key) 
+    {
+        long[] addresses = this.addresses;
+        if(ordinal >= addresses.length) 
+        {
+            return false;
+        }
+        long address = (long) ADDRESS.getAcquire(addresses, ordinal);
+        ByteBuffer slab = slabs[(int) (address >>> 32)];
+        int position = (int) address;
+        if((slab.getShort(position) & 0xFFFF) != key.length) 
+        {
+            return false;
+        }
+        for(int i = 0; i < key.length; i++) 
+        {
+            if(slab.get(position + 2 + i) != key[i]) 
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
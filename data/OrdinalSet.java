@@ -0,0 +1,217 @@
+package data;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+// Insertion-ordered set of non-negative ints. Members live in one int array; removal leaves a hole
+// that is squeezed out once holes outnumber members. Small sets are scanned, larger ones get an
+// open-addressing index (linear probing, backward-shift deletion) so lookups stay O(1).
+// Not thread-safe: the owning Student or Course guards it.
+final class OrdinalSet 
+{
+    private static final int[] EMPTY = new int[0];
+    private static final int REMOVED = -1;
+    private static final int INDEX_THRESHOLD = 16;
+
+    private int[] members = EMPTY; // in insertion order, REMOVED for holes
+    private int end;               // used length of members
+    private int size;
+    private int[] index;           // slot holds position in members + 1, 0 when empty; null for small sets
+
+    int size() 
+    {
+        return size;
+    }
+
+    boolean contains(int value) 
+    {
+        return positionOf(value) >= 0;
+    }
+
+    boolean add(int value) 
+    {
+        if(positionOf(value) >= 0) 
+        {
+            return false;
+        }
+        if(end == members.length) 
+        {
+            if(end - size > size) 
+            {
+                compact();
+            }
+            if(end == members.length) 
+            {
+                members = Arrays.copyOf(members, Math.max(4, end + (end >> 1)));
+            }
+        }
+        members[end] = value;
+        end++;
+        size++;
+        if(index != null) 
+        {
+            if(size * 2 > index.length) 
+            {
+                rebuildIndex();
+            }
+            else 
+            {
+                insert(value, end - 1);
+            }
+        }
+        else if(size > INDEX_THRESHOLD) 
+        {
+            rebuildIndex();
+        }
+        return true;
+    }
+
+    boolean remove(int value) 
+    {
+        int position = positionOf(value);
+        if(position < 0) 
+        {
+            return false;
+        }
+        if(index != null) 
+        {
+            delete(value);
+        }
+        members[position] = REMOVED;
+        size--;
+        if(position == end - 1) 
+        {
+            end--;
+        }
+        return true;
+    }
+
+    // Visit every member in insertion order
+    void forEach(IntConsumer action) 
+    {
+        for(int i = 0; i < end; i++) 
+        {
+            if(members[i] != REMOVED) 
+            {
+                action.accept(members[i]);
+            }
+        }
+    }
+
+    int[] toArray() 
+    {
+        int[] values = new int[size];
+        int n = 0;
+        for(int i = 0; i < end; i++) 
+        {
+            if(members[i] != REMOVED) 
+            {
+                values[n++] = members[i];
+            }
+        }
+        return values;
+    }
+
+    // Bytes held by the arrays, for memory accounting
+    long arrayBytes() 
+    {
+        return 4L * members.length + (index == null ? 0 : 4L * index.length);
+    }
+
+    // ------------------- Index -------------------
+
+    private int positionOf(int value) 
+    {
+        if(index == null) 
+        {
+            for(int i = 0; i < end; i++) 
+            {
+                if(members[i] == value) 
+                {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        int mask = index.length - 1;
+        for(int slot = hash(value) & mask; index[slot] != 0; slot = (slot + 1) & mask) 
+        {
+            if(members[index[slot] - 1] == value) 
+            {
+                return index[slot] - 1;
+            }
+        }
+        return -1;
+    }
+
+    private void insert(int value, int position) 
+    {
+        int mask = index.length - 1;
+        int slot = hash(value) & mask;
+        while(index[slot] != 0) 
+        {
+            slot = (slot + 1) & mask;
+        }
+        index[slot] = position + 1;
+    }
+
+    // Remove a value's slot and shift later entries of its probe run back into the gap
+    private void delete(int value) 
+    {
+        int mask = index.length - 1;
+        int slot = hash(value) & mask;
+        while(members[index[slot] - 1] != value) 
+        {
+            slot = (slot + 1) & mask;
+        }
+        int gap = slot;
+        for(int next = (gap + 1) & mask; index[next] != 0; next = (next + 1) & mask) 
+        {
+            int home = hash(members[index[next] - 1]) & mask;
+            // Move the entry back if its home does not lie cyclically in (gap, next]
+            if(((next - home) & mask) >= ((next - gap) & mask)) 
+            {
+                index[gap] = index[next];
+                gap = next;
+            }
+        }
+        index[gap] = 0;
+    }
+
+    private void compact() 
+    {
+        int n = 0;
+        for(int i = 0; i < end; i++) 
+        {
+            if(members[i] != REMOVED) 
+            {
+                members[n++] = members[i];
+            }
+        }
+        Arrays.fill(members, n, end, 0);
+        end = n;
+        if(index != null) 
+        {
+            rebuildIndex();
+        }
+    }
+
+    private void rebuildIndex() 
+    {
+        int capacity = Integer.highestOneBit(Math.max(size, INDEX_THRESHOLD) * 4 - 1);
+        index = new int[capacity];
+        for(int i = 0; i < end; i++) 
+        {
+            if(members[i] != REMOVED) 
+            {
+                insert(members[i], i);
+            }
+        }
+    }
+
+    private static int hash(int value) 
+    {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,61 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.function.Function;
+
+// One page of a cursor-paginated query: the items, and the cursor to pass for the next page, or null
+// on the last one. A cursor is the sort key of the last item rather than a position, so paging stays
+// stable while other threads enroll and drop students between requests.
+public final class Page<T> 
+{
+    private final List<T> items;
+    private final String nextCursor;
+
+    public Page(List<T> items, String nextCursor) 
+    {
+        this.items = Collections.unmodifiableList(items);
+        this.nextCursor = nextCursor;
+    }
+
+    // The entries of an ordered map after the key, up to limit of them: O(log n + limit)
+    public static <K, V, T> Page<T> of(NavigableMap<K, V> map, K after, int limit, Function<V, T> item, Function<K, String> cursor) 
+    {
+        if(limit <= 0) 
+        {
+            throw new IllegalArgumentException("Page size must be positive: " + limit);
+        }
+        NavigableMap<K, V> rest = after == null ? map : map.tailMap(after, false);
+        List<T> items = new ArrayList<>(Math.min(limit, 256));
+        K last = null;
+        for(Map.Entry<K, V> entry : rest.entrySet()) 
+        {
+            if(items.size() == limit) 
+            {
+                return new Page<>(items, cursor.apply(last));
+            }
+            items.add(item.apply(entry.getValue()));
+            last = entry.getKey();
+        }
+        return new Page<>(items, null);
+    }
+
+    // Getters
+    public List<T> getItems() 
+    {
+        return items;
+    }
+
+    public String getNextCursor() 
+    {
+        return nextCursor;
+    }
+
+    public boolean hasMore() 
+    {
+        return nextCursor != null;
+    }
+}
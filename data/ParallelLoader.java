@@ -0,0 +1,119 @@
+package data;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import monitoring.Metrics;
+
+// Parses one CSV file with fork/join over newline-aligned chunks
+public class ParallelLoader 
+{
+    private static final int MIN_CHUNK_BYTES = 1 << 20;
+
+    private final ForkJoinPool pool;
+
+    public ParallelLoader(ForkJoinPool pool) 
+    {
+        this.pool = pool;
+    }
+
+    // Every record of the file, in file order
+    public List<String[]> readRows(File file) throws IOException 
+    {
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) 
+        {
+            long size = channel.size();
+            if(size == 0) 
+            {
+                return new ArrayList<>();
+            }
+            if(size > Integer.MAX_VALUE) 
+            {
+                throw new IOException(file.getName() + " is too large to map in one piece");
+            }
+            Metrics.add(Metrics.BYTES_READ, size);
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int[] boundaries = splitPoints(bytes, (int) size);
+            return pool.invoke(new ChunkTask(bytes, boundaries, 0, boundaries.length - 1));
+        }
+    }
+
+    // Chunk boundaries just after a line break that is not inside a quoted field
+    private int[] splitPoints(ByteBuffer bytes, int size) 
+    {
+        int target = Math.max(MIN_CHUNK_BYTES, size / (pool.getParallelism() * 4));
+        List<Integer> points = new ArrayList<>();
+        points.add(0);
+        int next = target;
+        boolean inQuotes = false;
+        for(int i = 0; i < size; i++) 
+        {
+            byte b = bytes.get(i);
+            if(b == '"') 
+            {
+                inQuotes = !inQuotes; // A doubled quote toggles twice, so parity stays right
+            }
+            else if(b == '\n' && !inQuotes && i + 1 >= next && i + 1 < size) 
+            {
+                points.add(i + 1);
+                next = i + 1 + target;
+            }
+        }
+        points.add(size);
+
+        int[] boundaries = new int[points.size()];
+        for(int i = 0; i < boundaries.length; i++) 
+        {
+            boundaries[i] = points.get(i);
+        }
+        return boundaries;
+    }
+
+    // Parses chunks [from, to) by splitting the range in half; results are concatenated in order
+    private static class ChunkTask extends RecursiveTask<List<String[]>> 
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final ByteBuffer bytes;
+        private final int[] boundaries;
+        private final int from;
+        private final int to;
+
+        ChunkTask(ByteBuffer bytes, int[] boundaries, int from, int to) 
+        {
+            this.bytes = bytes;
+            this.boundaries = boundaries;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<String[]> compute() 
+        {
+            if(to - from == 1) 
+            {
+                int start = boundaries[from];
+                ByteBuffer chunk = bytes.slice(start, boundaries[to] - start);
+                List<String[]> rows = new ArrayList<>();
+                new CsvParser().parse(StandardCharsets.UTF_8.decode(chunk), record -> rows.add(record.getFields()));
+                return rows;
+            }
+
+            int middle = (from + to) >>> 1;
+            ChunkTask left = new ChunkTask(bytes, boundaries, from, middle);
+            ChunkTask right = new ChunkTask(bytes, boundaries, middle, to);
+            right.fork();
+            List<String[]> rows = left.compute();
+            rows.addAll(right.join());
+            return rows;
+        }
+    }
+}
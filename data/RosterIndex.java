@@ -0,0 +1,176 @@
+package data;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// Ordered indexes over one course roster for paged queries: by enrollment sequence, by student ID, and
+// by name then student ID. They are skip lists, so readers page without the course lock while the
+// course's writers keep them current under it. A renamed student is re-keyed in the name index of
+// each course they are enrolled in; the store's name stamps order those re-keys, so a name read
+// before a later rename never overwrites it.
+final class RosterIndex 
+{
+    private static final char KEY_SEPARATOR = '\0'; // Sorts a name before any longer name it prefixes
+
+    // A student's name with the stamp it was read at, resolved before the course lock is taken:
+    // with lazily loaded students reading a name can be a disk read
+    static final class Name 
+    {
+        final String name;
+        final int stamp;
+
+        Name(String name, int stamp) 
+        {
+            this.name = name;
+            this.stamp = stamp;
+        }
+    }
+
+    private static final class Entry 
+    {
+        final long sequence;
+        final int ordinal;
+        String nameKey;         // Key in the name index; guarded by the course lock
+        volatile int nameStamp; // Stamp of the name in nameKey; written under the course lock
+
+        Entry(long sequence, int ordinal) 
+        {
+            this.sequence = sequence;
+            this.ordinal = ordinal;
+        }
+    }
+
+    private final EnrollmentStore store;
+    private final ConcurrentSkipListMap<Long, Integer> byEnrollment = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<String, Entry> byStudentId = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<String, Integer> byName = new ConcurrentSkipListMap<>();
+    private long nextSequence; // Guarded by the course lock
+
+    // Index a roster in its enrollment order with the names resolved for it; callers hold the course
+    // lock. A student missing from the names, or renamed since, is read here.
+    RosterIndex(EnrollmentStore store, RosterVersion roster, Map<Integer, Name> names) 
+    {
+        this.store = store;
+        for(int i = 0; i < roster.size(); i++) 
+        {
+            Student student = roster.get(i);
+            Name name = names.get(student.getOrdinal());
+            if(name == null || name.stamp != store.nameStamp(student.getOrdinal())) 
+            {
+                name = resolve(student);
+            }
+            add(student, name);
+        }
+    }
+
+    // The stamp is read before the name, so a rename in between leaves the stamp behind the name,
+    // never ahead of it
+    static Name resolve(Student student) 
+    {
+        int stamp = student.getStore().nameStamp(student.getOrdinal());
+        return new Name(student.getName(), stamp);
+    }
+
+    // Names of a roster, read without the course lock for building an index under it
+    static Map<Integer, Name> resolveAll(RosterVersion roster) 
+    {
+        Map<Integer, Name> names = new HashMap<>(roster.size() * 4 / 3 + 1);
+        for(Student student : roster) 
+        {
+            names.put(student.getOrdinal(), resolve(student));
+        }
+        return names;
+    }
+
+    // Callers hold the course lock
+    void add(Student student, Name name) 
+    {
+        Entry entry = new Entry(nextSequence++, student.getOrdinal());
+        byEnrollment.put(entry.sequence, entry.ordinal);
+        byStudentId.put(student.getStudentId(), entry);
+        entry.nameKey = name.name + KEY_SEPARATOR + student.getStudentId();
+        entry.nameStamp = name.stamp;
+        byName.put(entry.nameKey, entry.ordinal);
+    }
+
+    // Callers hold the course lock
+    void remove(Student student) 
+    {
+        Entry entry = byStudentId.remove(student.getStudentId());
+        if(entry == null) 
+        {
+            return;
+        }
+        byEnrollment.remove(entry.sequence);
+        byName.remove(entry.nameKey);
+    }
+
+    // Re-key a student under a newer name; callers hold the course lock
+    void rename(Student student, Name name) 
+    {
+        Entry entry = byStudentId.get(student.getStudentId());
+        if(entry == null || name.stamp - entry.nameStamp <= 0) 
+        {
+            return;
+        }
+        byName.remove(entry.nameKey);
+        entry.nameKey = name.name + KEY_SEPARATOR + student.getStudentId();
+        entry.nameStamp = name.stamp;
+        byName.put(entry.nameKey, entry.ordinal);
+    }
+
+    // Whether the student is indexed under a name older than their current one
+    boolean nameStale(Student student) 
+    {
+        Entry entry = byStudentId.get(student.getStudentId());
+        return entry != null && entry.nameStamp != store.nameStamp(student.getOrdinal());
+    }
+
+    Page<Student> page(RosterOrder order, String after, int limit) 
+    {
+        switch(order) 
+        {
+            case STUDENT_ID:
+                return Page.of(byStudentId, after, limit, entry -> store.student(entry.ordinal), id -> id);
+            case NAME:
+                return Page.of(byName, after == null ? null : nameKey(after), limit, store::student, RosterIndex::nameCursor);
+            default:
+                Long sequence;
+                try 
+                {
+                    sequence = after == null ? null : Long.valueOf(after);
+                }
+                catch(NumberFormatException e) 
+                {
+                    throw new IllegalArgumentException("Invalid enrollment-order cursor: " + after);
+                }
+                return Page.of(byEnrollment, sequence, limit, store::student, String::valueOf);
+        }
+    }
+
+    // Name keys hold a NUL separator, so cursors carry them URL-safe Base64 encoded
+    private static String nameCursor(String nameKey) 
+    {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(nameKey.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String nameKey(String cursor) 
+    {
+        try 
+        {
+            String key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if(key.indexOf(KEY_SEPARATOR) >= 0) 
+            {
+                return key;
+            }
+        }
+        catch(IllegalArgumentException e) 
+        {
+            // Not Base64: reported below
+        }
+        throw new IllegalArgumentException("Invalid name-order cursor: " + cursor);
+    }
+}
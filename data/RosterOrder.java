@@ -0,0 +1,9 @@
+package data;
+
+// Sort order of a paged roster query
+public enum RosterOrder 
+{
+    ENROLLMENT, // first enrolled first
+    STUDENT_ID, // by student ID
+    NAME        // by name, then student ID
+}
@@ -0,0 +1,232 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Enrollment changes applied to the store all-or-nothing. Every course involved is locked in ordinal
+// order, then every student's lock stripe in stripe order, so concurrent transactions cannot deadlock.
+// Under the locks the changes are checked in order, the seats each course gains are reserved in one
+// step, and only then is anything changed. Seats are counted net per course, so a student dropped
+// from a full course frees the seat another student takes in the same transaction.
+public final class RosterTransaction 
+{
+    // Result of apply
+    public enum Outcome 
+    {
+        APPLIED,
+        STUDENT_DELETED,
+        COURSE_DELETED,
+        NOT_ENROLLED,
+        ALREADY_ENROLLED,
+        COURSE_FULL
+    }
+
+    private static final class Change 
+    {
+        final Student student;
+        final Course course;
+        final boolean enroll;
+        RosterIndex.Name name; // For the course's roster index, resolved before the locks are taken
+
+        Change(Student student, Course course, boolean enroll) 
+        {
+            this.student = student;
+            this.course = course;
+            this.enroll = enroll;
+        }
+
+        long key() 
+        {
+            return ((long) course.getOrdinal() << 32) | student.getOrdinal();
+        }
+    }
+
+    private final List<Change> changes = new ArrayList<>();
+    private final List<Change> applied = new ArrayList<>(); // Net changes made, one per student and course
+    private int failedChange = -1;
+
+    public void enroll(Student student, Course course) 
+    {
+        changes.add(new Change(student, course, true));
+    }
+
+    public void drop(Student student, Course course) 
+    {
+        changes.add(new Change(student, course, false));
+    }
+
+    // Apply every change or none; may be called once
+    public Outcome apply() 
+    {
+        return apply(() -> {});
+    }
+
+    // Apply as above, running whileLocked once the changes are made and before any lock is released, so
+    // what it records about conflicting transactions lands in the order they were applied
+    public Outcome apply(Runnable whileLocked) 
+    {
+        if(changes.isEmpty()) 
+        {
+            return Outcome.APPLIED;
+        }
+        EnrollmentStore store = changes.get(0).student.getStore();
+        TreeMap<Integer, Course> courses = new TreeMap<>();
+        List<Student> students = new ArrayList<>();
+        for(Change change : changes) 
+        {
+            store.checkSameStore(change.student.getStore());
+            store.checkSameStore(change.course.getStore());
+            courses.put(change.course.getOrdinal(), change.course);
+            students.add(change.student);
+            if(change.enroll) 
+            {
+                change.name = change.course.indexedName(change.student);
+            }
+        }
+        List<Object> locks = new ArrayList<>(courses.values());
+        locks.addAll(store.studentLocks(students));
+        return applyHolding(locks, 0, store, whileLocked);
+    }
+
+    // Getters
+    public int getFailedChange() 
+    {
+        return failedChange; // Position of the change that stopped the transaction, or -1
+    }
+
+    // The {studentId, courseId} pairs the transaction enrolled, net of any it dropped again
+    public List<String[]> getEnrolled() 
+    {
+        return pairs(true);
+    }
+
+    // The {studentId, courseId} pairs the transaction dropped, net of any it enrolled again
+    public List<String[]> getDropped() 
+    {
+        return pairs(false);
+    }
+
+    private List<String[]> pairs(boolean enroll) 
+    {
+        List<String[]> pairs = new ArrayList<>();
+        for(Change change : applied) 
+        {
+            if(change.enroll == enroll) 
+            {
+                pairs.add(new String[] {change.student.getStudentId(), change.course.getId()});
+            }
+        }
+        return pairs;
+    }
+
+    private Outcome applyHolding(List<Object> locks, int next, EnrollmentStore store, Runnable whileLocked) 
+    {
+        if(next < locks.size()) 
+        {
+            synchronized(locks.get(next)) 
+            {
+                return applyHolding(locks, next + 1, store, whileLocked);
+            }
+        }
+
+        // Check each change against the membership the earlier ones leave
+        Map<Long, Boolean> member = new LinkedHashMap<>();
+        Map<Long, Change> lastChange = new LinkedHashMap<>();
+        for(int i = 0; i < changes.size(); i++) 
+        {
+            Change change = changes.get(i);
+            if(store.isRetired(change.student.getOrdinal())) 
+            {
+                return fail(i, Outcome.STUDENT_DELETED);
+            }
+            if(change.course.isRetired()) 
+            {
+                return fail(i, Outcome.COURSE_DELETED);
+            }
+            Boolean enrolled = member.get(change.key());
+            if(enrolled == null) 
+            {
+                enrolled = change.course.hasStudent(change.student);
+            }
+            if(enrolled == change.enroll) 
+            {
+                return fail(i, enrolled ? Outcome.ALREADY_ENROLLED : Outcome.NOT_ENROLLED);
+            }
+            member.put(change.key(), change.enroll);
+            lastChange.put(change.key(), change);
+        }
+
+        // Net change per student and course, and the seats each course gains or frees
+        List<Change> net = new ArrayList<>();
+        Map<Course, Integer> seats = new LinkedHashMap<>();
+        for(Change change : lastChange.values()) 
+        {
+            if(change.course.hasStudent(change.student) != change.enroll) 
+            {
+                net.add(change);
+                seats.merge(change.course, change.enroll ? 1 : -1, Integer::sum);
+            }
+        }
+        List<Course> reserved = new ArrayList<>();
+        for(Map.Entry<Course, Integer> course : seats.entrySet()) 
+        {
+            if(course.getValue() > 0) 
+            {
+                if(!course.getKey().adjustSeats(course.getValue())) 
+                {
+                    for(Course taken : reserved) 
+                    {
+                        taken.adjustSeats(-seats.get(taken));
+                    }
+                    return fail(firstEnrollIn(course.getKey()), Outcome.COURSE_FULL);
+                }
+                reserved.add(course.getKey());
+            }
+        }
+
+        for(Change change : net) 
+        {
+            if(change.enroll) 
+            {
+                change.course.link(change.student, change.name);
+                change.student.enroll(change.course);
+            }
+            else 
+            {
+                change.course.unlink(change.student);
+                change.student.unenroll(change.course);
+            }
+        }
+        for(Map.Entry<Course, Integer> course : seats.entrySet()) 
+        {
+            if(course.getValue() < 0) 
+            {
+                course.getKey().adjustSeats(course.getValue());
+            }
+        }
+        applied.addAll(net);
+        whileLocked.run();
+        return Outcome.APPLIED;
+    }
+
+    private int firstEnrollIn(Course course) 
+    {
+        for(int i = 0; i < changes.size(); i++) 
+        {
+            if(changes.get(i).enroll && changes.get(i).course == course) 
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private Outcome fail(int change, Outcome outcome) 
+    {
+        failedChange = change;
+        return outcome;
+    }
+}
@@ -0,0 +1,106 @@
+package data;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+// Immutable version of a course roster: the first size student ordinals of members, in enrollment
+// order. The course lock's holder publishes a new version after every change, and readers take the
+// current one with a single volatile read and iterate it without locking. Enrollments append past
+// the end of the array the current version covers, so successive versions share it and an
+// enrollment stays amortized O(1); removals copy.
+public final class RosterVersion extends AbstractList<Student> implements RandomAccess 
+{
+    private static final int[] EMPTY = new int[0];
+
+    private final EnrollmentStore store;
+    private final int[] members; // Entries past size belong to later versions
+    private final int size;
+    private final long version;
+
+    private RosterVersion(EnrollmentStore store, int[] members, int size, long version) 
+    {
+        this.store = store;
+        this.members = members;
+        this.size = size;
+        this.version = version;
+    }
+
+    static RosterVersion empty(EnrollmentStore store) 
+    {
+        return new RosterVersion(store, EMPTY, 0, 0);
+    }
+
+    // Getters
+    public long getVersion() 
+    {
+        return version; // Increases with every change published for the course
+    }
+
+    @Override
+    public int size() 
+    {
+        return size;
+    }
+
+    @Override
+    public Student get(int index) 
+    {
+        return store.student(studentOrdinal(index));
+    }
+
+    public int studentOrdinal(int index) 
+    {
+        Objects.checkIndex(index, size);
+        return members[index];
+    }
+
+    // The student ordinals of this version, in enrollment order
+    public int[] toOrdinalArray() 
+    {
+        return Arrays.copyOf(members, size);
+    }
+
+    // ------------------- Publishing -------------------
+    // Called only on the course's current version, under the course lock
+
+    RosterVersion with(int studentOrdinal) 
+    {
+        return withAll(new int[] {studentOrdinal}, 1);
+    }
+
+    RosterVersion withAll(int[] studentOrdinals, int count) 
+    {
+        if(count == 0) 
+        {
+            return this;
+        }
+        int[] target = members;
+        if(size + count > target.length) 
+        {
+            target = Arrays.copyOf(members, Math.max(size + count, size + (size >> 1) + 4));
+        }
+        System.arraycopy(studentOrdinals, 0, target, size, count);
+        return new RosterVersion(store, target, size + count, version + 1);
+    }
+
+    RosterVersion without(int studentOrdinal) 
+    {
+        for(int i = 0; i < size; i++) 
+        {
+            if(members[i] == studentOrdinal) 
+            {
+                int[] target = Arrays.copyOf(members, Math.max(size - 1, 4));
+                System.arraycopy(members, i + 1, target, i, size - i - 1);
+                return new RosterVersion(store, target, size - 1, version + 1);
+            }
+        }
+        return this;
+    }
+
+    RosterVersion cleared() 
+    {
+        return new RosterVersion(store, EMPTY, 0, version + 1);
+    }
+}
@@ -0,0 +1,254 @@
+package data;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+// Binary image of all students, courses and enrollments:
+// header | string table | fixed-width student, course and enrollment records | CRC32
+public class Snapshot 
+{
+    private static final long MAGIC = 0x454E52534E415031L; // "ENRSNAP1"
+    private static final int VERSION = 1;
+
+    private final Student[] students;
+    private final Course[] courses;
+    private final int[] enrollments; // (student index, course index) pairs
+    private final EnrollmentStore store;
+
+    private Snapshot(Student[] students, Course[] courses, int[] enrollments, EnrollmentStore store) 
+    {
+        this.students = students;
+        this.courses = courses;
+        this.enrollments = enrollments;
+        this.store = store;
+    }
+
+    // Getters
+    public Map<String, Student> getStudents() 
+    {
+        Map<String, Student> map = store.studentMap(students.length);
+        for(Student student : students) 
+        {
+            map.put(student.getStudentId(), student);
+        }
+        return map;
+    }
+
+    public Map<String, Course> getCourses() 
+    {
+        Map<String, Course> map = new HashMap<>(courses.length * 4 / 3 + 1);
+        for(Course course : courses) 
+        {
+            map.put(course.getId(), course);
+        }
+        return map;
+    }
+
+    public int getEnrollmentCount() 
+    {
+        return enrollments.length / 2;
+    }
+
+    // Visit every enrollment in the order it was written
+    public void forEachEnrollment(BiConsumer<Student, Course> action) 
+    {
+        for(int i = 0; i < enrollments.length; i += 2) 
+        {
+            action.accept(students[enrollments[i]], courses[enrollments[i + 1]]);
+        }
+    }
+
+    // ------------------- Writing -------------------
+
+    public static void write(File file, long[] fingerprint, Collection<Student> liveStudents, Collection<Course> liveCourses) throws IOException 
+    {
+        // Fix the entity lists first; the live collections may change while we write
+        List<Student> students = new ArrayList<>(liveStudents);
+        List<Course> courses = new ArrayList<>(liveCourses);
+        Map<String, Integer> stringIds = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        Map<String, Integer> studentIndex = new HashMap<>(students.size() * 4 / 3 + 1);
+
+        int[] studentRecords = new int[students.size() * 3];
+        int i = 0;
+        for(Student student : students) 
+        {
+            studentIndex.put(student.getStudentId(), i / 3);
+            studentRecords[i++] = intern(student.getStudentId(), stringIds, strings);
+            studentRecords[i++] = intern(student.getName(), stringIds, strings);
+            studentRecords[i++] = intern(student.getEmail(), stringIds, strings);
+        }
+
+        int[] courseRecords = new int[courses.size() * 3];
+        List<RosterVersion> rosters = new ArrayList<>(courses.size());
+        int enrollmentCount = 0;
+        i = 0;
+        for(Course course : courses) 
+        {
+            courseRecords[i++] = intern(course.getId(), stringIds, strings);
+            courseRecords[i++] = intern(course.getName(), stringIds, strings);
+            courseRecords[i++] = course.getCapacity();
+            RosterVersion roster = course.getRoster();
+            rosters.add(roster);
+            for(Student student : roster) 
+            {
+                if(studentIndex.containsKey(student.getStudentId())) 
+                {
+                    enrollmentCount++;
+                }
+            }
+        }
+
+        CRC32 crc = new CRC32();
+        try(FileOutputStream fileOut = new FileOutputStream(file);
+            DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(fileOut, 1 << 16), crc))) 
+        {
+            out.writeLong(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(fingerprint.length);
+            for(long value : fingerprint) 
+            {
+                out.writeLong(value);
+            }
+
+            // String table: offsets followed by one UTF-8 blob
+            byte[][] encoded = new byte[strings.size()][];
+            int offset = 0;
+            out.writeInt(strings.size());
+            for(int s = 0; s < encoded.length; s++) 
+            {
+                encoded[s] = strings.get(s).getBytes(StandardCharsets.UTF_8);
+                out.writeInt(offset);
+                offset += encoded[s].length;
+            }
+            out.writeInt(offset);
+            for(byte[] bytes : encoded) 
+            {
+                out.write(bytes);
+            }
+
+            out.writeInt(students.size());
+            for(int value : studentRecords) 
+            {
+                out.writeInt(value);
+            }
+
+            out.writeInt(courses.size());
+            for(int value : courseRecords) 
+            {
+                out.writeInt(value);
+            }
+
+            out.writeInt(enrollmentCount);
+            for(int courseIndex = 0; courseIndex < rosters.size(); courseIndex++) 
+            {
+                for(Student student : rosters.get(courseIndex)) 
+                {
+                    Integer index = studentIndex.get(student.getStudentId());
+                    if(index != null) 
+                    {
+                        out.writeInt(index);
+                        out.writeInt(courseIndex);
+                    }
+                }
+            }
+
+            out.flush();
+            // The checksum itself is written past the checked stream
+            new DataOutputStream(fileOut).writeLong(crc.getValue());
+        }
+    }
+
+    private static int intern(String value, Map<String, Integer> stringIds, List<String> strings) 
+    {
+        Integer id = stringIds.get(value);
+        if(id == null) 
+        {
+            id = strings.size();
+            stringIds.put(value, id);
+            strings.add(value);
+        }
+        return id;
+    }
+
+    // ------------------- Reading -------------------
+
+    // Map the file and rebuild the object graph; returns null if the snapshot is stale or corrupt
+    public static Snapshot read(File file, long[] fingerprint, EnrollmentStore store) throws IOException 
+    {
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) 
+        {
+            long size = channel.size();
+            if(size < 24 || size > Integer.MAX_VALUE) 
+            {
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            if(buffer.getLong() != MAGIC || buffer.getInt() != VERSION) 
+            {
+                return null;
+            }
+
+            ByteBuffer body = buffer.duplicate();
+            body.position(0).limit((int) size - 8);
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            if(buffer.getLong((int) size - 8) != crc.getValue()) 
+            {
+                return null;
+            }
+
+            int fingerprintLength = buffer.getInt();
+            if(fingerprintLength != fingerprint.length) 
+            {
+                return null;
+            }
+            for(long value : fingerprint) 
+            {
+                if(buffer.getLong() != value) 
+                {
+                    return null;
+                }
+            }
+
+            int stringCount = buffer.getInt();
+            int[] offsets = new int[stringCount + 1];
+            for(int s = 0; s <= stringCount; s++) 
+            {
+                offsets[s] = buffer.getInt();
+            }
+            byte[] blob = new byte[offsets[stringCount]];
+            buffer.get(blob);
+            String[] strings = new String[stringCount];
+            for(int s = 0; s < stringCount; s++) 
+            {
+                strings[s] = new String(blob, offsets[s], offsets[s + 1] - offsets[s], StandardCharsets.UTF_8);
+            }
+
+            Student[] students = new Student[buffer.getInt()];
+            for(int s = 0; s < students.length; s++) 
+            {
+                students[s] = store.newStudent(strings[buffer.getInt()], strings[buffer.getInt()], strings[buffer.getInt()]);
+            }
+
+            Course[] courses = new Course[buffer.getInt()];
+            for(int c = 0; c < courses.length; c++) 
+            {
+                courses[c] = store.newCourse(strings[buffer.getInt()], strings[buffer.getInt()], buffer.getInt());
+            }
+
+            int[] enrollments = new int[buffer.getInt() * 2];
+            buffer.asIntBuffer().get(enrollments);
+            return new Snapshot(students, courses, enrollments, store);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package data;
+
+import java.io.File;
+
+public class StorageConfig 
+{
+    private boolean logMode;
+    private int compactionThreshold;
+    private File dataDirectory;
+    private boolean snapshotEnabled;
+    private FlushPolicy flushPolicy;
+    private long flushIntervalMillis;
+    private int flushRecords;
+    private DurabilityMode durabilityMode;
+    private boolean parallelLoad;
+    private boolean writeBehind;
+    private int writeBehindCapacity;
+    private boolean rosterBitmaps;
+    private long checkpointIntervalSeconds;
+    private boolean offHeap;
+    private int shards;
+    private boolean lazyStudents;
+    private int studentCacheSize;
+
+    public StorageConfig() 
+    {
+        this.logMode = false;
+        this.compactionThreshold = 50000;
+        this.dataDirectory = new File(".");
+        this.snapshotEnabled = false;
+        this.flushPolicy = FlushPolicy.PER_OPERATION;
+        this.flushIntervalMillis = 10;
+        this.flushRecords = 256;
+        this.durabilityMode = DurabilityMode.NONE;
+        this.parallelLoad = false;
+        this.writeBehind = false;
+        this.writeBehindCapacity = 10000;
+        this.rosterBitmaps = false;
+        this.checkpointIntervalSeconds = 0;
+        this.offHeap = false;
+        this.shards = 1;
+        this.lazyStudents = false;
+        this.studentCacheSize = 10000;
+    }
+
+    // Build a configuration from -Denrollment.* system properties
+    public static StorageConfig fromSystemProperties() 
+    {
+        StorageConfig config = new StorageConfig();
+        config.setLogMode("log".equalsIgnoreCase(System.getProperty("enrollment.persistence", "csv")));
+        config.setCompactionThreshold(Integer.getInteger("enrollment.log.compactionThreshold", config.getCompactionThreshold()));
+        config.setDataDirectory(new File(System.getProperty("enrollment.dataDir", ".")));
+        config.setSnapshotEnabled(Boolean.getBoolean("enrollment.snapshot"));
+        config.setFlushPolicy(FlushPolicy.valueOf(System.getProperty("enrollment.flush", config.getFlushPolicy().name()).toUpperCase()));
+        config.setFlushIntervalMillis(Long.getLong("enrollment.flush.intervalMillis", config.getFlushIntervalMillis()));
+        config.setFlushRecords(Integer.getInteger("enrollment.flush.records", config.getFlushRecords()));
+        // enrollment.fsync=true predates durability modes and forced every group commit
+        String durability = System.getProperty("enrollment.durability", Boolean.getBoolean("enrollment.fsync") ? "SYNC" : "NONE");
+        config.setDurabilityMode(DurabilityMode.valueOf(durability.toUpperCase()));
+        config.setParallelLoad(Boolean.getBoolean("enrollment.parallelLoad"));
+        config.setWriteBehind(Boolean.getBoolean("enrollment.writeBehind"));
+        config.setWriteBehindCapacity(Integer.getInteger("enrollment.writeBehind.capacity", config.getWriteBehindCapacity()));
+        config.setRosterBitmaps(Boolean.getBoolean("enrollment.rosterBitmaps"));
+        config.setCheckpointIntervalSeconds(Long.getLong("enrollment.checkpoint.intervalSeconds", config.getCheckpointIntervalSeconds()));
+        config.setOffHeap(Boolean.getBoolean("enrollment.offHeap"));
+        config.setShards(Integer.getInteger("enrollment.shards", config.getShards()));
+        config.setLazyStudents(Boolean.getBoolean("enrollment.lazyStudents"));
+        config.setStudentCacheSize(Integer.getInteger("enrollment.lazyStudents.cacheSize", config.getStudentCacheSize()));
+        return config;
+    }
+
+    // Getters
+    public boolean isLogMode() 
+    {
+        return logMode;
+    }
+
+    public int getCompactionThreshold() 
+    {
+        return compactionThreshold;
+    }
+
+    public File getDataDirectory() 
+    {
+        return dataDirectory;
+    }
+
+    public boolean isSnapshotEnabled() 
+    {
+        return snapshotEnabled;
+    }
+
+    public FlushPolicy getFlushPolicy() 
+    {
+        return flushPolicy;
+    }
+
+    public long getFlushIntervalMillis() 
+    {
+        return flushIntervalMillis;
+    }
+
+    public int getFlushRecords() 
+    {
+        return flushRecords;
+    }
+
+    public DurabilityMode getDurabilityMode() 
+    {
+        return durabilityMode;
+    }
+
+    public boolean isParallelLoad() 
+    {
+        return parallelLoad;
+    }
+
+    public boolean isWriteBehind() 
+    {
+        return writeBehind;
+    }
+
+    public int getWriteBehindCapacity() 
+    {
+        return writeBehindCapacity;
+    }
+
+    public boolean isRosterBitmaps() 
+    {
+        return rosterBitmaps;
+    }
+
+    public long getCheckpointIntervalSeconds() 
+    {
+        return checkpointIntervalSeconds;
+    }
+
+    public boolean isOffHeap() 
+    {
+        return offHeap;
+    }
+
+    public int getShards() 
+    {
+        return shards;
+    }
+
+    public boolean isLazyStudents() 
+    {
+        return lazyStudents;
+    }
+
+    public int getStudentCacheSize() 
+    {
+        return studentCacheSize;
+    }
+
+    // Setters
+    public void setLogMode(boolean logMode) 
+    {
+        this.logMode = logMode; // Append mutations to the log instead of rewriting the CSV files
+    }
+
+    public void setCompactionThreshold(int compactionThreshold) 
+    {
+        this.compactionThreshold = compactionThreshold; // Records per log segment before compaction
+    }
+
+    public void setDataDirectory(File dataDirectory) 
+    {
+        this.dataDirectory = dataDirectory; // Directory holding the CSV files, log segments and snapshot
+    }
+
+    public void setSnapshotEnabled(boolean snapshotEnabled) 
+    {
+        this.snapshotEnabled = snapshotEnabled; // Start from the binary snapshot and write one on shutdown
+    }
+
+    public void setFlushPolicy(FlushPolicy flushPolicy) 
+    {
+        this.flushPolicy = flushPolicy; // When appended records are written out
+    }
+
+    public void setFlushIntervalMillis(long flushIntervalMillis) 
+    {
+        this.flushIntervalMillis = flushIntervalMillis; // Used by FlushPolicy.INTERVAL and DurabilityMode.BATCHED
+    }
+
+    public void setFlushRecords(int flushRecords) 
+    {
+        this.flushRecords = flushRecords; // Used by FlushPolicy.RECORDS
+    }
+
+    public void setDurabilityMode(DurabilityMode durabilityMode) 
+    {
+        this.durabilityMode = durabilityMode; // When appends and file replacements are forced to the storage device
+    }
+
+    public void setParallelLoad(boolean parallelLoad) 
+    {
+        this.parallelLoad = parallelLoad; // Load the data files concurrently, in chunks
+    }
+
+    public void setWriteBehind(boolean writeBehind) 
+    {
+        this.writeBehind = writeBehind; // Queue mutations for a background writer instead of writing on the caller's thread
+    }
+
+    public void setWriteBehindCapacity(int writeBehindCapacity) 
+    {
+        this.writeBehindCapacity = writeBehindCapacity; // Queued mutations before callers block
+    }
+
+    public void setRosterBitmaps(boolean rosterBitmaps) 
+    {
+        this.rosterBitmaps = rosterBitmaps; // Keep a compressed bitmap of every course roster for set queries
+    }
+
+    public void setCheckpointIntervalSeconds(long checkpointIntervalSeconds) 
+    {
+        this.checkpointIntervalSeconds = checkpointIntervalSeconds; // Log mode: checkpoint the in-memory state this often; 0 disables
+    }
+
+    public void setOffHeap(boolean offHeap) 
+    {
+        this.offHeap = offHeap; // Keep student records in direct memory and hand out flyweights
+    }
+
+    public void setShards(int shards) 
+    {
+        this.shards = Math.max(1, shards); // Hash partitions per table; 1 keeps students.csv, courses.csv and enrollments.csv
+    }
+
+    public void setLazyStudents(boolean lazyStudents) 
+    {
+        this.lazyStudents = lazyStudents; // CSV mode: index the students files at startup and read records on demand
+    }
+
+    public void setStudentCacheSize(int studentCacheSize) 
+    {
+        this.studentCacheSize = studentCacheSize; // Lazily loaded student records kept in memory, least recently used evicted first
+    }
+}
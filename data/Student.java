@@ -1,48 +1,138 @@
 package data;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
+// View over an EnrollmentStore: the student's courses are course ordinals held by the store. With
+// student records (off-heap or lazily loaded) this is a flyweight made on access: fields are read from
+// the store's records and the lock is the store's stripe for the ordinal, shared by every view.
 public class Student extends Person 
 {
-    private String studentId;
-    private List<Course> courses;
+    private String studentId; // Decoded on first use by a flyweight; IDs never change
+    private final EnrollmentStore store;
+    private final int ordinal;
 
-    public Student(String studentId, String name, String email) 
+    // Created through EnrollmentStore.newStudent
+    Student(EnrollmentStore store, int ordinal, String studentId, String name, String email) 
     {
         super(name, email); // Inherited from Person
         this.studentId = studentId;
-        this.courses = new ArrayList<>();
+        this.store = store;
+        this.ordinal = ordinal;
     }
 
     // Getters
     public String getStudentId() 
     {
+        if(studentId == null) 
+        {
+            studentId = store.studentField(ordinal, StudentRecords.ID);
+        }
         return studentId;
     }
 
-    public List<Course> getCourses() 
+    @Override
+    public String getName() 
+    {
+        return store.isFlyweight() ? store.studentField(ordinal, StudentRecords.NAME) : name;
+    }
+
+    @Override
+    public String getEmail() 
+    {
+        return store.isFlyweight() ? store.studentField(ordinal, StudentRecords.EMAIL) : email;
+    }
+
+    public int getOrdinal() 
+    {
+        return ordinal;
+    }
+
+    public EnrollmentStore getStore() 
+    {
+        return store;
+    }
+
+    // Copy of the course list, safe to iterate while other threads enroll
+    public Set<Course> getCourses() 
+    {
+        synchronized(lock()) 
+        {
+            Set<Course> copy = new LinkedHashSet<>();
+            courses().forEach(course -> copy.add(store.course(course)));
+            return Collections.unmodifiableSet(copy);
+        }
+    }
+
+    public int getCourseCount() 
     {
-        return courses;
+        synchronized(lock()) 
+        {
+            return courses().size();
+        }
     }
 
     // Setters
+    // The courses the student is enrolled in re-key their roster indexes under the new name
     public void setName(String name) 
     {
-        this.name = name; // Update inherited name
+        int stamp;
+        synchronized(lock()) 
+        {
+            if(store.isFlyweight()) 
+            {
+                store.updateStudentField(ordinal, StudentRecords.NAME, name);
+            }
+            else 
+            {
+                this.name = name; // Update inherited name
+            }
+            stamp = store.studentRenamed(ordinal);
+        }
+        RosterIndex.Name renamed = new RosterIndex.Name(name, stamp);
+        for(Course course : getCourses()) 
+        {
+            course.studentRenamed(this, renamed);
+        }
     }
 
     public void setEmail(String email) 
     {
-        this.email = email; // Update inherited email
+        if(store.isFlyweight()) 
+        {
+            store.updateStudentField(ordinal, StudentRecords.EMAIL, email);
+        }
+        else 
+        {
+            this.email = email; // Update inherited email
+        }
+    }
+
+    // Enroll in a course; false once the student has been retired
+    public boolean enroll(Course course) 
+    {
+        store.checkSameStore(course.getStore());
+        synchronized(lock()) 
+        {
+            if(store.isRetired(ordinal)) 
+            {
+                return false;
+            }
+            store.coursesForUpdate(ordinal).add(course.getOrdinal());
+        }
+        course.studentEnrolled(this);
+        return true;
     }
 
-    // Enroll in a course
-    public void enroll(Course course) 
+    // Mark the student deleted so no further enrollment sticks; returns the courses to unlink it from
+    public Set<Course> retire() 
     {
-        if (!courses.contains(course)) 
+        synchronized(lock()) 
         {
-            courses.add(course);
+            Set<Course> courses = getCourses();
+            store.retireStudent(ordinal);
+            return courses;
         }
     }
 
@@ -56,18 +146,26 @@ public class Student extends Person
     // Unenroll from a course
     public void unenroll(Course course) 
     {
-        courses.remove(course);
+        synchronized(lock()) 
+        {
+            courses().remove(course.getOrdinal());
+        }
     }
 
     // Check if the student is enrolled in a course
     public boolean isEnrolled(Course course) 
     {
-        return courses.contains(course);
+        synchronized(lock()) 
+        {
+            return course.getStore() == store && courses().contains(course.getOrdinal());
+        }
     }
 
     // Display the student's enrolled courses
     public void displayEnrolledCourses() 
     {
+        String name = getName();
+        Set<Course> courses = getCourses();
         if (courses.isEmpty()) 
         {
             System.out.println("No courses enrolled for student: " + name);
@@ -86,15 +184,16 @@ public class Student extends Person
     public String generateSummary() 
     {
         StringBuilder summary = new StringBuilder();
-        summary.append("Student ID: ").append(studentId).append("\n");
-        summary.append("Name: ").append(name).append("\n");
-        summary.append("Email: ").append(email).append("\n");
+        summary.append("Student ID: ").append(getStudentId()).append("\n");
+        summary.append("Name: ").append(getName()).append("\n");
+        summary.append("Email: ").append(getEmail()).append("\n");
         summary.append("Enrolled Courses: \n");
 
+        Set<Course> courses = getCourses();
         if (courses.isEmpty()) 
         {
             summary.append("None");
-        } 
+        }
         else 
         {
             for (Course course : courses) 
@@ -109,6 +208,37 @@ public class Student extends Person
     // Remove a course from the student's list
     public void removeCourse(Course oldCourse) 
     {
-        courses.remove(oldCourse);
+        unenroll(oldCourse);
+    }
+
+    private OrdinalSet courses() 
+    {
+        return store.coursesOf(ordinal);
+    }
+
+    private Object lock() 
+    {
+        return store.studentLock(ordinal);
+    }
+
+    // Students are identified by their student ID
+    @Override
+    public boolean equals(Object other) 
+    {
+        if (this == other) 
+        {
+            return true;
+        }
+        if (!(other instanceof Student)) 
+        {
+            return false;
+        }
+        return getStudentId().equals(((Student) other).getStudentId());
+    }
+
+    @Override
+    public int hashCode() 
+    {
+        return getStudentId().hashCode();
     }
 }
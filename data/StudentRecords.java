@@ -0,0 +1,250 @@
+package data;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+// Student records behind flyweight Students, by ordinal, plus an open-addressing index (linear
+// probing, backward-shift deletion) from student ID to ordinal that is read optimistically. The index
+// keeps only primitive arrays; subclasses decide where the records themselves live.
+abstract class StudentRecords 
+{
+    static final int ID = 0;
+    static final int NAME = 1;
+    static final int EMAIL = 2;
+
+    // Index: slot holds ordinal + 1, 0 when empty; hashes holds each indexed ordinal's ID hash
+    private final StampedLock indexLock = new StampedLock();
+    private int[] table = new int[64];
+    private int[] hashes = new int[64];
+    private int indexed;
+
+    // ------------------- Records -------------------
+
+    // Record a new student; callers hold the store lock and add ordinals in order
+    abstract void add(int ordinal, String studentId, String name, String email);
+
+    // Replace one field; callers hold the store lock
+    abstract void update(int ordinal, int field, String value);
+
+    abstract String get(int ordinal, int field);
+
+    // Whether the ordinal's ID is the key, UTF-8 encoded. Called under an optimistic read, so it must
+    // tolerate ordinals that are not fully published yet, and return false for them
+    abstract boolean idEquals(int ordinal, byte[] key);
+
+    // Bytes holding records outside the index; callers hold the store lock
+    abstract long recordBytes();
+
+    // Release files or memory held for the records
+    void close() 
+    {
+    }
+
+    // ------------------- ID Index -------------------
+
+    // Ordinal indexed under the ID, or -1
+    int find(String studentId) 
+    {
+        byte[] key = studentId.getBytes(StandardCharsets.UTF_8);
+        int hash = studentId.hashCode();
+        long stamp = indexLock.tryOptimisticRead();
+        int ordinal = probe(key, hash);
+        if(!indexLock.validate(stamp)) 
+        {
+            stamp = indexLock.readLock();
+            try 
+            {
+                ordinal = probe(key, hash);
+            }
+            finally 
+            {
+                indexLock.unlockRead(stamp);
+            }
+        }
+        return ordinal;
+    }
+
+    // Index the ordinal under the ID; returns the ordinal it replaced, or -1
+    int put(String studentId, int ordinal, boolean onlyIfAbsent) 
+    {
+        byte[] key = studentId.getBytes(StandardCharsets.UTF_8);
+        int hash = studentId.hashCode();
+        long stamp = indexLock.writeLock();
+        try 
+        {
+            int slot = slotOf(key, hash);
+            if(slot >= 0) 
+            {
+                int previous = table[slot] - 1;
+                if(!onlyIfAbsent) 
+                {
+                    table[slot] = ordinal + 1;
+                    setHash(ordinal, hash);
+                }
+                return previous;
+            }
+            setHash(ordinal, hash);
+            if(++indexed * 2 > table.length) 
+            {
+                rebuild(table.length * 2);
+            }
+            insert(ordinal);
+            return -1;
+        }
+        finally 
+        {
+            indexLock.unlockWrite(stamp);
+        }
+    }
+
+    // Drop the ID from the index; returns the ordinal it mapped to, or -1
+    int remove(String studentId) 
+    {
+        byte[] key = studentId.getBytes(StandardCharsets.UTF_8);
+        long stamp = indexLock.writeLock();
+        try 
+        {
+            int slot = slotOf(key, studentId.hashCode());
+            if(slot < 0) 
+            {
+                return -1;
+            }
+            int ordinal = table[slot] - 1;
+            int mask = table.length - 1;
+            int gap = slot;
+            for(int next = (gap + 1) & mask; table[next] != 0; next = (next + 1) & mask) 
+            {
+                int home = spread(hashes[table[next] - 1]) & mask;
+                // Move the entry back if its home does not lie cyclically in (gap, next]
+                if(((next - home) & mask) >= ((next - gap) & mask)) 
+                {
+                    table[gap] = table[next];
+                    gap = next;
+                }
+            }
+            table[gap] = 0;
+            indexed--;
+            return ordinal;
+        }
+        finally 
+        {
+            indexLock.unlockWrite(stamp);
+        }
+    }
+
+    int size() 
+    {
+        long stamp = indexLock.readLock();
+        try 
+        {
+            return indexed;
+        }
+        finally 
+        {
+            indexLock.unlockRead(stamp);
+        }
+    }
+
+    // Every indexed ordinal, in table order
+    int[] indexedOrdinals() 
+    {
+        long stamp = indexLock.readLock();
+        try 
+        {
+            int[] ordinals = new int[indexed];
+            int n = 0;
+            for(int entry : table) 
+            {
+                if(entry != 0) 
+                {
+                    ordinals[n++] = entry - 1;
+                }
+            }
+            return ordinals;
+        }
+        finally 
+        {
+            indexLock.unlockRead(stamp);
+        }
+    }
+
+    // Lookup that tolerates a concurrent writer: it reads each array once, stays in bounds and gives
+    // up after one pass, and the caller retries under the read lock if the optimistic stamp failed
+    private int probe(byte[] key, int hash) 
+    {
+        int[] table = this.table;
+        int[] hashes = this.hashes;
+        int mask = table.length - 1;
+        int slot = spread(hash) & mask;
+        for(int n = 0; n < table.length; n++) 
+        {
+            int entry = table[slot];
+            if(entry == 0) 
+            {
+                return -1;
+            }
+            int ordinal = entry - 1;
+            if(ordinal < hashes.length && hashes[ordinal] == hash && idEquals(ordinal, key)) 
+            {
+                return ordinal;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    // Slot of the ID under the write lock, or -1
+    private int slotOf(byte[] key, int hash) 
+    {
+        int mask = table.length - 1;
+        for(int slot = spread(hash) & mask; table[slot] != 0; slot = (slot + 1) & mask) 
+        {
+            int ordinal = table[slot] - 1;
+            if(hashes[ordinal] == hash && idEquals(ordinal, key)) 
+            {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private void setHash(int ordinal, int hash) 
+    {
+        if(ordinal >= hashes.length) 
+        {
+            hashes = Arrays.copyOf(hashes, Math.max(ordinal + 1, hashes.length * 2));
+        }
+        hashes[ordinal] = hash;
+    }
+
+    private void insert(int ordinal) 
+    {
+        int mask = table.length - 1;
+        int slot = spread(hashes[ordinal]) & mask;
+        while(table[slot] != 0) 
+        {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = ordinal + 1;
+    }
+
+    private void rebuild(int capacity) 
+    {
+        int[] old = table;
+        table = new int[capacity];
+        for(int entry : old) 
+        {
+            if(entry != 0) 
+            {
+                insert(entry - 1);
+            }
+        }
+    }
+
+    private static int spread(int hash) 
+    {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
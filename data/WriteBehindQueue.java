@@ -0,0 +1,254 @@
+package data;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import monitoring.Metrics;
+
+// Bounded queue of mutations drained by one background writer. Callers return as soon as the
+// mutation is queued and block only while the queue is full. The writer takes everything queued,
+// merges consecutive appends to the same target into one group commit, and runs rewrites in order.
+// The first write that fails is kept, and every later durability barrier reports it.
+class WriteBehindQueue 
+{
+    // Where the writer sends merged appends; a null file means the mutation log
+    interface Sink 
+    {
+        void appendAll(File file, List<String> lines) throws IOException;
+
+        void commit() throws IOException;
+    }
+
+    // A rewrite run on the writer thread
+    interface Task 
+    {
+        void run() throws IOException;
+    }
+
+    private static final int MAX_BATCH = 4096;
+
+    private static class Mutation 
+    {
+        final File file;
+        final List<String> lines;
+        final Task task;
+
+        Mutation(File file, List<String> lines, Task task) 
+        {
+            this.file = file;
+            this.lines = lines;
+            this.task = task;
+        }
+    }
+
+    private static final Mutation STOP = new Mutation(null, null, null);
+
+    private final BlockingQueue<Mutation> queue;
+    private final Sink sink;
+    private final Thread writer;
+    private final AtomicLong enqueued = new AtomicLong();
+    private final Object durableLock = new Object();
+    private long durable; // guarded by durableLock
+    private IOException failure; // First failed write or commit; guarded by durableLock
+    private volatile boolean closed;
+
+    WriteBehindQueue(int capacity, Sink sink) 
+    {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.sink = sink;
+        this.writer = new Thread(this::drain, "write-behind");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    void append(File file, String line) 
+    {
+        List<String> lines = new ArrayList<>(1);
+        lines.add(line);
+        put(new Mutation(file, lines, null));
+    }
+
+    void appendAll(File file, List<String> lines) 
+    {
+        put(new Mutation(file, new ArrayList<>(lines), null));
+    }
+
+    // Run a task on the writer, after every mutation queued before it
+    void submit(Task task) 
+    {
+        put(new Mutation(null, null, task));
+    }
+
+    // Block until every mutation queued before this call has been written and committed; throws if
+    // any queued write has failed since the queue was opened, as the data it held is not on disk
+    void awaitDurable() throws InterruptedException, IOException 
+    {
+        long target = enqueued.get();
+        synchronized(durableLock) 
+        {
+            while(durable < target && writer.isAlive()) 
+            {
+                durableLock.wait(100);
+            }
+            if(failure != null) 
+            {
+                throw new IOException("Queued writes failed: " + failure.getMessage(), failure);
+            }
+            if(durable < target) 
+            {
+                throw new IOException("Write-behind writer stopped with writes still queued");
+            }
+        }
+    }
+
+    // Stop accepting mutations, drain what is queued and wait for the writer to finish
+    void close() throws InterruptedException 
+    {
+        if(closed) 
+        {
+            return;
+        }
+        closed = true;
+        putUninterruptibly(STOP);
+        writer.join();
+    }
+
+    // Counted before it is queued, so a barrier taken after put() returns always covers it
+    private void put(Mutation mutation) 
+    {
+        if(closed) 
+        {
+            throw new IllegalStateException("Write-behind queue is closed");
+        }
+        enqueued.incrementAndGet();
+        if(!queue.offer(mutation)) 
+        {
+            Metrics.increment("writeBehindStalls");
+            putUninterruptibly(mutation);
+        }
+    }
+
+    // Backpressure: wait for room, keeping the interrupt for the caller
+    private void putUninterruptibly(Mutation mutation) 
+    {
+        boolean interrupted = false;
+        while(true) 
+        {
+            try 
+            {
+                queue.put(mutation);
+                break;
+            } 
+            catch(InterruptedException e) 
+            {
+                interrupted = true;
+            }
+        }
+        if(interrupted) 
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ------------------- Writer Thread -------------------
+
+    private void drain() 
+    {
+        List<Mutation> batch = new ArrayList<>();
+        boolean stopping = false;
+        while(!stopping) 
+        {
+            try 
+            {
+                batch.add(queue.take());
+            } 
+            catch(InterruptedException e) 
+            {
+                continue; // Only close() stops the writer, so nothing queued is lost
+            }
+            queue.drainTo(batch, MAX_BATCH);
+
+            long count = 0;
+            Map<File, List<String>> appends = new LinkedHashMap<>();
+            for(Mutation mutation : batch) 
+            {
+                if(mutation == STOP) 
+                {
+                    stopping = true;
+                    continue;
+                }
+                count++;
+                if(mutation.task == null) 
+                {
+                    appends.computeIfAbsent(mutation.file, file -> new ArrayList<>()).addAll(mutation.lines);
+                    continue;
+                }
+                writeAppends(appends); // Earlier appends land before a rewrite reads the file
+                try 
+                {
+                    mutation.task.run();
+                } 
+                catch(IOException e) 
+                {
+                    fail("Error in write-behind task: ", e);
+                }
+                catch(RuntimeException e) 
+                {
+                    fail("Error in write-behind task: ", new IOException(e.toString(), e));
+                }
+            }
+            writeAppends(appends);
+            try 
+            {
+                sink.commit();
+            } 
+            catch(IOException e) 
+            {
+                fail("Error committing queued writes: ", e);
+            }
+            Metrics.add("writeBehindWrites", count);
+            batch.clear();
+
+            synchronized(durableLock) 
+            {
+                durable += count;
+                durableLock.notifyAll();
+            }
+        }
+    }
+
+    private void writeAppends(Map<File, List<String>> appends) 
+    {
+        for(Map.Entry<File, List<String>> entry : appends.entrySet()) 
+        {
+            try 
+            {
+                sink.appendAll(entry.getKey(), entry.getValue());
+            } 
+            catch(IOException e) 
+            {
+                String target = entry.getKey() == null ? "mutation log" : entry.getKey().getName();
+                fail("Error writing queued records to " + target + ": ", e);
+            }
+        }
+        appends.clear();
+    }
+
+    private void fail(String message, IOException e) 
+    {
+        System.err.println(message + e.getMessage());
+        synchronized(durableLock) 
+        {
+            if(failure == null) 
+            {
+                failure = e;
+            }
+        }
+    }
+}
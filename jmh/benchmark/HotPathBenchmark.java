@@ -0,0 +1,195 @@
+package benchmark;
+
+import business.EnrollmentManager;
+import data.CsvParser;
+import data.DataManager;
+import data.StorageConfig;
+import org.openjdk.jmh.annotations.*;
+import presentation.Reports;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+// DataManager and EnrollmentManager hot paths at several dataset sizes. Storage settings come from
+// the usual -Denrollment.* properties handed to the forked JVM, so the same run can be repeated
+// against log mode, snapshots or another flush policy:
+//
+//   java -jar target/benchmarks.jar HotPathBenchmark -rf json -rff benchmark-results.json
+//   java -jar target/benchmarks.jar HotPathBenchmark -p enrollments=100000 -jvmArgsAppend -Denrollment.persistence=log
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HotPathBenchmark 
+{
+    private static final int PER_STUDENT = 10;
+    private static final int BATCH = 100;  // Operations per invocation of enroll and updateCourseEnrollment
+    private static final int DELETES = 10; // In CSV mode every delete rewrites enrollments.csv
+
+    @Param({"1000", "100000", "1000000"})
+    public int enrollments;
+
+    private File directory;
+    private StorageConfig config;
+    private int courseCount;
+    private EnrollmentManager manager;
+    private Reports reports;
+    private int nextCourse;
+
+    // Fresh benchmark courses for every invocation of a mutation, so every operation takes the
+    // success path: an empty one to enroll into and one holding the students to move or drop
+    @State(Scope.Benchmark)
+    public static class Courses 
+    {
+        private int invocation;
+        String from;
+        String to;
+
+        @Setup(Level.Invocation)
+        public void prepare(HotPathBenchmark benchmark) 
+        {
+            invocation++;
+            from = "BENCH-" + invocation + "-FROM";
+            to = "BENCH-" + invocation + "-TO";
+            benchmark.manager.addCourse(from, "Hot path bench", BATCH);
+            benchmark.manager.addCourse(to, "Hot path bench", BATCH);
+            benchmark.manager.enrollBatch(IntStream.range(0, BATCH).mapToObj(i -> new String[] {DatasetGenerator.studentId(i), from}));
+        }
+    }
+
+    // The manager a startup invocation built, shut down untimed after it
+    @State(Scope.Benchmark)
+    public static class Started 
+    {
+        EnrollmentManager manager;
+
+        @TearDown(Level.Invocation)
+        public void shutdown() 
+        {
+            manager.shutdown();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException 
+    {
+        directory = Files.createTempDirectory("enrollment-bench").toFile();
+        DatasetGenerator.generate(directory, enrollments, PER_STUDENT);
+        config = StorageConfig.fromSystemProperties();
+        config.setDataDirectory(directory);
+        courseCount = Math.max(PER_STUDENT, Math.max(1, enrollments / PER_STUDENT) / 20);
+        manager = new EnrollmentManager(config);
+        // Roster display and the summary report print every line; keep that out of the console
+        reports = new Reports(manager, OutputStream.nullOutputStream());
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException 
+    {
+        manager.shutdown();
+        try (Stream<Path> paths = Files.walk(directory.toPath())) 
+        {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public int csvParse() throws IOException 
+    {
+        int[] records = new int[1];
+        try (Reader reader = Files.newBufferedReader(new File(directory, "enrollments.csv").toPath(), StandardCharsets.UTF_8)) 
+        {
+            new CsvParser().parse(reader, record -> records[0]++);
+        }
+        return records[0];
+    }
+
+    @Benchmark
+    public List<String[]> loadEnrollments() 
+    {
+        DataManager dataManager = new DataManager(config);
+        try 
+        {
+            return dataManager.loadEnrollments();
+        } 
+        finally 
+        {
+            dataManager.close();
+        }
+    }
+
+    @Benchmark
+    public EnrollmentManager startup(Started started) 
+    {
+        started.manager = new EnrollmentManager(config);
+        return started.manager;
+    }
+
+    @Benchmark
+    public void displayStudentsInCourse() 
+    {
+        reports.displayStudentsInCourse(DatasetGenerator.courseId(nextCourse++ % courseCount));
+    }
+
+    @Benchmark
+    public void generateSummaryReport() 
+    {
+        reports.displaySummaryReport();
+    }
+
+    // Mutation benchmarks time one batch per invocation, reported per operation
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OperationsPerInvocation(BATCH)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 20)
+    public int enroll(Courses courses) 
+    {
+        int enrolled = 0;
+        for(int i = 0; i < BATCH; i++) 
+        {
+            enrolled += manager.enroll(DatasetGenerator.studentId(i), courses.to).isSuccess() ? 1 : 0;
+        }
+        return enrolled;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OperationsPerInvocation(BATCH)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 20)
+    public int updateCourseEnrollment(Courses courses) 
+    {
+        int moved = 0;
+        for(int i = 0; i < BATCH; i++) 
+        {
+            moved += manager.updateCourseEnrollment(DatasetGenerator.studentId(i), courses.from, courses.to).isSuccess() ? 1 : 0;
+        }
+        return moved;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OperationsPerInvocation(DELETES)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 20)
+    public int deleteEnrollment(Courses courses) 
+    {
+        int deleted = 0;
+        for(int i = 0; i < DELETES; i++) 
+        {
+            deleted += manager.deleteCourseEnrollment(DatasetGenerator.studentId(i), courses.from).isSuccess() ? 1 : 0;
+        }
+        return deleted;
+    }
+}
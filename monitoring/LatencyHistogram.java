@@ -0,0 +1,113 @@
+package monitoring;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Log-linear histogram of nanosecond latencies in the style of HdrHistogram: values below 128 are
+// counted exactly, larger ones in 64 linear sub-buckets per power of two (under 1.6% error).
+// Recording is one array increment and never allocates or locks.
+public class LatencyHistogram 
+{
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS + SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public void record(long nanos) 
+    {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(indexOf(value));
+        count.increment();
+        total.add(value);
+        max.accumulate(value);
+    }
+
+    // Getters
+    public long getCount() 
+    {
+        return count.sum();
+    }
+
+    public long getTotalNanos() 
+    {
+        return total.sum();
+    }
+
+    public long getMaxNanos() 
+    {
+        return max.get();
+    }
+
+    public double getMeanNanos() 
+    {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) total.sum() / n;
+    }
+
+    // Latency at or below which the given percentage of recorded values fall
+    public long getPercentileNanos(double percentile) 
+    {
+        long[] snapshot = new long[BUCKETS];
+        long recorded = 0;
+        for(int i = 0; i < BUCKETS; i++) 
+        {
+            snapshot[i] = counts.get(i);
+            recorded += snapshot[i];
+        }
+        if(recorded == 0) 
+        {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * recorded));
+        long seen = 0;
+        for(int i = 0; i < BUCKETS; i++) 
+        {
+            seen += snapshot[i];
+            if(seen >= target) 
+            {
+                return Math.min(valueOf(i), getMaxNanos());
+            }
+        }
+        return getMaxNanos();
+    }
+
+    public void reset() 
+    {
+        for(int i = 0; i < BUCKETS; i++) 
+        {
+            counts.set(i, 0);
+        }
+        count.reset();
+        total.reset();
+        max.reset();
+    }
+
+    // ------------------- Bucket Arithmetic -------------------
+
+    static int indexOf(long value) 
+    {
+        if(value < 2 * SUB_BUCKETS) 
+        {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    // Midpoint of the values that share a bucket
+    static long valueOf(int index) 
+    {
+        if(index < 2 * SUB_BUCKETS) 
+        {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long lowest = (long) (index % SUB_BUCKETS + SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) / 2;
+    }
+}
@@ -0,0 +1,171 @@
+package monitoring;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+// Process-wide latency histograms and counters, switched on with -Denrollment.metrics=true.
+// ENABLED is a static final constant, so when it is false the JIT folds every call site away
+// and the hot paths pay nothing beyond the call itself.
+//
+//   long start = Metrics.start();
+//   ... operation ...
+//   Metrics.record("enroll", start);
+public final class Metrics 
+{
+    public static final boolean ENABLED = Boolean.getBoolean("enrollment.metrics");
+    public static final String OBJECT_NAME = "enrollment:type=Metrics";
+
+    // Counter names
+    public static final String BYTES_READ = "bytesRead";
+    public static final String BYTES_WRITTEN = "bytesWritten";
+    public static final String FILE_REWRITES = "fileRewrites";
+    public static final String FILES_RESHARDED = "filesResharded";
+    public static final String LOG_RECORDS_REPLAYED = "logRecordsReplayed";
+    public static final String STUDENT_CACHE_MISSES = "studentCacheMisses";
+
+    private static final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private static final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    static 
+    {
+        if(ENABLED) 
+        {
+            registerMBean();
+            long dumpSeconds = Long.getLong("enrollment.metrics.dumpSeconds", 0);
+            if(dumpSeconds > 0) 
+            {
+                startDump(dumpSeconds, System.err);
+            }
+        }
+    }
+
+    private Metrics() 
+    {
+    }
+
+    // Timestamp for a later record(); 0 when metrics are off
+    public static long start() 
+    {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    // Record the time since start() against the operation
+    public static void record(String operation, long start) 
+    {
+        if(ENABLED) 
+        {
+            histogram(operation).record(System.nanoTime() - start);
+        }
+    }
+
+    public static void increment(String counter) 
+    {
+        add(counter, 1);
+    }
+
+    public static void add(String counter, long amount) 
+    {
+        if(ENABLED) 
+        {
+            counters.computeIfAbsent(counter, name -> new LongAdder()).add(amount);
+        }
+    }
+
+    public static LatencyHistogram histogram(String operation) 
+    {
+        return histograms.computeIfAbsent(operation, name -> new LatencyHistogram());
+    }
+
+    public static long getCounter(String counter) 
+    {
+        LongAdder adder = counters.get(counter);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    // Sorted copies for reporting
+    public static Map<String, LatencyHistogram> getHistograms() 
+    {
+        return new TreeMap<>(histograms);
+    }
+
+    public static Map<String, Long> getCounters() 
+    {
+        Map<String, Long> values = new TreeMap<>();
+        counters.forEach((name, adder) -> values.put(name, adder.sum()));
+        return values;
+    }
+
+    public static void reset() 
+    {
+        histograms.values().forEach(LatencyHistogram::reset);
+        counters.values().forEach(LongAdder::reset);
+    }
+
+    // ------------------- Reporting -------------------
+
+    // One line per operation (count, mean and percentiles in microseconds), then the counters
+    public static void report(Appendable out) throws IOException 
+    {
+        out.append(String.format("%-26s %10s %10s %10s %10s %10s %10s%n", "operation", "count", "mean us", "p50 us", "p99 us", "p99.9 us", "max us"));
+        for(Map.Entry<String, LatencyHistogram> entry : getHistograms().entrySet()) 
+        {
+            LatencyHistogram histogram = entry.getValue();
+            out.append(String.format("%-26s %10d %10.1f %10.1f %10.1f %10.1f %10.1f%n", entry.getKey(), histogram.getCount(),
+                    histogram.getMeanNanos() / 1e3, histogram.getPercentileNanos(50) / 1e3, histogram.getPercentileNanos(99) / 1e3,
+                    histogram.getPercentileNanos(99.9) / 1e3, histogram.getMaxNanos() / 1e3));
+        }
+        for(Map.Entry<String, Long> entry : getCounters().entrySet()) 
+        {
+            out.append(String.format("%-26s %10d%n", entry.getKey(), entry.getValue()));
+        }
+    }
+
+    public static String report() 
+    {
+        StringBuilder text = new StringBuilder();
+        try 
+        {
+            report(text);
+        } 
+        catch(IOException e) 
+        {
+            // StringBuilder does not throw
+        }
+        return text.toString();
+    }
+
+    // Print the report every interval from a daemon thread
+    public static ScheduledExecutorService startDump(long intervalSeconds, PrintStream out) 
+    {
+        ScheduledExecutorService dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(() -> out.print("----- Enrollment Metrics -----" + System.lineSeparator() + report()),
+                intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        return dumper;
+    }
+
+    private static void registerMBean() 
+    {
+        try 
+        {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsBean(), new ObjectName(OBJECT_NAME));
+        } 
+        catch(JMException e) 
+        {
+            System.err.println("Error registering metrics MBean: " + e.getMessage());
+        }
+    }
+}
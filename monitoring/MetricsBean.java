@@ -0,0 +1,59 @@
+package monitoring;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.ToDoubleFunction;
+
+class MetricsBean implements MetricsMXBean 
+{
+    @Override
+    public Map<String, Long> getOperationCounts() 
+    {
+        Map<String, Long> values = new TreeMap<>();
+        Metrics.getHistograms().forEach((name, histogram) -> values.put(name, histogram.getCount()));
+        return values;
+    }
+
+    @Override
+    public Map<String, Double> getMeanMicros() 
+    {
+        return micros(LatencyHistogram::getMeanNanos);
+    }
+
+    @Override
+    public Map<String, Double> getP99Micros() 
+    {
+        return micros(histogram -> histogram.getPercentileNanos(99));
+    }
+
+    @Override
+    public Map<String, Double> getMaxMicros() 
+    {
+        return micros(LatencyHistogram::getMaxNanos);
+    }
+
+    @Override
+    public Map<String, Long> getCounters() 
+    {
+        return Metrics.getCounters();
+    }
+
+    @Override
+    public String getReport() 
+    {
+        return Metrics.report();
+    }
+
+    @Override
+    public void reset() 
+    {
+        Metrics.reset();
+    }
+
+    private static Map<String, Double> micros(ToDoubleFunction<LatencyHistogram> nanos) 
+    {
+        Map<String, Double> values = new TreeMap<>();
+        Metrics.getHistograms().forEach((name, histogram) -> values.put(name, nanos.applyAsDouble(histogram) / 1e3));
+        return values;
+    }
+}
@@ -0,0 +1,21 @@
+package monitoring;
+
+import java.util.Map;
+
+// JMX view of Metrics, registered as enrollment:type=Metrics; latencies are in microseconds
+public interface MetricsMXBean 
+{
+    Map<String, Long> getOperationCounts();
+
+    Map<String, Double> getMeanMicros();
+
+    Map<String, Double> getP99Micros();
+
+    Map<String, Double> getMaxMicros();
+
+    Map<String, Long> getCounters();
+
+    String getReport();
+
+    void reset();
+}
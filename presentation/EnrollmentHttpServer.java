@@ -0,0 +1,554 @@
+package presentation;
+
+import business.EnrollmentManager;
+import business.EnrollmentResult;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// JSON endpoints for the enrollment operations, served on localhost with one thread per request.
+// Parameters come from the query string, a form body or a flat JSON object body.
+//
+//   POST   /students                 studentId, name, email
+//   GET    /students/{id}/courses
+//   POST   /courses                  courseId, name, capacity
+//   GET    /courses/{id}/students
+//   POST   /enrollments              studentId, courseId
+//   DELETE /enrollments              studentId, courseId
+//   POST   /transfers                studentId, oldCourseId, newCourseId
+//   GET    /summary
+//   GET    /metrics
+public class EnrollmentHttpServer 
+{
+    private static final int DEFAULT_PORT = 8080;
+
+    private final EnrollmentManager manager;
+    private final Reports reports;
+    private final Map<String, EndpointStats> stats = new LinkedHashMap<>();
+    private final long startedAt = System.nanoTime();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public EnrollmentHttpServer(EnrollmentManager manager) 
+    {
+        this.manager = manager;
+        this.reports = new Reports(manager, System.out);
+    }
+
+    public static void main(String[] args) throws IOException 
+    {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : Integer.getInteger("enrollment.http.port", DEFAULT_PORT);
+        EnrollmentManager manager = new EnrollmentManager();
+        EnrollmentHttpServer http = new EnrollmentHttpServer(manager);
+        http.start(port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            http.stop();
+            manager.shutdown();
+        }));
+        System.out.println("Listening on http://127.0.0.1:" + http.getPort() + "/");
+    }
+
+    public void start(int port) throws IOException 
+    {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        executor = newPerRequestExecutor();
+        server.setExecutor(executor);
+        route("/students", this::handleStudents);
+        route("/courses", this::handleCourses);
+        route("/enrollments", this::handleEnrollments);
+        route("/transfers", this::handleTransfers);
+        route("/summary", this::handleSummary);
+        route("/metrics", this::handleMetrics);
+        server.start();
+    }
+
+    // Stop accepting requests and wait briefly for the ones in flight
+    public void stop() 
+    {
+        server.stop(1);
+        executor.shutdown();
+        try 
+        {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        catch(InterruptedException e) 
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getPort() 
+    {
+        return server.getAddress().getPort();
+    }
+
+    // A virtual thread per request where the runtime has them (JDK 21+), otherwise a cached pool
+    private static ExecutorService newPerRequestExecutor() 
+    {
+        try 
+        {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        }
+        catch(ReflectiveOperationException e) 
+        {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "http-request");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    // ------------------- Endpoints -------------------
+
+    private interface Endpoint 
+    {
+        Response handle(HttpExchange exchange, String[] path, Map<String, String> params) throws IOException;
+    }
+
+    private void route(String context, Endpoint endpoint) 
+    {
+        EndpointStats endpointStats = new EndpointStats();
+        stats.put(context, endpointStats);
+        server.createContext(context, new Handler(context, endpoint, endpointStats));
+    }
+
+    private Response handleStudents(HttpExchange exchange, String[] path, Map<String, String> params) throws IOException 
+    {
+        String method = exchange.getRequestMethod();
+        if(path.length == 1 && method.equals("POST")) 
+        {
+            String email = params.get("email");
+            if(email != null && !Main.isValidEmail(email)) 
+            {
+                return Response.error(400, "Invalid email format. Email must end with @anits.edu.in.");
+            }
+            return result(manager.addStudent(required(params, "studentId"), required(params, "name"), required(params, "email")));
+        }
+        if(path.length == 3 && path[2].equals("courses") && method.equals("GET")) 
+        {
+            StringBuilder json = new StringBuilder();
+            return report(json, reports.writeCoursesOfStudent(path[1], json, ReportFormat.JSON), EnrollmentResult.INVALID_STUDENT);
+        }
+        return Response.notAllowed(method, path);
+    }
+
+    private Response handleCourses(HttpExchange exchange, String[] path, Map<String, String> params) throws IOException 
+    {
+        String method = exchange.getRequestMethod();
+        if(path.length == 1 && method.equals("POST")) 
+        {
+            int capacity;
+            try 
+            {
+                capacity = Integer.parseInt(required(params, "capacity"));
+            }
+            catch(NumberFormatException e) 
+            {
+                return Response.error(400, "Capacity must be a whole number.");
+            }
+            if(capacity <= 0) 
+            {
+                return Response.error(400, "Capacity must be greater than zero.");
+            }
+            return result(manager.addCourse(required(params, "courseId"), required(params, "name"), capacity));
+        }
+        if(path.length == 3 && path[2].equals("students") && method.equals("GET")) 
+        {
+            StringBuilder json = new StringBuilder();
+            return report(json, reports.writeStudentsInCourse(path[1], json, ReportFormat.JSON), EnrollmentResult.INVALID_COURSE);
+        }
+        return Response.notAllowed(method, path);
+    }
+
+    private Response handleEnrollments(HttpExchange exchange, String[] path, Map<String, String> params) 
+    {
+        String method = exchange.getRequestMethod();
+        if(path.length == 1 && method.equals("POST")) 
+        {
+            return result(manager.enroll(required(params, "studentId"), required(params, "courseId")));
+        }
+        if(path.length == 1 && method.equals("DELETE")) 
+        {
+            return result(manager.deleteCourseEnrollment(required(params, "studentId"), required(params, "courseId")));
+        }
+        return Response.notAllowed(method, path);
+    }
+
+    private Response handleTransfers(HttpExchange exchange, String[] path, Map<String, String> params) 
+    {
+        String method = exchange.getRequestMethod();
+        if(path.length == 1 && method.equals("POST")) 
+        {
+            return result(manager.updateCourseEnrollment(required(params, "studentId"), required(params, "oldCourseId"), required(params, "newCourseId")));
+        }
+        return Response.notAllowed(method, path);
+    }
+
+    private Response handleSummary(HttpExchange exchange, String[] path, Map<String, String> params) throws IOException 
+    {
+        if(path.length != 1 || !exchange.getRequestMethod().equals("GET")) 
+        {
+            return Response.notAllowed(exchange.getRequestMethod(), path);
+        }
+        StringBuilder json = new StringBuilder();
+        reports.writeSummaryReport(json, ReportFormat.JSON);
+        return new Response(200, json.toString());
+    }
+
+    private Response handleMetrics(HttpExchange exchange, String[] path, Map<String, String> params) 
+    {
+        if(path.length != 1 || !exchange.getRequestMethod().equals("GET")) 
+        {
+            return Response.notAllowed(exchange.getRequestMethod(), path);
+        }
+        double uptimeSeconds = (System.nanoTime() - startedAt) / 1e9;
+        long total = 0;
+        StringBuilder endpoints = new StringBuilder();
+        String separator = "";
+        for(Map.Entry<String, EndpointStats> entry : stats.entrySet()) 
+        {
+            EndpointStats endpoint = entry.getValue();
+            long requests = endpoint.requests.sum();
+            total += requests;
+            endpoints.append(separator).append(ReportWriter.quoteJson(entry.getKey())).append(":{")
+                .append("\"requests\":").append(requests)
+                .append(",\"errors\":").append(endpoint.errors.sum())
+                .append(",\"meanMicros\":").append(requests == 0 ? 0 : endpoint.totalNanos.sum() / requests / 1000)
+                .append(",\"maxMicros\":").append(endpoint.maxNanos.get() / 1000).append('}');
+            separator = ",";
+        }
+        String json = String.format("{\"uptimeSeconds\":%.1f,\"requests\":%d,\"requestsPerSecond\":%.1f,\"endpoints\":{%s}}",
+            uptimeSeconds, total, total / Math.max(uptimeSeconds, 1e-3), endpoints);
+        return new Response(200, json);
+    }
+
+    // A JSON report rendered by the manager, or the error for its missing subject
+    private static Response report(StringBuilder json, boolean found, EnrollmentResult missing) 
+    {
+        return found ? new Response(200, json.toString()) : result(missing);
+    }
+
+    // Map a business outcome to an HTTP status
+    private static Response result(EnrollmentResult result) 
+    {
+        int status;
+        switch(result) 
+        {
+            case STUDENT_ADDED:
+            case COURSE_ADDED:
+            case ENROLLED:
+                status = 201;
+                break;
+            case INVALID_STUDENT:
+            case INVALID_COURSE:
+            case INVALID_OLD_COURSE:
+            case INVALID_NEW_COURSE:
+            case INVALID_STUDENT_OR_COURSE:
+                status = 404;
+                break;
+            default:
+                status = result.isSuccess() ? 200 : 409;
+                break;
+        }
+        return new Response(status, "{\"success\":" + result.isSuccess() + ",\"result\":" + ReportWriter.quoteJson(result.name())
+            + ",\"message\":" + ReportWriter.quoteJson(result.getMessage()) + "}");
+    }
+
+    private static String required(Map<String, String> params, String name) 
+    {
+        String value = params.get(name);
+        if(value == null || value.trim().isEmpty()) 
+        {
+            throw new BadRequestException("Missing parameter: " + name);
+        }
+        return value.trim();
+    }
+
+    // ------------------- Request Handling -------------------
+
+    private static class Response 
+    {
+        final int status;
+        final String body;
+
+        Response(int status, String body) 
+        {
+            this.status = status;
+            this.body = body;
+        }
+
+        static Response error(int status, String message) 
+        {
+            return new Response(status, "{\"success\":false,\"message\":" + ReportWriter.quoteJson(message) + "}");
+        }
+
+        static Response notAllowed(String method, String[] path) 
+        {
+            return path.length == 1 || path.length == 3 ? error(405, "Method not allowed: " + method) : error(404, "Not found");
+        }
+    }
+
+    private static class BadRequestException extends RuntimeException 
+    {
+        private static final long serialVersionUID = 1L;
+
+        BadRequestException(String message) 
+        {
+            super(message);
+        }
+    }
+
+    private static class EndpointStats 
+    {
+        final LongAdder requests = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    }
+
+    private static class Handler implements HttpHandler 
+    {
+        private final String resource; // The context without its slash
+        private final Endpoint endpoint;
+        private final EndpointStats stats;
+
+        Handler(String context, Endpoint endpoint, EndpointStats stats) 
+        {
+            this.resource = context.substring(1);
+            this.endpoint = endpoint;
+            this.stats = stats;
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException 
+        {
+            long start = System.nanoTime();
+            Response response;
+            try 
+            {
+                String[] path = exchange.getRequestURI().getPath().replaceAll("^/+|/+$", "").split("/+");
+                // A context also receives every path that merely starts with it, such as /studentsX
+                response = path[0].equals(resource) ? endpoint.handle(exchange, path, readParams(exchange)) : Response.error(404, "Not found");
+            }
+            catch(BadRequestException e) 
+            {
+                response = Response.error(400, e.getMessage());
+            }
+            catch(RuntimeException | IOException e) 
+            {
+                // The details go to the server log, not to the client
+                System.err.println("Error handling " + exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath() + ": " + e);
+                response = Response.error(500, "Internal error");
+            }
+
+            try 
+            {
+                byte[] body = response.body.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+                exchange.sendResponseHeaders(response.status, body.length);
+                try(OutputStream out = exchange.getResponseBody()) 
+                {
+                    out.write(body);
+                }
+            }
+            finally 
+            {
+                long elapsed = System.nanoTime() - start;
+                stats.requests.increment();
+                stats.totalNanos.add(elapsed);
+                stats.maxNanos.accumulate(elapsed);
+                if(response.status >= 400) 
+                {
+                    stats.errors.increment();
+                }
+            }
+        }
+    }
+
+    // ------------------- Parameters and JSON -------------------
+
+    private static Map<String, String> readParams(HttpExchange exchange) throws IOException 
+    {
+        Map<String, String> params = new LinkedHashMap<>();
+        parseForm(exchange.getRequestURI().getRawQuery(), params);
+        String body;
+        try(InputStream in = exchange.getRequestBody()) 
+        {
+            body = new String(in.readAllBytes(), StandardCharsets.UTF_8).trim();
+        }
+        if(body.startsWith("{")) 
+        {
+            parseJsonObject(body, params);
+        }
+        else 
+        {
+            parseForm(body, params);
+        }
+        return params;
+    }
+
+    private static void parseForm(String form, Map<String, String> params) 
+    {
+        if(form == null || form.isEmpty()) 
+        {
+            return;
+        }
+        for(String pair : form.split("&")) 
+        {
+            int equals = pair.indexOf('=');
+            if(equals > 0) 
+            {
+                params.put(decode(pair.substring(0, equals)), decode(pair.substring(equals + 1)));
+            }
+        }
+    }
+
+    private static String decode(String encoded) 
+    {
+        try 
+        {
+            return URLDecoder.decode(encoded, StandardCharsets.UTF_8);
+        }
+        catch(IllegalArgumentException e) 
+        {
+            throw new BadRequestException("Malformed percent-encoding: " + encoded);
+        }
+    }
+
+    // Accepts a single object whose values are strings, numbers, booleans or null
+    private static void parseJsonObject(String json, Map<String, String> params) 
+    {
+        int[] position = { 1 };
+        skipWhitespace(json, position);
+        if(position[0] < json.length() && json.charAt(position[0]) == '}') 
+        {
+            return;
+        }
+        while(true) 
+        {
+            skipWhitespace(json, position);
+            String key = readJsonString(json, position);
+            skipWhitespace(json, position);
+            expect(json, position, ':');
+            skipWhitespace(json, position);
+            String value;
+            if(position[0] < json.length() && json.charAt(position[0]) == '"') 
+            {
+                value = readJsonString(json, position);
+            }
+            else 
+            {
+                int start = position[0];
+                while(position[0] < json.length() && ",} \t\r\n".indexOf(json.charAt(position[0])) < 0) 
+                {
+                    position[0]++;
+                }
+                value = json.substring(start, position[0]);
+                if(value.isEmpty() || value.startsWith("{") || value.startsWith("[")) 
+                {
+                    throw new BadRequestException("Only flat JSON objects are accepted");
+                }
+                if(value.equals("null")) 
+                {
+                    value = null;
+                }
+            }
+            if(value != null) 
+            {
+                params.put(key, value);
+            }
+            skipWhitespace(json, position);
+            if(position[0] < json.length() && json.charAt(position[0]) == ',') 
+            {
+                position[0]++;
+                continue;
+            }
+            expect(json, position, '}');
+            return;
+        }
+    }
+
+    private static String readJsonString(String json, int[] position) 
+    {
+        expect(json, position, '"');
+        StringBuilder value = new StringBuilder();
+        while(position[0] < json.length()) 
+        {
+            char c = json.charAt(position[0]++);
+            if(c == '"') 
+            {
+                return value.toString();
+            }
+            if(c != '\\') 
+            {
+                value.append(c);
+                continue;
+            }
+            if(position[0] >= json.length()) 
+            {
+                break;
+            }
+            char escaped = json.charAt(position[0]++);
+            switch(escaped) 
+            {
+                case 'n': value.append('\n'); break;
+                case 'r': value.append('\r'); break;
+                case 't': value.append('\t'); break;
+                case 'b': value.append('\b'); break;
+                case 'f': value.append('\f'); break;
+                case 'u':
+                    if(position[0] + 4 > json.length()) 
+                    {
+                        throw new BadRequestException("Malformed JSON escape");
+                    }
+                    try 
+                    {
+                        value.append((char) Integer.parseInt(json.substring(position[0], position[0] + 4), 16));
+                    }
+                    catch(NumberFormatException e) 
+                    {
+                        throw new BadRequestException("Malformed JSON escape");
+                    }
+                    position[0] += 4;
+                    break;
+                default: value.append(escaped); break;
+            }
+        }
+        throw new BadRequestException("Unterminated JSON string");
+    }
+
+    private static void skipWhitespace(String json, int[] position) 
+    {
+        while(position[0] < json.length() && Character.isWhitespace(json.charAt(position[0]))) 
+        {
+            position[0]++;
+        }
+    }
+
+    private static void expect(String json, int[] position, char expected) 
+    {
+        if(position[0] >= json.length() || json.charAt(position[0]) != expected) 
+        {
+            throw new BadRequestException("Malformed JSON: expected '" + expected + "' at " + position[0]);
+        }
+        position[0]++;
+    }
+}
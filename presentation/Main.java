@@ -1,14 +1,54 @@
 package presentation;
 
 import business.EnrollmentManager;
-
+import business.EnrollmentRowResult;
+import data.CsvParser;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
 import java.util.Scanner;
+import java.util.stream.Stream;
 
 public class Main 
 {
     public static void main(String[] args) 
     {
+        if(args.length == 2 && args[0].equals("--enroll-batch")) 
+        {
+            enrollBatch(args[1]);
+            return;
+        }
+        if(args.length == 3 && args[0].equals("--report")) 
+        {
+            writeReport(args[1], args[2]);
+            return;
+        }
+        if((args.length == 2 || args.length == 3) && args[0].equals("--script")) 
+        {
+            int batchSize = args.length == 3 ? parseBatchSize(args[2]) : 1;
+            if(batchSize > 0) 
+            {
+                runScript(args[1], batchSize);
+                return;
+            }
+        }
+        if(args.length > 0) 
+        {
+            printUsage();
+            System.exit(1);
+        }
+
         EnrollmentManager manager = new EnrollmentManager();
+        Reports reports = new Reports(manager, System.out);
+        Runtime.getRuntime().addShutdownHook(new Thread(manager::shutdown)); // Drain queued writes on any exit
         Scanner scanner = new Scanner(System.in);
 
         System.out.println("Welcome to the Student Enrollment Management System!");
@@ -42,10 +82,10 @@ public class Main
                     enrollStudent(manager, scanner);
                     break;
                 case 4:
-                    displayStudentsInCourse(manager, scanner);
+                    displayStudentsInCourse(reports, scanner);
                     break;
                 case 5:
-                    displayCoursesOfStudent(manager, scanner);
+                    displayCoursesOfStudent(reports, scanner);
                     break;
                 case 6:
                     updateStudentDetails(manager, scanner);
@@ -66,18 +106,121 @@ public class Main
                     deleteCourseEnrollment(manager, scanner);
                     break;
                 case 12:
-                    manager.generateSummaryReport();
+                    reports.displaySummaryReport();
                     break;
                 case 13:
                     System.out.println("Exiting the system. Goodbye!");
+                    manager.shutdown();
                     scanner.close();
                     System.exit(0);
+                    break;
                 default:
                     System.out.println("Invalid choice. Please select a valid option from the menu.");
             }
         }
     }
 
+    // Enroll every "studentId,courseId" line of a file in one batch and report the rejected rows
+    private static void enrollBatch(String path) 
+    {
+        EnrollmentManager manager = new EnrollmentManager();
+        CsvParser parser = new CsvParser();
+        List<EnrollmentRowResult> results;
+        try (Stream<String> lines = Files.lines(Paths.get(path))) 
+        {
+            results = manager.enrollBatch(lines.filter(line -> !line.trim().isEmpty())
+                    .map(line -> parser.parseLine(line).getFields()));
+        }
+        catch(IOException | UncheckedIOException e) 
+        {
+            System.err.println("Error reading " + path + ": " + e.getMessage());
+            manager.shutdown();
+            return;
+        }
+
+        int enrolled = 0;
+        for(EnrollmentRowResult result : results) 
+        {
+            if(result.isSuccess()) 
+            {
+                enrolled++;
+            }
+            else 
+            {
+                System.out.println(result);
+            }
+        }
+        System.out.println(enrolled + " of " + results.size() + " enrollments successful.");
+        manager.shutdown();
+    }
+
+    private static void printUsage() 
+    {
+        System.err.println("Usage: Main");
+        System.err.println("       Main --enroll-batch <file>");
+        System.err.println("       Main --report <text|csv|json> <file|->");
+        System.err.println("       Main --script <file|-> [batchSize]");
+    }
+
+    // A positive batch size, or 0 if the argument is not one
+    private static int parseBatchSize(String argument) 
+    {
+        try 
+        {
+            return Math.max(0, Integer.parseInt(argument));
+        }
+        catch(NumberFormatException e) 
+        {
+            return 0;
+        }
+    }
+
+    // Run a command script from a file, or from standard input for "-", without the menu;
+    // batchSize enroll commands in a row are committed together
+    private static void runScript(String path, int batchSize) 
+    {
+        EnrollmentManager manager = new EnrollmentManager();
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16);
+        try (BufferedReader script = path.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in), 1 << 16)
+                : Files.newBufferedReader(Paths.get(path))) 
+        {
+            new ScriptRunner(manager, out, batchSize).run(script);
+        }
+        catch(IOException | UncheckedIOException e) 
+        {
+            System.err.println("Error running " + path + ": " + e.getMessage());
+        }
+        manager.shutdown();
+    }
+
+    // Write the summary report as text, csv or json to a file, or to standard output for "-"
+    private static void writeReport(String format, String path) 
+    {
+        ReportFormat reportFormat;
+        try 
+        {
+            reportFormat = ReportFormat.valueOf(format.toUpperCase());
+        }
+        catch(IllegalArgumentException e) 
+        {
+            System.err.println("Unknown report format: " + format + ". Use text, csv or json.");
+            return;
+        }
+        EnrollmentManager manager = new EnrollmentManager();
+        try (Writer out = path.equals("-")
+                ? new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16)
+                : Files.newBufferedWriter(Paths.get(path))) 
+        {
+            new Reports(manager, System.out).writeSummaryReport(out, reportFormat);
+        }
+        catch(IOException e) 
+        {
+            System.err.println("Error writing " + path + ": " + e.getMessage());
+        }
+        manager.shutdown();
+    }
+
     private static void displayMenu() 
     {
         System.out.println("\n----- Main Menu -----");
@@ -121,7 +264,7 @@ public class Main
             return;
         }
 
-        manager.addStudent(studentId, name, email);
+        System.out.println(manager.addStudent(studentId, name, email).getMessage());
     }
 
     // Handle adding a new course
@@ -159,7 +302,7 @@ public class Main
             return;
         }
 
-        manager.addCourse(courseId, name, capacity);
+        System.out.println(manager.addCourse(courseId, name, capacity).getMessage());
     }
 
     // Handle enrolling a student in a course
@@ -178,11 +321,11 @@ public class Main
             return;
         }
 
-        manager.enroll(studentId, courseId);
+        System.out.println(manager.enroll(studentId, courseId).getMessage());
     }
 
     // Handle displaying students in a course
-    private static void displayStudentsInCourse(EnrollmentManager manager, Scanner scanner) 
+    private static void displayStudentsInCourse(Reports reports, Scanner scanner) 
     {
         System.out.println("\n--- Display Students in a Course ---");
         System.out.print("Enter Course ID: ");
@@ -194,11 +337,11 @@ public class Main
             return;
         }
 
-        manager.displayStudentsInCourse(courseId);
+        reports.displayStudentsInCourse(courseId);
     }
 
     // Handle displaying courses of a student
-    private static void displayCoursesOfStudent(EnrollmentManager manager, Scanner scanner) 
+    private static void displayCoursesOfStudent(Reports reports, Scanner scanner) 
     {
         System.out.println("\n--- Display Courses of a Student ---");
         System.out.print("Enter Student ID: ");
@@ -210,7 +353,7 @@ public class Main
             return;
         }
 
-        manager.displayCoursesOfStudent(studentId);
+        reports.displayCoursesOfStudent(studentId);
     }
 
     private static void updateStudentDetails(EnrollmentManager manager, Scanner scanner) {
@@ -227,7 +370,7 @@ public class Main
             return;
         }
 
-        manager.updateStudentDetails(studentId, name, email);
+        System.out.println(manager.updateStudentDetails(studentId, name, email).getMessage());
     }
 
     // Handle updating course details
@@ -247,7 +390,7 @@ public class Main
             return;
         }
 
-        manager.updateCourseDetails(courseId, name, capacity);
+        System.out.println(manager.updateCourseDetails(courseId, name, capacity).getMessage());
     }
 
     // Handle updating course details
@@ -267,7 +410,7 @@ public class Main
             return;
         }
 
-        manager.updateCourseEnrollment(studentId, oldCourseId, newCourseId);
+        System.out.println(manager.updateCourseEnrollment(studentId, oldCourseId, newCourseId).getMessage());
     }
 
     // Handle deleting course details
@@ -283,7 +426,7 @@ public class Main
             return;
         }
 
-        manager.deleteStudentDetails(studentId);
+        System.out.println(manager.deleteStudentDetails(studentId).getMessage());
     }
 
     // Handle deleting course details
@@ -299,7 +442,7 @@ public class Main
             return;
         }
 
-        manager.deleteCourseDetails(courseId);
+        System.out.println(manager.deleteCourseDetails(courseId).getMessage());
     }
 
     // Handle deleting course enrollment
@@ -315,11 +458,11 @@ public class Main
             return;
         }
 
-        manager.deleteCourseEnrollment(studentId, courseId);
+        System.out.println(manager.deleteCourseEnrollment(studentId, courseId).getMessage());
     }
 
     // Validate email format (for college mail ID)
-    private static boolean isValidEmail(String email) 
+    static boolean isValidEmail(String email) 
     {
         return email.matches("^[\\w.-]+@anits\\.edu\\.in$");
     }
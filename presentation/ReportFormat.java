@@ -0,0 +1,9 @@
+package presentation;
+
+// Layout of a report streamed by ReportWriter
+public enum ReportFormat 
+{
+    TEXT, // the console layout, line for line
+    CSV,  // a header row, then one RFC 4180 row per item
+    JSON  // one object, in the shape served by the HTTP endpoints
+}
@@ -0,0 +1,216 @@
+package presentation;
+
+import data.Course;
+import data.CsvParser;
+import data.RosterVersion;
+import data.Student;
+import java.io.IOException;
+import java.util.Set;
+
+// Streams reports into a caller-supplied Appendable, field by field, so no line is concatenated into
+// a String first and flushing is left to the caller. Wrap a file or System.out in a large
+// BufferedWriter; a StringBuilder works as well.
+public final class ReportWriter 
+{
+    private static final String NEWLINE = System.lineSeparator();
+
+    private final Appendable out;
+    private final ReportFormat format;
+
+    public ReportWriter(Appendable out, ReportFormat format) 
+    {
+        this.out = out;
+        this.format = format;
+    }
+
+    // Every course with its enrollment count
+    public void summary(Iterable<Course> courses) throws IOException 
+    {
+        switch(format) 
+        {
+            case TEXT:
+                out.append("----- Course Enrollment Summary -----").append(NEWLINE);
+                for(Course course : courses) 
+                {
+                    out.append("Course: ").append(course.getName()).append(" (ID: ").append(course.getId()).append(')').append(NEWLINE);
+                    out.append("Enrolled: ").append(Integer.toString(course.getEnrolledCount())).append('/')
+                        .append(Integer.toString(course.getCapacity())).append(NEWLINE);
+                    out.append("--------------------------------------").append(NEWLINE);
+                }
+                break;
+            case CSV:
+                out.append("courseId,name,enrolled,capacity").append(NEWLINE);
+                for(Course course : courses) 
+                {
+                    csv(course.getId()).append(',');
+                    csv(course.getName()).append(',').append(Integer.toString(course.getEnrolledCount())).append(',')
+                        .append(Integer.toString(course.getCapacity())).append(NEWLINE);
+                }
+                break;
+            case JSON:
+                out.append("{\"courses\":[");
+                char separator = 0;
+                for(Course course : courses) 
+                {
+                    if(separator != 0) 
+                    {
+                        out.append(separator);
+                    }
+                    separator = ',';
+                    out.append("{\"courseId\":");
+                    json(course.getId()).append(",\"name\":");
+                    json(course.getName()).append(",\"enrolled\":").append(Integer.toString(course.getEnrolledCount()))
+                        .append(",\"capacity\":").append(Integer.toString(course.getCapacity())).append('}');
+                }
+                out.append("]}");
+                break;
+        }
+    }
+
+    // The roster of one course
+    public void studentsInCourse(Course course) throws IOException 
+    {
+        RosterVersion enrolled = course.getRoster();
+        switch(format) 
+        {
+            case TEXT:
+                if(enrolled.isEmpty()) 
+                {
+                    out.append("No students are enrolled in ").append(course.getName()).append('.').append(NEWLINE);
+                    break;
+                }
+                out.append("Students enrolled in ").append(course.getName()).append(':').append(NEWLINE);
+                for(Student student : enrolled) 
+                {
+                    out.append("- ").append(student.getName()).append(" (ID: ").append(student.getStudentId()).append(')').append(NEWLINE);
+                }
+                break;
+            case CSV:
+                out.append("studentId,name").append(NEWLINE);
+                for(Student student : enrolled) 
+                {
+                    csv(student.getStudentId()).append(',');
+                    csv(student.getName()).append(NEWLINE);
+                }
+                break;
+            case JSON:
+                out.append("{\"courseId\":");
+                json(course.getId()).append(",\"name\":");
+                json(course.getName()).append(",\"capacity\":").append(Integer.toString(course.getCapacity())).append(",\"students\":[");
+                char separator = 0;
+                for(Student student : enrolled) 
+                {
+                    if(separator != 0) 
+                    {
+                        out.append(separator);
+                    }
+                    separator = ',';
+                    out.append("{\"studentId\":");
+                    json(student.getStudentId()).append(",\"name\":");
+                    json(student.getName()).append('}');
+                }
+                out.append("]}");
+                break;
+        }
+    }
+
+    // The courses of one student
+    public void coursesOfStudent(Student student) throws IOException 
+    {
+        String name = student.getName();
+        Set<Course> courses = student.getCourses();
+        switch(format) 
+        {
+            case TEXT:
+                if(courses.isEmpty()) 
+                {
+                    out.append("Student ").append(name).append(" is not enrolled in any courses.").append(NEWLINE);
+                    break;
+                }
+                out.append("Courses enrolled by ").append(name).append(':').append(NEWLINE);
+                for(Course course : courses) 
+                {
+                    out.append("- ").append(course.getName()).append(" (ID: ").append(course.getId()).append(')').append(NEWLINE);
+                }
+                break;
+            case CSV:
+                out.append("courseId,name").append(NEWLINE);
+                for(Course course : courses) 
+                {
+                    csv(course.getId()).append(',');
+                    csv(course.getName()).append(NEWLINE);
+                }
+                break;
+            case JSON:
+                out.append("{\"studentId\":");
+                json(student.getStudentId()).append(",\"name\":");
+                json(name).append(",\"courses\":[");
+                char separator = 0;
+                for(Course course : courses) 
+                {
+                    if(separator != 0) 
+                    {
+                        out.append(separator);
+                    }
+                    separator = ',';
+                    out.append("{\"courseId\":");
+                    json(course.getId()).append(",\"name\":");
+                    json(course.getName()).append('}');
+                }
+                out.append("]}");
+                break;
+        }
+    }
+
+    private Appendable csv(String field) throws IOException 
+    {
+        return out.append(CsvParser.escape(field));
+    }
+
+    private Appendable json(String value) throws IOException 
+    {
+        return appendJson(out, value);
+    }
+
+    // A JSON string literal
+    static String quoteJson(String value) 
+    {
+        StringBuilder quoted = new StringBuilder(value.length() + 2);
+        try 
+        {
+            appendJson(quoted, value);
+        }
+        catch(IOException e) 
+        {
+            throw new AssertionError(e); // A StringBuilder does not throw
+        }
+        return quoted.toString();
+    }
+
+    // A JSON string literal, escaped as it is written
+    static Appendable appendJson(Appendable out, String value) throws IOException 
+    {
+        out.append('"');
+        int run = 0; // Start of the characters not yet written
+        for(int i = 0; i < value.length(); i++) 
+        {
+            char c = value.charAt(i);
+            if(c >= 0x20 && c != '"' && c != '\\') 
+            {
+                continue;
+            }
+            out.append(value, run, i);
+            run = i + 1;
+            switch(c) 
+            {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default: out.append(String.format("\\u%04x", (int) c)); break;
+            }
+        }
+        return out.append(value, run, value.length()).append('"');
+    }
+}
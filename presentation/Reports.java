@@ -0,0 +1,141 @@
+package presentation;
+
+import business.EnrollmentManager;
+import business.EnrollmentResult;
+import data.Course;
+import data.Student;
+import monitoring.Metrics;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+// The manager's reports, streamed by ReportWriter into any Appendable, or printed to a console
+// through one large buffer that every print reuses and flushes once per report
+public class Reports 
+{
+    private final EnrollmentManager manager;
+    private final OutputStream consoleStream;
+    private Writer console; // Made on the first print; guarded by this
+
+    public Reports(EnrollmentManager manager, OutputStream console) 
+    {
+        this.manager = manager;
+        this.consoleStream = console;
+    }
+
+    // Stream the roster of a course; returns false, writing nothing, if there is no such course
+    public boolean writeStudentsInCourse(String courseId, Appendable out, ReportFormat format) throws IOException 
+    {
+        Course course = manager.getCourse(courseId);
+        if(course == null) 
+        {
+            return false;
+        }
+        new ReportWriter(out, format).studentsInCourse(course);
+        return true;
+    }
+
+    // Stream the courses of a student; returns false, writing nothing, if there is no such student
+    public boolean writeCoursesOfStudent(String studentId, Appendable out, ReportFormat format) throws IOException 
+    {
+        Student student = manager.getStudent(studentId);
+        if(student == null) 
+        {
+            return false;
+        }
+        new ReportWriter(out, format).coursesOfStudent(student);
+        return true;
+    }
+
+    // Stream the summary report into out, which the caller buffers and flushes
+    public void writeSummaryReport(Appendable out, ReportFormat format) throws IOException 
+    {
+        long start = Metrics.start();
+        try 
+        {
+            new ReportWriter(out, format).summary(manager.getCourses());
+        }
+        finally 
+        {
+            Metrics.record("writeSummaryReport", start);
+        }
+    }
+
+    // Display all students enrolled in a specific course
+    public void displayStudentsInCourse(String courseId) 
+    {
+        long start = Metrics.start();
+        try 
+        {
+            print(out -> writeStudentsInCourse(courseId, out, ReportFormat.TEXT), EnrollmentResult.INVALID_COURSE);
+        }
+        finally 
+        {
+            Metrics.record("displayStudentsInCourse", start);
+        }
+    }
+
+    // Display all courses a student is enrolled in
+    public void displayCoursesOfStudent(String studentId) 
+    {
+        long start = Metrics.start();
+        try 
+        {
+            print(out -> writeCoursesOfStudent(studentId, out, ReportFormat.TEXT), EnrollmentResult.INVALID_STUDENT);
+        }
+        finally 
+        {
+            Metrics.record("displayCoursesOfStudent", start);
+        }
+    }
+
+    // Display a summary report of all courses and their enrollment status
+    public void displaySummaryReport() 
+    {
+        long start = Metrics.start();
+        try 
+        {
+            print(out -> {
+                writeSummaryReport(out, ReportFormat.TEXT);
+                return true;
+            }, null);
+        }
+        finally 
+        {
+            Metrics.record("generateSummaryReport", start);
+        }
+    }
+
+    // A report written to an Appendable; false means its subject does not exist
+    private interface Report 
+    {
+        boolean writeTo(Appendable out) throws IOException;
+    }
+
+    // Print a report through the console buffer with a single flush rather than a println per line
+    private void print(Report report, EnrollmentResult missing) 
+    {
+        synchronized(this) 
+        {
+            if(console == null) 
+            {
+                console = new BufferedWriter(new OutputStreamWriter(consoleStream), 1 << 16);
+            }
+            try 
+            {
+                if(!report.writeTo(console)) 
+                {
+                    console.append(missing.getMessage()).append(System.lineSeparator());
+                }
+                console.flush();
+            }
+            catch(IOException e) 
+            {
+                System.err.println("Error printing report: " + e.getMessage());
+            }
+        }
+    }
+}
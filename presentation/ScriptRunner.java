@@ -0,0 +1,272 @@
+package presentation;
+
+import business.EnrollmentManager;
+import business.EnrollmentResult;
+import business.EnrollmentRowResult;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+// Runs enrollment commands from a file or pipe, one per line, without menus or prompts. Arguments are
+// separated by spaces; quote an argument that contains spaces. Blank lines and lines starting with #
+// are skipped.
+//
+//   add-student    <studentId> <name> <email>
+//   add-course     <courseId> <name> <capacity>
+//   enroll         <studentId> <courseId>
+//   unenroll       <studentId> <courseId>
+//   transfer       <studentId> <oldCourseId> <newCourseId>
+//   update-student <studentId> <name> <email>
+//   update-course  <courseId> <name> <capacity>
+//   delete-student <studentId>
+//   delete-course  <courseId>
+//   students       <courseId>
+//   courses        <studentId>
+//   summary        [text|csv|json]
+//
+// Each command writes one line of output (a report writes several) to a caller-buffered Writer.
+// With a batch size above 1, consecutive enroll commands are held back and committed together
+// through EnrollmentManager.enrollBatch; any other command commits the held ones first, so results
+// stay in script order.
+public class ScriptRunner 
+{
+    private final EnrollmentManager manager;
+    private final Reports reports;
+    private final Writer out;
+    private final int batchSize;
+    private final List<String[]> pendingEnrollments = new ArrayList<>();
+    private long commands;
+    private long failures;
+
+    public ScriptRunner(EnrollmentManager manager, Writer out, int batchSize) 
+    {
+        this.manager = manager;
+        this.reports = new Reports(manager, System.out);
+        this.out = out;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    // Run every command in the script and end with a throughput summary
+    public void run(BufferedReader script) throws IOException 
+    {
+        long start = System.nanoTime();
+        int lineNumber = 0;
+        String line;
+        while((line = script.readLine()) != null) 
+        {
+            lineNumber++;
+            String trimmed = line.trim();
+            if(trimmed.isEmpty() || trimmed.startsWith("#")) 
+            {
+                continue;
+            }
+            List<String> args;
+            try 
+            {
+                args = tokenize(trimmed);
+            }
+            catch(IllegalArgumentException e) 
+            {
+                commands++;
+                fail("Error: line " + lineNumber + ": " + e.getMessage());
+                continue;
+            }
+            execute(lineNumber, args);
+        }
+        commitEnrollments();
+        long elapsedNanos = System.nanoTime() - start;
+        out.append(String.format("%d commands (%d failed) in %.1f ms, %.0f commands/s%n",
+                commands, failures, elapsedNanos / 1e6, commands / Math.max(elapsedNanos / 1e9, 1e-9)));
+        out.flush();
+    }
+
+    private void execute(int lineNumber, List<String> args) throws IOException 
+    {
+        commands++;
+        String command = args.get(0);
+        if(command.equals("enroll") && args.size() == 3) 
+        {
+            pendingEnrollments.add(new String[] {args.get(1), args.get(2)});
+            if(pendingEnrollments.size() >= batchSize) 
+            {
+                commitEnrollments();
+            }
+            return;
+        }
+        commitEnrollments();
+        switch(command + "/" + (args.size() - 1)) 
+        {
+            case "add-student/3":
+            case "update-student/3":
+                if(!Main.isValidEmail(args.get(3))) 
+                {
+                    fail("Error: Invalid email format.");
+                    return;
+                }
+                result(command.equals("add-student")
+                        ? manager.addStudent(args.get(1), args.get(2), args.get(3))
+                        : manager.updateStudentDetails(args.get(1), args.get(2), args.get(3)));
+                return;
+            case "add-course/3":
+            case "update-course/3":
+                int capacity = parseCapacity(args.get(3));
+                if(capacity <= 0) 
+                {
+                    fail("Error: Capacity must be a positive integer.");
+                    return;
+                }
+                result(command.equals("add-course")
+                        ? manager.addCourse(args.get(1), args.get(2), capacity)
+                        : manager.updateCourseDetails(args.get(1), args.get(2), capacity));
+                return;
+            case "unenroll/2":
+                result(manager.deleteCourseEnrollment(args.get(1), args.get(2)));
+                return;
+            case "transfer/3":
+                result(manager.updateCourseEnrollment(args.get(1), args.get(2), args.get(3)));
+                return;
+            case "delete-student/1":
+                result(manager.deleteStudentDetails(args.get(1)));
+                return;
+            case "delete-course/1":
+                result(manager.deleteCourseDetails(args.get(1)));
+                return;
+            case "students/1":
+                if(!reports.writeStudentsInCourse(args.get(1), out, ReportFormat.TEXT)) 
+                {
+                    result(EnrollmentResult.INVALID_COURSE);
+                }
+                return;
+            case "courses/1":
+                if(!reports.writeCoursesOfStudent(args.get(1), out, ReportFormat.TEXT)) 
+                {
+                    result(EnrollmentResult.INVALID_STUDENT);
+                }
+                return;
+            case "summary/0":
+            case "summary/1":
+                ReportFormat format;
+                try 
+                {
+                    format = args.size() == 1 ? ReportFormat.TEXT : ReportFormat.valueOf(args.get(1).toUpperCase());
+                }
+                catch(IllegalArgumentException e) 
+                {
+                    fail("Error: line " + lineNumber + ": unknown report format " + args.get(1));
+                    return;
+                }
+                reports.writeSummaryReport(out, format);
+                if(format == ReportFormat.JSON) 
+                {
+                    out.append(System.lineSeparator());
+                }
+                return;
+            default:
+                fail("Error: line " + lineNumber + ": unknown command or wrong number of arguments: " + command);
+        }
+    }
+
+    // Commit the held enroll commands in one batch and write their results in order
+    private void commitEnrollments() throws IOException 
+    {
+        if(pendingEnrollments.isEmpty()) 
+        {
+            return;
+        }
+        if(pendingEnrollments.size() == 1) 
+        {
+            String[] pair = pendingEnrollments.remove(0);
+            result(manager.enroll(pair[0], pair[1]));
+            return;
+        }
+        List<EnrollmentRowResult> results = manager.enrollBatch(pendingEnrollments.stream());
+        pendingEnrollments.clear();
+        for(EnrollmentRowResult row : results) 
+        {
+            result(row.getResult());
+        }
+    }
+
+    private void result(EnrollmentResult result) throws IOException 
+    {
+        if(result.isSuccess()) 
+        {
+            out.append(result.getMessage()).append(System.lineSeparator());
+        }
+        else 
+        {
+            fail(result.getMessage());
+        }
+    }
+
+    private void fail(String message) throws IOException 
+    {
+        failures++;
+        out.append(message).append(System.lineSeparator());
+    }
+
+    private static int parseCapacity(String value) 
+    {
+        try 
+        {
+            return Integer.parseInt(value);
+        }
+        catch(NumberFormatException e) 
+        {
+            return -1;
+        }
+    }
+
+    // Split a line on spaces; a double-quoted argument may hold spaces, and "" inside it is a quote
+    static List<String> tokenize(String line) 
+    {
+        List<String> args = new ArrayList<>();
+        StringBuilder arg = new StringBuilder();
+        int i = 0;
+        while(i < line.length()) 
+        {
+            char c = line.charAt(i);
+            if(Character.isWhitespace(c)) 
+            {
+                i++;
+                continue;
+            }
+            arg.setLength(0);
+            if(c == '"') 
+            {
+                i++;
+                while(true) 
+                {
+                    if(i >= line.length()) 
+                    {
+                        throw new IllegalArgumentException("unterminated quote");
+                    }
+                    c = line.charAt(i++);
+                    if(c == '"') 
+                    {
+                        if(i < line.length() && line.charAt(i) == '"') 
+                        {
+                            arg.append('"');
+                            i++;
+                            continue;
+                        }
+                        break;
+                    }
+                    arg.append(c);
+                }
+            }
+            else 
+            {
+                while(i < line.length() && !Character.isWhitespace(line.charAt(i))) 
+                {
+                    arg.append(line.charAt(i++));
+                }
+            }
+            args.add(arg.toString());
+        }
+        return args;
+    }
+}
@@ -0,0 +1,57 @@
+package business;
+
+import data.StorageConfig;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import testing.Check;
+
+// Batched enrollments report one result per row, in row order
+public class EnrollBatchTest 
+{
+    // A repeated row is only "already enrolled" if its first copy got in; otherwise it fails the same way
+    public static void testRepeatedRowFollowsFirstCopy() throws Exception 
+    {
+        StorageConfig config = RestartTest.config(Check.newDirectory());
+        EnrollmentManager manager = new EnrollmentManager(config);
+        manager.addCourse("CS101", "Algorithms", 1);
+        manager.addCourse("CS102", "Compilers", 5);
+        for(int i = 0; i < 3; i++) 
+        {
+            manager.addStudent("S" + i, "Student " + i, "s" + i + "@example.com");
+        }
+        manager.enroll("S2", "CS102");
+
+        List<EnrollmentResult> results = results(manager.enrollBatch(Stream.of(
+            new String[] {"S0", "CS101"},
+            new String[] {"S1", "CS101"},
+            new String[] {"S1", "CS101"},
+            new String[] {"S0", "CS101"},
+            new String[] {"S2", "CS102"},
+            new String[] {"S2", "CS102"},
+            new String[] {"S1", "CS999"})));
+        Check.equal(List.of(
+            EnrollmentResult.ENROLLED,
+            EnrollmentResult.COURSE_FULL,
+            EnrollmentResult.COURSE_FULL,
+            EnrollmentResult.ALREADY_ENROLLED,
+            EnrollmentResult.ALREADY_ENROLLED,
+            EnrollmentResult.ALREADY_ENROLLED,
+            EnrollmentResult.INVALID_COURSE), results, "row results");
+        Check.isTrue(!manager.getStudent("S1").isEnrolled(manager.getCourse("CS101")), "S1 left out of the full course");
+
+        String before = RestartTest.dump(manager);
+        manager.shutdown();
+        Check.equal(before, RestartTest.restart(config), "state after restart");
+    }
+
+    private static List<EnrollmentResult> results(List<EnrollmentRowResult> rows) 
+    {
+        List<EnrollmentResult> results = new ArrayList<>();
+        for(EnrollmentRowResult row : rows) 
+        {
+            results.add(row.getResult());
+        }
+        return results;
+    }
+}
@@ -0,0 +1,245 @@
+package business;
+
+import data.Course;
+import data.StorageConfig;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import testing.Check;
+
+// Seat reservation under contention: many threads racing for the same seats
+public class EnrollmentConcurrencyTest 
+{
+    private static final int THREADS = 8;
+
+    public static void testRacingEnrollmentsFillEverySeatOnce() throws Exception 
+    {
+        EnrollmentManager manager = newManager();
+        manager.addCourse("CS101", "Algorithms", 25);
+        for(int i = 0; i < 200; i++) 
+        {
+            manager.addStudent("S" + i, "Student " + i, "s" + i + "@example.com");
+        }
+
+        AtomicInteger enrolled = new AtomicInteger();
+        AtomicInteger full = new AtomicInteger();
+        runConcurrently(thread -> {
+            List<Integer> order = shuffled(200, thread);
+            for(int i : order) 
+            {
+                EnrollmentResult result = manager.enroll("S" + i, "CS101");
+                if(result == EnrollmentResult.ENROLLED) 
+                {
+                    enrolled.incrementAndGet();
+                }
+                else if(result == EnrollmentResult.COURSE_FULL) 
+                {
+                    full.incrementAndGet();
+                }
+            }
+        });
+
+        Course course = manager.getCourse("CS101");
+        Check.equal(25, enrolled.get(), "successful enrollments");
+        Check.equal(25, course.getEnrolledCount(), "enrolled count");
+        Check.equal(25, course.getRoster().size(), "roster size");
+        Check.isTrue(full.get() > 0, "some enrollments were turned away as full");
+        Check.equal(null, manager.checkInvariants(), "invariant violation");
+        manager.shutdown();
+    }
+
+    public static void testSameStudentIsEnrolledOnce() throws Exception 
+    {
+        EnrollmentManager manager = newManager();
+        manager.addCourse("CS101", "Algorithms", 10);
+        manager.addStudent("S1", "Ann", "ann@example.com");
+
+        AtomicInteger enrolled = new AtomicInteger();
+        runConcurrently(thread -> {
+            for(int i = 0; i < 50; i++) 
+            {
+                if(manager.enroll("S1", "CS101") == EnrollmentResult.ENROLLED) 
+                {
+                    enrolled.incrementAndGet();
+                }
+            }
+        });
+
+        Check.equal(1, enrolled.get(), "successful enrollments");
+        Check.equal(1, manager.getCourse("CS101").getEnrolledCount(), "enrolled count");
+        Check.equal(1, manager.getStudent("S1").getCourses().size(), "courses of the student");
+        Check.equal(null, manager.checkInvariants(), "invariant violation");
+        manager.shutdown();
+    }
+
+    public static void testSeatsFreedByDropsAreTakenAgain() throws Exception 
+    {
+        EnrollmentManager manager = newManager();
+        manager.addCourse("CS101", "Algorithms", 5);
+        for(int i = 0; i < 40; i++) 
+        {
+            manager.addStudent("S" + i, "Student " + i, "s" + i + "@example.com");
+        }
+
+        runConcurrently(thread -> {
+            Random random = new Random(thread);
+            for(int i = 0; i < 2000; i++) 
+            {
+                String studentId = "S" + random.nextInt(40);
+                if(random.nextBoolean()) 
+                {
+                    manager.enroll(studentId, "CS101");
+                }
+                else 
+                {
+                    manager.deleteCourseEnrollment(studentId, "CS101");
+                }
+                Check.isTrue(manager.getCourse("CS101").getEnrolledCount() <= 5, "course over capacity");
+            }
+        });
+
+        Course course = manager.getCourse("CS101");
+        Check.equal(course.getRoster().size(), course.getEnrolledCount(), "enrolled count against roster");
+        Check.equal(null, manager.checkInvariants(), "invariant violation");
+
+        // Every seat the churn left taken can be given back and taken again
+        for(int i = 0; i < 40; i++) 
+        {
+            manager.deleteCourseEnrollment("S" + i, "CS101");
+        }
+        Check.equal(0, course.getEnrolledCount(), "enrolled count after dropping everyone");
+        for(int i = 0; i < 5; i++) 
+        {
+            Check.equal(EnrollmentResult.ENROLLED, manager.enroll("S" + i, "CS101"), "enrollment of S" + i);
+        }
+        Check.equal(EnrollmentResult.COURSE_FULL, manager.enroll("S5", "CS101"), "enrollment past capacity");
+        manager.shutdown();
+    }
+
+    // Dropping a pair that is not enrolled changes nothing, and in particular frees no seat
+    public static void testDropOfUnenrolledPairIsRejected() throws Exception 
+    {
+        EnrollmentManager manager = newManager();
+        manager.addCourse("CS101", "Algorithms", 1);
+        manager.addStudent("S1", "Ann", "ann@example.com");
+        manager.addStudent("S2", "Bob", "bob@example.com");
+        manager.enroll("S1", "CS101");
+
+        Check.equal(EnrollmentResult.NOT_ENROLLED, manager.deleteCourseEnrollment("S2", "CS101"), "drop of an unenrolled pair");
+        Check.equal(EnrollmentResult.COURSE_FULL, manager.enroll("S2", "CS101"), "enrollment in the still full course");
+        Check.equal(EnrollmentResult.ENROLLMENT_DELETED, manager.deleteCourseEnrollment("S1", "CS101"), "drop");
+        Check.equal(EnrollmentResult.NOT_ENROLLED, manager.deleteCourseEnrollment("S1", "CS101"), "second drop");
+        Check.equal(EnrollmentResult.ENROLLED, manager.enroll("S2", "CS101"), "enrollment in the freed seat");
+        manager.shutdown();
+    }
+
+    public static void testRacingEnrollAndDropReplayFromLog() throws Exception 
+    {
+        StorageConfig config = RestartTest.config(Check.newDirectory());
+        config.setLogMode(true);
+        checkRacingEnrollAndDrop(config);
+    }
+
+    public static void testRacingEnrollAndDropReplayFromCsv() throws Exception 
+    {
+        checkRacingEnrollAndDrop(RestartTest.config(Check.newDirectory()));
+    }
+
+    // Threads enroll and drop the same few pairs; whatever the last change to each pair was, the
+    // saved records must replay to it
+    private static void checkRacingEnrollAndDrop(StorageConfig config) throws Exception 
+    {
+        EnrollmentManager manager = new EnrollmentManager(config);
+        manager.addCourse("CS101", "Algorithms", 10);
+        manager.addCourse("CS102", "Compilers", 10);
+        for(int i = 0; i < 3; i++) 
+        {
+            manager.addStudent("S" + i, "Student " + i, "s" + i + "@example.com");
+        }
+
+        runConcurrently(thread -> {
+            Random random = new Random(thread);
+            for(int i = 0; i < 300; i++) 
+            {
+                String studentId = "S" + random.nextInt(3);
+                String courseId = random.nextBoolean() ? "CS101" : "CS102";
+                if(random.nextBoolean()) 
+                {
+                    manager.enroll(studentId, courseId);
+                }
+                else 
+                {
+                    manager.deleteCourseEnrollment(studentId, courseId);
+                }
+            }
+        });
+
+        Check.equal(null, manager.checkInvariants(), "invariant violation");
+        String before = RestartTest.dump(manager);
+        manager.shutdown();
+        Check.equal(before, RestartTest.restart(config), "state after restart");
+    }
+
+    private interface Worker 
+    {
+        void run(int thread) throws Exception;
+    }
+
+    // Start every worker at once and wait for all of them; rethrows the first failure
+    private static void runConcurrently(Worker worker) throws Exception 
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Void>> futures = new ArrayList<>();
+        for(int i = 0; i < THREADS; i++) 
+        {
+            int thread = i;
+            Callable<Void> task = () -> {
+                start.await();
+                worker.run(thread);
+                return null;
+            };
+            futures.add(executor.submit(task));
+        }
+        start.countDown();
+        try 
+        {
+            for(Future<Void> future : futures) 
+            {
+                future.get();
+            }
+        }
+        finally 
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<Integer> shuffled(int count, long seed) 
+    {
+        List<Integer> order = new ArrayList<>();
+        for(int i = 0; i < count; i++) 
+        {
+            order.add(i);
+        }
+        Collections.shuffle(order, new Random(seed));
+        return order;
+    }
+
+    private static EnrollmentManager newManager() throws IOException 
+    {
+        File directory = Check.newDirectory();
+        StorageConfig config = new StorageConfig();
+        config.setDataDirectory(directory);
+        return new EnrollmentManager(config);
+    }
+}
@@ -0,0 +1,293 @@
+package business;
+
+import data.Course;
+import data.StorageConfig;
+import data.Student;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.TreeSet;
+import testing.Check;
+
+// Everything a manager changed is there again after a restart, in each persistence mode
+public class RestartTest 
+{
+    private static final int STUDENTS = 30;
+
+    public static void testCsvFilesRoundTrip() throws Exception 
+    {
+        checkRoundTrip(config(Check.newDirectory()));
+    }
+
+    public static void testMutationLogIsReplayed() throws Exception 
+    {
+        StorageConfig config = config(Check.newDirectory());
+        config.setLogMode(true);
+        checkRoundTrip(config);
+        Check.isTrue(logSegments(config) > 0, "mutations left in the log for replay");
+    }
+
+    public static void testCompactedLogIsReplayed() throws Exception 
+    {
+        StorageConfig config = config(Check.newDirectory());
+        config.setLogMode(true);
+        config.setCompactionThreshold(7); // Compacts many times over the mutations below
+        checkRoundTrip(config);
+    }
+
+    public static void testCheckpointAndLogTailAreReplayed() throws Exception 
+    {
+        StorageConfig config = config(Check.newDirectory());
+        config.setLogMode(true);
+        EnrollmentManager manager = new EnrollmentManager(config);
+        mutate(manager, 0);
+        manager.checkpoint();
+        mutate(manager, 1); // Left in the log tail
+        String before = dump(manager);
+        manager.shutdown();
+        Check.equal(before, restart(config), "state after restart");
+    }
+
+    public static void testShardedFilesRoundTrip() throws Exception 
+    {
+        StorageConfig config = config(Check.newDirectory());
+        config.setShards(4);
+        String before = dumpAfterMutating(config);
+        Check.equal(before, restart(config), "state after restart");
+
+        // Another shard count splits the files again on startup
+        config.setShards(3);
+        Check.equal(before, restart(config), "state after resharding into 3");
+        config.setShards(1);
+        Check.equal(before, restart(config), "state after resharding into 1");
+        Check.isTrue(new File(config.getDataDirectory(), "students.csv").isFile(), "single students file");
+        Check.equal(3, config.getDataDirectory().list().length, "data files after resharding into 1");
+    }
+
+    public static void testLazyStudentsRoundTrip() throws Exception 
+    {
+        StorageConfig config = config(Check.newDirectory());
+        config.setLazyStudents(true);
+        config.setStudentCacheSize(4); // Smaller than the data, so records are evicted and read again
+        checkRoundTrip(config);
+        config.setLazyStudents(false);
+        checkRoundTrip(config);
+    }
+
+    public static void testSnapshotRoundTrip() throws Exception 
+    {
+        StorageConfig config = config(Check.newDirectory());
+        config.setSnapshotEnabled(true);
+        String before = dumpAfterMutating(config);
+        Check.isTrue(new File(config.getDataDirectory(), "snapshot.bin").isFile(), "snapshot written on shutdown");
+        Check.equal(before, restart(config), "state restored from the snapshot");
+
+        // A second round starts from the snapshot and must write a fresh one
+        EnrollmentManager manager = new EnrollmentManager(config);
+        mutate(manager, 2);
+        String again = dump(manager);
+        manager.shutdown();
+        Check.equal(again, restart(config), "state after a second restart");
+    }
+
+    public static void testWriteBehindRoundTrip() throws Exception 
+    {
+        StorageConfig config = config(Check.newDirectory());
+        config.setWriteBehind(true);
+        checkRoundTrip(config);
+        config.setLogMode(true);
+        checkRoundTrip(config);
+    }
+
+    // Data files are UTF-8 whatever the platform charset is
+    public static void testNonAsciiTextRoundTrip() throws Exception 
+    {
+        StorageConfig csv = config(Check.newDirectory());
+        StorageConfig log = config(Check.newDirectory());
+        log.setLogMode(true);
+        for(StorageConfig config : new StorageConfig[] {csv, log}) 
+        {
+            EnrollmentManager manager = new EnrollmentManager(config);
+            manager.addStudent("S0", "Zo\u00eb \u00d1\u00fa\u00f1ez", "zoe@example.com");
+            manager.addStudent("S1", "\u674e\u96f7", "li@example.com");
+            manager.addCourse("C0", "Th\u00e9orie des langages \u2014 niveau 2", 30);
+            manager.enroll("S0", "C0");
+            manager.updateStudentDetails("S1", "\u0141ukasz \u017b\u00f3\u0142\u0107", "lz@example.com"); // Rewrites the file in CSV mode
+            String before = dump(manager);
+            manager.shutdown();
+            Check.equal(before, restart(config), "state after restart");
+            Check.equal("\u0141ukasz \u017b\u00f3\u0142\u0107", nameAfterRestart(config, "S1"), "renamed student");
+        }
+    }
+
+    private static String nameAfterRestart(StorageConfig config, String studentId) 
+    {
+        EnrollmentManager manager = new EnrollmentManager(config);
+        try 
+        {
+            return manager.getStudent(studentId).getName();
+        }
+        finally 
+        {
+            manager.shutdown();
+        }
+    }
+
+    // A quoted line break is data, in the files and in the log, however often the row is rewritten
+    public static void testLineBreaksInFieldsRoundTrip() throws Exception 
+    {
+        StorageConfig csv = config(Check.newDirectory());
+        StorageConfig log = config(Check.newDirectory());
+        log.setLogMode(true);
+        for(StorageConfig config : new StorageConfig[] {csv, log}) 
+        {
+            EnrollmentManager manager = new EnrollmentManager(config);
+            manager.addStudent("S0", "Ann\nLee", "ann@example.com");
+            manager.addStudent("S1", "Bo", "bo@example.com");
+            manager.addCourse("C0", "Intro,\r\n\"Part 1\"", 30);
+            manager.enroll("S0", "C0");
+            manager.updateStudentDetails("S1", "Bo\nBoson", "bo@example.com");
+            manager.updateStudentDetails("S0", "Ann\nLee", "ann.lee@example.com");
+            manager.updateCourseDetails("C0", "Intro,\r\n\"Part 1\"", 31);
+            String before = dump(manager);
+            manager.shutdown();
+            Check.equal(before, restart(config), "state after restart");
+            Check.equal("Ann\nLee", nameAfterRestart(config, "S0"), "student name with a line break");
+
+            // And again after another rewrite of the same shard
+            manager = new EnrollmentManager(config);
+            manager.addStudent("S2", "Cy", "cy@example.com");
+            manager.deleteStudentDetails("S2");
+            before = dump(manager);
+            manager.shutdown();
+            Check.equal(before, restart(config), "state after a second restart");
+        }
+    }
+
+    // A crash in the middle of an append leaves part of a record at the end of the log; it is dropped,
+    // and records appended after the restart are not swallowed by its open quote
+    public static void testTornLogRecordIsDiscarded() throws Exception 
+    {
+        StorageConfig config = config(Check.newDirectory());
+        config.setLogMode(true);
+        EnrollmentManager manager = new EnrollmentManager(config);
+        manager.addStudent("S0", "Ann", "ann@example.com");
+        manager.shutdown();
+
+        File[] segments = config.getDataDirectory().listFiles((directory, name) -> name.endsWith(".log"));
+        Arrays.sort(segments);
+        Files.write(segments[segments.length - 1].toPath(), "S,S9,\"Torn\nna".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        manager = new EnrollmentManager(config);
+        Check.equal(null, manager.getStudent("S9"), "student from the torn record");
+        manager.addStudent("S1", "Bo", "bo@example.com");
+        manager.shutdown();
+
+        manager = new EnrollmentManager(config);
+        Check.equal("Ann", manager.getStudent("S0").getName(), "student before the torn record");
+        Check.equal("Bo", manager.getStudent("S1").getName(), "student appended after the restart");
+        Check.equal(null, manager.getStudent("S9"), "student from the torn record");
+        manager.shutdown();
+    }
+
+    static void checkRoundTrip(StorageConfig config) 
+    {
+        String before = dumpAfterMutating(config);
+        Check.equal(before, restart(config), "state after restart");
+    }
+
+    private static String dumpAfterMutating(StorageConfig config) 
+    {
+        EnrollmentManager manager = new EnrollmentManager(config);
+        mutate(manager, 0);
+        mutate(manager, 1);
+        String state = dump(manager);
+        manager.shutdown();
+        return state;
+    }
+
+    static String restart(StorageConfig config) 
+    {
+        EnrollmentManager manager = new EnrollmentManager(config);
+        try 
+        {
+            Check.equal(null, manager.checkInvariants(), "invariant violation after restart");
+            return dump(manager);
+        }
+        finally 
+        {
+            manager.shutdown();
+        }
+    }
+
+    // Adds, updates, enrollments, drops, transfers and cascading deletes; round 0 creates the data
+    private static void mutate(EnrollmentManager manager, int round) 
+    {
+        if(round == 0) 
+        {
+            for(int i = 0; i < 4; i++) 
+            {
+                manager.addCourse("C" + i, "Course " + i, 10 + i);
+            }
+            for(int i = 0; i < STUDENTS; i++) 
+            {
+                manager.addStudent("S" + i, "Student " + i, "s" + i + "@example.com");
+            }
+        }
+        for(int i = round; i < STUDENTS; i += 2) 
+        {
+            manager.enroll("S" + i, "C" + (i % 4));
+            manager.enroll("S" + i, "C" + ((i + 1) % 4));
+        }
+        manager.deleteCourseEnrollment("S" + (round + 4), "C" + ((round + 4) % 4));
+        manager.updateCourseEnrollment("S" + (round + 6), "C" + ((round + 6) % 4), "C3");
+        manager.updateStudentDetails("S" + (round + 8), "Renamed " + round, "renamed" + round + "@example.com");
+        manager.updateCourseDetails("C" + round, "Retitled " + round, 20);
+        manager.deleteStudentDetails("S" + (round + 10));
+        manager.addStudent("S" + (STUDENTS + round), "Late " + round, "late" + round + "@example.com");
+        if(round == 1) 
+        {
+            manager.addCourse("X", "Short-lived", 5);
+            manager.enroll("S1", "X");
+            manager.deleteCourseDetails("X");
+        }
+    }
+
+    // Every student, course and enrollment, in a stable order
+    static String dump(EnrollmentManager manager) 
+    {
+        TreeSet<String> lines = new TreeSet<>();
+        for(Course course : manager.getCourses()) 
+        {
+            lines.add("course " + course.getId() + "," + course.getName() + "," + course.getCapacity());
+            for(Student student : course.getRoster()) 
+            {
+                lines.add("enrollment " + student.getStudentId() + "," + course.getId());
+            }
+        }
+        for(int i = 0; i < STUDENTS + 2; i++) 
+        {
+            Student student = manager.getStudent("S" + i);
+            if(student != null) 
+            {
+                lines.add("student " + student.getStudentId() + "," + student.getName() + "," + student.getEmail() + "," + student.getCourses().size());
+            }
+        }
+        return String.join("\n", lines);
+    }
+
+    static StorageConfig config(File directory) 
+    {
+        StorageConfig config = new StorageConfig();
+        config.setDataDirectory(directory);
+        return config;
+    }
+
+    private static int logSegments(StorageConfig config) 
+    {
+        File[] segments = config.getDataDirectory().listFiles((directory, name) -> name.endsWith(".log"));
+        return segments == null ? 0 : segments.length;
+    }
+}
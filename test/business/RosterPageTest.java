@@ -0,0 +1,160 @@
+package business;
+
+import data.Page;
+import data.RosterOrder;
+import data.StorageConfig;
+import data.Student;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import testing.Check;
+
+// Cursor-paged rosters, in name order while students are renamed
+public class RosterPageTest 
+{
+    public static void testRenameMovesStudentInNameOrder() throws Exception 
+    {
+        EnrollmentManager manager = newManager();
+        manager.addCourse("CS101", "Algorithms", 10);
+        manager.addCourse("CS102", "Compilers", 10);
+        String[] names = {"Ada", "Brian", "Carol", "Dennis"};
+        for(int i = 0; i < names.length; i++) 
+        {
+            manager.addStudent("S" + i, names[i], "s" + i + "@example.com");
+            manager.enroll("S" + i, i == 0 ? "CS101" : "CS102");
+            manager.enroll("S" + i, i == 0 ? "CS102" : "CS101");
+        }
+        manager.addStudent("S9", "Aaron", "s9@example.com");
+        manager.enroll("S9", "CS102");
+        Check.equal(List.of("S0", "S1", "S2", "S3"), nameOrder(manager, "CS101", 10), "names before the rename");
+
+        Check.equal(EnrollmentResult.STUDENT_UPDATED, manager.updateStudentDetails("S0", "Zoe", "s0@example.com"), "rename");
+        Check.equal(List.of("S1", "S2", "S3", "S0"), nameOrder(manager, "CS101", 10), "CS101 after the rename");
+        Check.equal(List.of("S9", "S1", "S2", "S3", "S0"), nameOrder(manager, "CS102", 2), "CS102 after the rename");
+        manager.shutdown();
+    }
+
+    public static void testNameCursorIsOpaque() throws Exception 
+    {
+        EnrollmentManager manager = newManager();
+        manager.addCourse("CS101", "Algorithms", 10);
+        for(int i = 0; i < 5; i++) 
+        {
+            manager.addStudent("S" + i, "Same Name", "s" + i + "@example.com");
+            manager.enroll("S" + i, "CS101");
+        }
+        Page<Student> page = manager.studentsInCoursePage("CS101", RosterOrder.NAME, null, 2);
+        String cursor = page.getNextCursor();
+        Check.isTrue(cursor.matches("[A-Za-z0-9_-]+"), "cursor is URL-safe: " + cursor);
+        Check.equal(List.of("S0", "S1", "S2", "S3", "S4"), nameOrder(manager, "CS101", 2), "ties broken by student ID");
+
+        try 
+        {
+            manager.studentsInCoursePage("CS101", RosterOrder.NAME, "not a cursor!", 2);
+            Check.isTrue(false, "a malformed cursor was accepted");
+        }
+        catch(IllegalArgumentException e) 
+        {
+            Check.equal("Invalid name-order cursor: not a cursor!", e.getMessage(), "error");
+        }
+        manager.shutdown();
+    }
+
+    // Renames race enrollments and drops; afterwards name order must agree with the students' names
+    public static void testNameOrderSurvivesConcurrentRenames() throws Exception 
+    {
+        EnrollmentManager manager = newManager();
+        manager.addCourse("CS101", "Algorithms", 100);
+        for(int i = 0; i < 40; i++) 
+        {
+            manager.addStudent("S" + i, "Student " + i, "s" + i + "@example.com");
+        }
+        manager.studentsInCoursePage("CS101", RosterOrder.NAME, null, 10); // Build the index up front
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Void>> futures = new ArrayList<>();
+        for(int t = 0; t < 4; t++) 
+        {
+            long seed = t;
+            boolean renames = t % 2 == 0;
+            futures.add(executor.submit(() -> {
+                Random random = new Random(seed);
+                start.await();
+                for(int i = 0; i < 2000; i++) 
+                {
+                    String studentId = "S" + random.nextInt(40);
+                    if(renames) 
+                    {
+                        manager.updateStudentDetails(studentId, "Name " + random.nextInt(1000), studentId + "@example.com");
+                    }
+                    else if(random.nextBoolean()) 
+                    {
+                        manager.enroll(studentId, "CS101");
+                    }
+                    else 
+                    {
+                        manager.deleteCourseEnrollment(studentId, "CS101");
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        try 
+        {
+            for(Future<Void> future : futures) 
+            {
+                future.get();
+            }
+        }
+        finally 
+        {
+            executor.shutdownNow();
+        }
+
+        List<Student> expected = new ArrayList<>(manager.getCourse("CS101").getRoster());
+        expected.sort(Comparator.comparing(Student::getName).thenComparing(Student::getStudentId));
+        List<String> expectedIds = new ArrayList<>();
+        for(Student student : expected) 
+        {
+            expectedIds.add(student.getStudentId());
+        }
+        Check.equal(expectedIds, nameOrder(manager, "CS101", 7), "name order");
+        manager.shutdown();
+    }
+
+    // Every student ID of the roster, paging in name order
+    private static List<String> nameOrder(EnrollmentManager manager, String courseId, int limit) 
+    {
+        List<String> ids = new ArrayList<>();
+        Page<Student> page = manager.studentsInCoursePage(courseId, RosterOrder.NAME, null, limit);
+        while(true) 
+        {
+            for(Student student : page.getItems()) 
+            {
+                ids.add(student.getStudentId());
+            }
+            if(page.getNextCursor() == null) 
+            {
+                return ids;
+            }
+            page = manager.studentsInCoursePage(courseId, RosterOrder.NAME, page.getNextCursor(), limit);
+        }
+    }
+
+    private static EnrollmentManager newManager() throws IOException 
+    {
+        File directory = Check.newDirectory();
+        StorageConfig config = new StorageConfig();
+        config.setDataDirectory(directory);
+        return new EnrollmentManager(config);
+    }
+}
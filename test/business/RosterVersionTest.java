@@ -0,0 +1,182 @@
+package business;
+
+import data.RosterVersion;
+import data.StorageConfig;
+import data.Student;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import testing.Check;
+
+// A roster version someone holds never changes; the course's next version shows the change
+public class RosterVersionTest 
+{
+    // Enrollments append into the array older versions share, drops copy it; neither may show
+    // through a version captured before them
+    public static void testCapturedVersionsStayUnchanged() throws Exception 
+    {
+        EnrollmentManager manager = newManager();
+        manager.addCourse("CS101", "Algorithms", 100);
+        for(int i = 0; i < 10; i++) 
+        {
+            manager.addStudent("S" + i, "Student " + i, "s" + i + "@example.com");
+        }
+        List<RosterVersion> versions = new ArrayList<>();
+        List<List<String>> expected = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        capture(manager, versions, expected, current);
+        for(int i = 0; i < 5; i++) 
+        {
+            manager.enroll("S" + i, "CS101");
+            current.add("S" + i);
+            capture(manager, versions, expected, current);
+        }
+        manager.enroll("S5", "CS101");
+        current.add("S5");
+        capture(manager, versions, expected, current);
+        manager.deleteCourseEnrollment("S2", "CS101");
+        current.remove("S2");
+        capture(manager, versions, expected, current);
+        manager.enroll("S6", "CS101");
+        current.add("S6");
+        capture(manager, versions, expected, current);
+        manager.enrollBatch(List.of(new String[] {"S7", "CS101"}, new String[] {"S8", "CS101"}).stream());
+        current.add("S7");
+        current.add("S8");
+        capture(manager, versions, expected, current);
+        Check.equal(EnrollmentResult.ALREADY_ENROLLED, manager.enroll("S0", "CS101"), "repeated enrollment");
+        Check.isTrue(versions.get(versions.size() - 1) == manager.getCourse("CS101").getRoster(), "version after a rejected change");
+        manager.deleteStudentDetails("S3");
+        current.remove("S3");
+        capture(manager, versions, expected, current);
+        manager.deleteCourseDetails("CS101");
+        Check.equal(List.of("S0", "S1", "S4", "S5", "S6", "S7", "S8"), ids(versions.get(versions.size() - 1)), "last version after the course was deleted");
+
+        for(int v = 0; v < versions.size(); v++) 
+        {
+            Check.equal(expected.get(v), ids(versions.get(v)), "version " + v);
+            if(v > 0) 
+            {
+                Check.isTrue(versions.get(v).getVersion() > versions.get(v - 1).getVersion(), "version numbers increase at " + v);
+            }
+        }
+        manager.shutdown();
+    }
+
+    // Readers take versions while a writer enrolls and drops; each version reads the same every
+    // time, holds no student twice, and a later read never gets an older version
+    public static void testVersionsStayUnchangedUnderConcurrentChanges() throws Exception 
+    {
+        EnrollmentManager manager = newManager();
+        manager.addCourse("CS101", "Algorithms", 100);
+        for(int i = 0; i < 40; i++) 
+        {
+            manager.addStudent("S" + i, "Student " + i, "s" + i + "@example.com");
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean done = new AtomicBoolean();
+        List<Future<Integer>> futures = new ArrayList<>();
+        futures.add(executor.submit(() -> {
+            Random random = new Random(1);
+            start.await();
+            try 
+            {
+                for(int i = 0; i < 3000; i++) 
+                {
+                    String studentId = "S" + random.nextInt(40);
+                    if(random.nextInt(3) > 0) 
+                    {
+                        manager.enroll(studentId, "CS101");
+                    }
+                    else 
+                    {
+                        manager.deleteCourseEnrollment(studentId, "CS101");
+                    }
+                }
+            }
+            finally 
+            {
+                done.set(true);
+            }
+            return 0;
+        }));
+        for(int t = 0; t < 2; t++) 
+        {
+            futures.add(executor.submit(() -> {
+                start.await();
+                int checked = 0;
+                RosterVersion previous = null;
+                List<String> previousIds = null;
+                while(!done.get()) 
+                {
+                    RosterVersion version = manager.getCourse("CS101").getRoster();
+                    List<String> versionIds = ids(version);
+                    Check.equal(versionIds.size(), new HashSet<>(versionIds).size(), "students listed twice");
+                    if(previous != null) 
+                    {
+                        Check.isTrue(version.getVersion() >= previous.getVersion(), "went back from version " + previous.getVersion() + " to " + version.getVersion());
+                        Check.equal(previousIds, ids(previous), "version " + previous.getVersion() + " read again");
+                    }
+                    previous = version;
+                    previousIds = versionIds;
+                    checked++;
+                }
+                return checked;
+            }));
+        }
+        start.countDown();
+        try 
+        {
+            for(Future<Integer> future : futures) 
+            {
+                future.get();
+            }
+        }
+        finally 
+        {
+            executor.shutdownNow();
+        }
+
+        Set<String> enrolled = new HashSet<>(ids(manager.getCourse("CS101").getRoster()));
+        for(int i = 0; i < 40; i++) 
+        {
+            Check.equal(manager.getStudent("S" + i).isEnrolled(manager.getCourse("CS101")), enrolled.contains("S" + i), "S" + i + " in the last version");
+        }
+        manager.shutdown();
+    }
+
+    private static void capture(EnrollmentManager manager, List<RosterVersion> versions, List<List<String>> expected, List<String> current) 
+    {
+        RosterVersion version = manager.getCourse("CS101").getRoster();
+        Check.equal(current, ids(version), "new version");
+        versions.add(version);
+        expected.add(new ArrayList<>(current));
+    }
+
+    private static List<String> ids(RosterVersion version) 
+    {
+        List<String> ids = new ArrayList<>();
+        for(Student student : version) 
+        {
+            ids.add(student.getStudentId());
+        }
+        return ids;
+    }
+
+    private static EnrollmentManager newManager() throws IOException 
+    {
+        StorageConfig config = new StorageConfig();
+        config.setDataDirectory(Check.newDirectory());
+        return new EnrollmentManager(config);
+    }
+}
@@ -0,0 +1,145 @@
+package business;
+
+import data.Course;
+import data.StorageConfig;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import testing.Check;
+
+// Transactions apply all of their changes or none, and what they saved replays to the same rosters
+public class TransactionTest 
+{
+    private static final int STUDENTS = 30;
+    private static final int COURSES = 4;
+
+    public static void testFailedChangeAppliesNothing() throws Exception 
+    {
+        StorageConfig config = RestartTest.config(Check.newDirectory());
+        config.setLogMode(true);
+        EnrollmentManager manager = new EnrollmentManager(config);
+        manager.addCourse("CS101", "Algorithms", 5);
+        manager.addCourse("CS102", "Compilers", 1);
+        manager.addStudent("S0", "Ada", "s0@example.com");
+        manager.addStudent("S1", "Brian", "s1@example.com");
+        manager.enroll("S0", "CS101");
+        manager.enroll("S1", "CS102");
+        String before = RestartTest.dump(manager);
+
+        Transaction full = manager.transaction().transfer("S0", "CS101", "CS102");
+        Check.equal(EnrollmentResult.COURSE_FULL, full.commit(), "transfer into a full course");
+        Check.equal(1, full.getFailedChange(), "failed change");
+        Transaction missing = manager.transaction().drop("S1", "CS102").enroll("S9", "CS101");
+        Check.equal(EnrollmentResult.INVALID_STUDENT, missing.commit(), "enrollment of a missing student");
+        Check.equal(1, missing.getFailedChange(), "failed change");
+        Transaction twice = manager.transaction().enroll("S1", "CS101").enroll("S1", "CS101");
+        Check.equal(EnrollmentResult.ALREADY_ENROLLED, twice.commit(), "the same enrollment twice");
+        Check.equal(EnrollmentResult.NEW_COURSE_FULL, manager.updateCourseEnrollment("S0", "CS101", "CS102"), "transfer");
+
+        Check.equal(before, RestartTest.dump(manager), "state after the failed transactions");
+        manager.shutdown();
+        Check.equal(before, RestartTest.restart(config), "state after restart");
+    }
+
+    // A swap between two full courses only fits if its drops free seats for its enrollments
+    public static void testSwapBetweenFullCourses() throws Exception 
+    {
+        StorageConfig config = RestartTest.config(Check.newDirectory());
+        EnrollmentManager manager = new EnrollmentManager(config);
+        manager.addCourse("CS101", "Algorithms", 1);
+        manager.addCourse("CS102", "Compilers", 1);
+        manager.addStudent("S0", "Ada", "s0@example.com");
+        manager.addStudent("S1", "Brian", "s1@example.com");
+        manager.enroll("S0", "CS101");
+        manager.enroll("S1", "CS102");
+
+        Transaction swap = manager.transaction().transfer("S0", "CS101", "CS102").transfer("S1", "CS102", "CS101");
+        Check.equal(EnrollmentResult.TRANSACTION_COMMITTED, swap.commit(), "swap");
+        Check.isTrue(manager.getStudent("S0").isEnrolled(manager.getCourse("CS102")), "S0 moved");
+        Check.isTrue(manager.getStudent("S1").isEnrolled(manager.getCourse("CS101")), "S1 moved");
+        String before = RestartTest.dump(manager);
+        manager.shutdown();
+        Check.equal(before, RestartTest.restart(config), "state after restart");
+    }
+
+    public static void testConcurrentTransfersReplayFromLog() throws Exception 
+    {
+        StorageConfig config = RestartTest.config(Check.newDirectory());
+        config.setLogMode(true);
+        checkConcurrentTransfers(config);
+    }
+
+    public static void testConcurrentTransfersReplayFromCsv() throws Exception 
+    {
+        checkConcurrentTransfers(RestartTest.config(Check.newDirectory()));
+    }
+
+    // Threads move the same students between the same courses, one transfer or swap at a time; the
+    // rosters after a restart must be the ones the transactions left
+    private static void checkConcurrentTransfers(StorageConfig config) throws Exception 
+    {
+        EnrollmentManager manager = new EnrollmentManager(config);
+        for(int c = 0; c < COURSES; c++) 
+        {
+            manager.addCourse("CS10" + c, "Course " + c, STUDENTS / COURSES + 1);
+        }
+        for(int i = 0; i < STUDENTS; i++) 
+        {
+            manager.addStudent("S" + i, "Student " + i, "s" + i + "@example.com");
+            manager.enroll("S" + i, "CS10" + i % COURSES);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Void>> futures = new ArrayList<>();
+        for(int t = 0; t < 4; t++) 
+        {
+            long seed = t;
+            futures.add(executor.submit(() -> {
+                Random random = new Random(seed);
+                start.await();
+                for(int i = 0; i < 300; i++) 
+                {
+                    String studentId = "S" + random.nextInt(6); // Few students, so transfers conflict
+                    String target = "CS10" + random.nextInt(COURSES);
+                    Course current = manager.getStudent(studentId).getCourses().stream().findFirst().orElse(null);
+                    if(current == null || current.getId().equals(target)) 
+                    {
+                        continue;
+                    }
+                    if(random.nextBoolean()) 
+                    {
+                        manager.updateCourseEnrollment(studentId, current.getId(), target);
+                    }
+                    else 
+                    {
+                        String other = "S" + (6 + random.nextInt(STUDENTS - 6));
+                        manager.transaction().transfer(studentId, current.getId(), target).drop(other, target).enroll(other, current.getId()).commit();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        try 
+        {
+            for(Future<Void> future : futures) 
+            {
+                future.get();
+            }
+        }
+        finally 
+        {
+            executor.shutdownNow();
+        }
+
+        Check.equal(null, manager.checkInvariants(), "invariant violation");
+        String before = RestartTest.dump(manager);
+        manager.shutdown();
+        Check.equal(before, RestartTest.restart(config), "state after restart");
+    }
+}
@@ -0,0 +1,143 @@
+package data;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+import testing.Check;
+
+// CompressedBitmap against java.util.BitSet, around the 4096-value limit where a container switches
+// between a sorted array and a bitmap
+public class CompressedBitmapTest 
+{
+    private static final int ARRAY_MAX = 4096;
+    private static final int CONTAINER = 1 << 16;
+
+    public static void testContainerSwitchesAtArrayLimit() 
+    {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        BitSet expected = new BitSet();
+        for(int i = 0; i < ARRAY_MAX; i++) 
+        {
+            bitmap.add(CONTAINER + i * 3);
+            expected.set(CONTAINER + i * 3);
+        }
+        Check.equal(0, bitmap.bitmapContainers(), "bitmaps at " + ARRAY_MAX + " values");
+        checkSame(expected, bitmap, "at the limit");
+
+        bitmap.add(CONTAINER + 1);
+        expected.set(CONTAINER + 1);
+        Check.equal(1, bitmap.bitmapContainers(), "bitmaps past the limit");
+        checkSame(expected, bitmap, "past the limit");
+        Check.isTrue(!bitmap.add(CONTAINER + 1), "a value added twice");
+
+        bitmap.remove(CONTAINER + 3);
+        expected.clear(CONTAINER + 3);
+        Check.equal(0, bitmap.bitmapContainers(), "bitmaps back at the limit");
+        checkSame(expected, bitmap, "back at the limit");
+        Check.isTrue(!bitmap.remove(CONTAINER + 3), "a value removed twice");
+    }
+
+    // Results that land exactly on either side of the limit, from array and bitmap inputs
+    public static void testOperationsAtArrayLimit() 
+    {
+        checkOperations(range(0, 3000), range(1000, ARRAY_MAX), "union of arrays at the limit");
+        checkOperations(range(0, 3000), range(1000, ARRAY_MAX + 1), "union of arrays past the limit");
+        checkOperations(range(0, 5000), range(904, 5000), "intersection of bitmaps at the limit");
+        checkOperations(range(0, 5000), range(903, 5000), "intersection of bitmaps past the limit");
+        checkOperations(range(0, 5000), range(0, 904), "difference of a bitmap at the limit");
+        checkOperations(range(0, 5000), range(0, 903), "difference of a bitmap past the limit");
+        checkOperations(range(0, 5000), new BitSet(), "operations with an empty set");
+    }
+
+    // Random sets spread over several containers, each container sized around the limit
+    public static void testRandomOperationsMatchBitSet() 
+    {
+        int[] counts = {0, 1, 100, 4000, ARRAY_MAX - 1, ARRAY_MAX, ARRAY_MAX + 1, 6000, 40_000, CONTAINER};
+        Random random = new Random(7);
+        for(int round = 0; round < 200; round++) 
+        {
+            BitSet a = new BitSet();
+            BitSet b = new BitSet();
+            for(int key = 0; key < 3; key++) 
+            {
+                fill(a, key, counts[random.nextInt(counts.length)], random);
+                fill(b, key, counts[random.nextInt(counts.length)], random);
+            }
+            checkOperations(a, b, "round " + round);
+        }
+    }
+
+    private static void checkOperations(BitSet a, BitSet b, String when) 
+    {
+        CompressedBitmap left = of(a);
+        CompressedBitmap right = of(b);
+
+        BitSet and = (BitSet) a.clone();
+        and.and(b);
+        checkSame(and, CompressedBitmap.and(left, right), "and, " + when);
+        Check.equal(and.cardinality(), CompressedBitmap.andCardinality(left, right), "andCardinality, " + when);
+
+        BitSet or = (BitSet) a.clone();
+        or.or(b);
+        checkSame(or, CompressedBitmap.or(left, right), "or, " + when);
+
+        BitSet andNot = (BitSet) a.clone();
+        andNot.andNot(b);
+        checkSame(andNot, CompressedBitmap.andNot(left, right), "andNot, " + when);
+        BitSet reverse = (BitSet) b.clone();
+        reverse.andNot(a);
+        checkSame(reverse, CompressedBitmap.andNot(right, left), "reversed andNot, " + when);
+
+        checkSame(a, left, "left input, " + when);
+        checkSame(b, right, "right input, " + when);
+    }
+
+    // Same values, and a bitmap container exactly where a container holds more than ARRAY_MAX of them
+    private static void checkSame(BitSet expected, CompressedBitmap actual, String when) 
+    {
+        int[] values = actual.toArray();
+        if(!Arrays.equals(expected.stream().toArray(), values)) 
+        {
+            throw new AssertionError("values differ, " + when + ": expected " + expected.cardinality() + " values, got " + values.length);
+        }
+        Check.equal(expected.cardinality(), actual.getCardinality(), "cardinality, " + when);
+        Check.equal(expected.isEmpty(), actual.isEmpty(), "isEmpty, " + when);
+        int bitmaps = 0;
+        for(int key = 0; key * CONTAINER < expected.length(); key++) 
+        {
+            bitmaps += expected.get(key * CONTAINER, (key + 1) * CONTAINER).cardinality() > ARRAY_MAX ? 1 : 0;
+        }
+        Check.equal(bitmaps, actual.bitmapContainers(), "bitmap containers, " + when);
+    }
+
+    private static void fill(BitSet set, int key, int count, Random random) 
+    {
+        if(count == CONTAINER) 
+        {
+            set.set(key * CONTAINER, (key + 1) * CONTAINER);
+            return;
+        }
+        int added = 0;
+        while(added < count) 
+        {
+            int value = key * CONTAINER + random.nextInt(CONTAINER);
+            if(!set.get(value)) 
+            {
+                set.set(value);
+                added++;
+            }
+        }
+    }
+
+    private static BitSet range(int from, int to) 
+    {
+        BitSet set = new BitSet();
+        set.set(from, to);
+        return set;
+    }
+
+    private static CompressedBitmap of(BitSet set) 
+    {
+        return CompressedBitmap.of(set.stream().toArray());
+    }
+}
@@ -0,0 +1,194 @@
+package data;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import testing.Check;
+
+// RFC 4180 parsing: quoting, escaped quotes, line breaks in fields and records split between reads
+public class CsvParserTest 
+{
+    public static void testQuotedFields() 
+    {
+        check("a,\"b,c\",d\n", "[[a, b,c, d]]", "quoted comma");
+        check("\"say \"\"hi\"\"\",x\n", "[[say \"hi\", x]]", "escaped quotes");
+        check("\"\"\"\",\"\"\n", "[[\", ]]", "a lone escaped quote and an empty quoted field");
+        check("\"line\nbreak\",\"cr\r\nlf\",\"cr\ronly\"\n", "[[line\nbreak, cr\r\nlf, cr\ronly]]", "line breaks inside quotes");
+        check("  a  , \"  b  \" ,\tc\t\n", "[[a,   b  , c]]", "blanks trimmed outside quotes only");
+        check("a,,\n,\n", "[[a, , ], [, ]]", "empty fields");
+    }
+
+    public static void testLineEndings() 
+    {
+        check("a,b\r\nc,d\re,f\ng,h", "[[a, b], [c, d], [e, f], [g, h]]", "CRLF, CR, LF and no final newline");
+        check("a,\"b\"", "[[a, b]]", "closing quote at the end of input");
+        check("a,\"b\nc", "[[a, b\nc]]", "unterminated quote at the end of input");
+        check("\n\r\n\na\n\n", "[[a]]", "blank lines");
+        check("", "[]", "empty input");
+    }
+
+    // Every split of the input between two reads, including inside an escaped quote and between CR and LF
+    public static void testRecordSplitAcrossReads() throws IOException 
+    {
+        String text = "S1,\"Ada, \"\"the first\"\"\",a@example.com\r\nS2,\"two\r\nlines\",b@example.com\r\nS3,  Carol  ,c@example.com";
+        String expected = "[[S1, Ada, \"the first\", a@example.com], [S2, two\r\nlines, b@example.com], [S3, Carol, c@example.com]]";
+        check(text, expected, "in one read");
+        for(int split = 1; split < text.length(); split++) 
+        {
+            Check.equal(expected, parse(new SplitReader(text, split)), "split after " + split + " characters");
+        }
+        for(int size = 1; size <= 7; size++) 
+        {
+            Check.equal(expected, parse(new ChunkedReader(text, size)), "reads of " + size + " characters");
+        }
+
+        // Longer than the parser's own read buffer and its initial record buffer
+        StringBuilder field = new StringBuilder();
+        for(int i = 0; i < 200_000; i++) 
+        {
+            field.append(i % 100 == 0 ? "\"\"" : i % 37 == 0 ? "," : "x");
+        }
+        String value = field.toString().replace("\"\"", "\"");
+        List<String[]> records = records(new StringReader("\"" + field + "\",end\nnext,record\n"));
+        Check.equal(2, records.size(), "records around a long field");
+        Check.equal(value, records.get(0)[0], "long field");
+        Check.equal("end", records.get(0)[1], "field after the long one");
+        Check.equal(Arrays.asList("next", "record"), Arrays.asList(records.get(1)), "record after the long one");
+    }
+
+    // Whatever escape writes parses back to the same fields, from a reader, a buffer or a single line
+    public static void testEscapeRoundTrip() throws IOException 
+    {
+        String alphabet = "ab ,\"\r\n\tx";
+        Random random = new Random(3);
+        List<String[]> written = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        for(int r = 0; r < 2000; r++) 
+        {
+            String[] record = new String[2 + random.nextInt(3)];
+            StringBuilder line = new StringBuilder();
+            for(int f = 0; f < record.length; f++) 
+            {
+                char[] chars = new char[random.nextInt(6)];
+                for(int c = 0; c < chars.length; c++) 
+                {
+                    chars[c] = alphabet.charAt(random.nextInt(alphabet.length()));
+                }
+                record[f] = new String(chars);
+                line.append(f == 0 ? "" : ",").append(CsvParser.escape(record[f]));
+            }
+            written.add(record);
+            text.append(line).append(r % 2 == 0 ? "\n" : "\r\n");
+            Check.equal(Arrays.asList(record), Arrays.asList(new CsvParser().parseLine(line).getFields()), "line " + line);
+        }
+
+        List<String[]> read = records(new ChunkedReader(text.toString(), 1000));
+        List<String[]> buffered = new ArrayList<>();
+        new CsvParser().parse(CharBuffer.wrap(text), record -> buffered.add(record.getFields()));
+        Check.equal(written.size(), read.size(), "records read");
+        Check.equal(written.size(), buffered.size(), "records from a buffer");
+        for(int r = 0; r < written.size(); r++) 
+        {
+            Check.equal(Arrays.asList(written.get(r)), Arrays.asList(read.get(r)), "record " + r);
+            Check.equal(Arrays.asList(written.get(r)), Arrays.asList(buffered.get(r)), "buffered record " + r);
+        }
+        Check.equal("plain", CsvParser.escape("plain"), "plain field");
+        Check.equal("\" padded\"", CsvParser.escape(" padded"), "field with a leading blank");
+    }
+
+    private static void check(String text, String expected, String message) 
+    {
+        try 
+        {
+            Check.equal(expected, parse(new StringReader(text)), message);
+        }
+        catch(IOException e) 
+        {
+            throw new AssertionError(message + ": " + e);
+        }
+    }
+
+    private static String parse(Reader reader) throws IOException 
+    {
+        List<List<String>> records = new ArrayList<>();
+        for(String[] record : records(reader)) 
+        {
+            records.add(Arrays.asList(record));
+        }
+        return records.toString();
+    }
+
+    private static List<String[]> records(Reader reader) throws IOException 
+    {
+        List<String[]> records = new ArrayList<>();
+        new CsvParser().parse(reader, record -> records.add(record.getFields()));
+        return records;
+    }
+
+    // Hands out the text at most size characters per read
+    private static class ChunkedReader extends Reader 
+    {
+        private final String text;
+        private final int size;
+        private int position;
+
+        ChunkedReader(String text, int size) 
+        {
+            this.text = text;
+            this.size = size;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException 
+        {
+            if(position == text.length()) 
+            {
+                return -1;
+            }
+            int n = Math.min(Math.min(length, size), text.length() - position);
+            text.getChars(position, position + n, buffer, offset);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public void close() 
+        {
+        }
+    }
+
+    // Hands out the text in two reads, the first one ending after split characters
+    private static class SplitReader extends ChunkedReader 
+    {
+        private boolean first = true;
+
+        SplitReader(String text, int split) 
+        {
+            super(text, split);
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException 
+        {
+            int n = first ? super.read(buffer, offset, length) : readRest(buffer, offset, length);
+            first = false;
+            return n;
+        }
+
+        private int readRest(char[] buffer, int offset, int length) throws IOException 
+        {
+            int total = 0;
+            int n;
+            while(total < length && (n = super.read(buffer, offset + total, length - total)) > 0) 
+            {
+                total += n;
+            }
+            return total == 0 ? -1 : total;
+        }
+    }
+}
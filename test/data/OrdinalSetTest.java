@@ -0,0 +1,176 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import testing.Check;
+
+// OrdinalSet against a LinkedHashSet: membership and insertion order through growth, removal and compaction
+public class OrdinalSetTest 
+{
+    // Past the scanned small-set size and through several index rebuilds
+    public static void testGrowthKeepsEveryMember() 
+    {
+        OrdinalSet set = new OrdinalSet();
+        for(int i = 0; i < 1000; i++) 
+        {
+            Check.isTrue(set.add(i * 7), "added " + i * 7);
+            Check.equal(i + 1, set.size(), "size");
+        }
+        for(int i = 0; i < 1000 * 7; i++) 
+        {
+            Check.equal(i % 7 == 0, set.contains(i), "contains " + i);
+        }
+        Check.isTrue(!set.add(70), "a member added twice");
+        Check.equal(1000, set.size(), "size after the repeated add");
+    }
+
+    // Removals from the middle of probe runs have to shift later entries back, or they are lost
+    public static void testRemoveKeepsProbeRunsReachable() 
+    {
+        OrdinalSet set = new OrdinalSet();
+        Set<Integer> expected = new LinkedHashSet<>();
+        Random random = new Random(42);
+        for(int i = 0; i < 200_000; i++) 
+        {
+            int value = random.nextInt(300); // Few values, so the index is crowded and probe runs are long
+            if(random.nextInt(3) == 0) 
+            {
+                Check.equal(expected.remove(value), set.remove(value), "remove " + value + " at step " + i);
+            }
+            else 
+            {
+                Check.equal(expected.add(value), set.add(value), "add " + value + " at step " + i);
+            }
+            if(i % 1000 == 0) 
+            {
+                checkSame(expected, set, "step " + i);
+            }
+        }
+        checkSame(expected, set, "end");
+
+        OrdinalSet half = new OrdinalSet();
+        for(int i = 0; i < 40; i++) 
+        {
+            half.add(i);
+        }
+        for(int i = 0; i < 40; i += 2) 
+        {
+            Check.isTrue(half.remove(i), "removed " + i);
+            Check.isTrue(!half.remove(i), "removed " + i + " twice");
+        }
+        for(int i = 0; i < 40; i++) 
+        {
+            Check.equal(i % 2 == 1, half.contains(i), "contains " + i);
+        }
+    }
+
+    // A removed member added again goes to the end; compaction keeps the order of the rest
+    public static void testIterationFollowsInsertionOrder() 
+    {
+        OrdinalSet set = new OrdinalSet();
+        Set<Integer> expected = new LinkedHashSet<>();
+        for(int i = 0; i < 100; i++) 
+        {
+            set.add(i);
+            expected.add(i);
+        }
+        for(int i = 0; i < 90; i++) 
+        {
+            set.remove(i);
+            expected.remove(i);
+        }
+        // Holes outnumber members, so growing compacts first
+        for(int i = 50; i >= 0; i--) 
+        {
+            set.add(i);
+            expected.add(i);
+        }
+        checkSame(expected, set, "after compaction");
+        set.remove(95);
+        expected.remove(95);
+        set.add(95);
+        expected.add(95);
+        checkSame(expected, set, "after re-adding a member");
+    }
+
+    // The owning Student or Course locks the set around every call; a reader holding that lock while
+    // a writer keeps adding sees some prefix of the additions, in order
+    public static void testIterationDuringConcurrentAdds() throws Exception 
+    {
+        OrdinalSet set = new OrdinalSet();
+        int adds = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> futures = new ArrayList<>();
+        futures.add(executor.submit(() -> {
+            start.await();
+            for(int i = 0; i < adds; i++) 
+            {
+                synchronized(set) 
+                {
+                    set.add(i);
+                }
+            }
+            return adds;
+        }));
+        for(int t = 0; t < 2; t++) 
+        {
+            futures.add(executor.submit(() -> {
+                start.await();
+                int seen = 0;
+                while(seen < adds) 
+                {
+                    List<Integer> visited = new ArrayList<>();
+                    synchronized(set) 
+                    {
+                        set.forEach(visited::add);
+                        Check.equal(set.size(), visited.size(), "members visited");
+                    }
+                    Check.isTrue(visited.size() >= seen, "the set shrank from " + seen + " to " + visited.size());
+                    for(int i = 0; i < visited.size(); i++) 
+                    {
+                        if(visited.get(i) != i) 
+                        {
+                            throw new AssertionError("member " + i + " was " + visited.get(i));
+                        }
+                    }
+                    seen = visited.size();
+                }
+                return seen;
+            }));
+        }
+        start.countDown();
+        try 
+        {
+            for(Future<Integer> future : futures) 
+            {
+                Check.equal(adds, future.get(), "members");
+            }
+        }
+        finally 
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void checkSame(Set<Integer> expected, OrdinalSet set, String when) 
+    {
+        List<Integer> visited = new ArrayList<>();
+        set.forEach(visited::add);
+        Check.equal(new ArrayList<>(expected), visited, "members " + when);
+        int[] array = set.toArray();
+        Check.equal(expected.size(), array.length, "array length " + when);
+        for(int i = 0; i < array.length; i++) 
+        {
+            Check.equal(visited.get(i), array[i], "array member " + i + " " + when);
+        }
+        Check.equal(expected.size(), set.size(), "size " + when);
+    }
+}
@@ -0,0 +1,97 @@
+package data;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import testing.Check;
+
+// The durability barrier of the write-behind queue, including when the writer cannot write
+public class WriteBehindQueueTest 
+{
+    public static void testBarrierWaitsForQueuedWrites() throws Exception 
+    {
+        RecordingSink sink = new RecordingSink();
+        WriteBehindQueue queue = new WriteBehindQueue(16, sink);
+        for(int i = 0; i < 100; i++) 
+        {
+            queue.append(null, "record " + i);
+        }
+        queue.awaitDurable();
+        Check.equal(100, sink.lines.size(), "records written before the barrier returned");
+        Check.equal("record 99", sink.lines.get(99), "last record");
+        queue.close();
+    }
+
+    public static void testFailedWriteIsReportedByEveryLaterBarrier() throws Exception 
+    {
+        RecordingSink sink = new RecordingSink();
+        sink.failing = new File("enrollments.csv");
+        WriteBehindQueue queue = new WriteBehindQueue(16, sink);
+        queue.append(null, "logged");
+        queue.append(sink.failing, "lost");
+        checkBarrierFails(queue, "failed write");
+
+        queue.append(null, "after the failure");
+        checkBarrierFails(queue, "the same failure again");
+        Check.equal(List.of("logged", "after the failure"), sink.lines, "records that reached the sink");
+        queue.close();
+    }
+
+    public static void testFailedTaskAndCommitAreReported() throws Exception 
+    {
+        WriteBehindQueue tasks = new WriteBehindQueue(16, new RecordingSink());
+        tasks.submit(() -> {
+            throw new IOException("rewrite failed");
+        });
+        checkBarrierFails(tasks, "failed rewrite");
+        tasks.close();
+
+        RecordingSink sink = new RecordingSink();
+        sink.failCommit = true;
+        WriteBehindQueue commits = new WriteBehindQueue(16, sink);
+        commits.append(null, "record");
+        checkBarrierFails(commits, "failed commit");
+        commits.close();
+    }
+
+    private static void checkBarrierFails(WriteBehindQueue queue, String message) throws InterruptedException 
+    {
+        try 
+        {
+            queue.awaitDurable();
+            Check.isTrue(false, "barrier passed after a " + message);
+        }
+        catch(IOException e) 
+        {
+            Check.isTrue(e.getMessage().startsWith("Queued writes failed: "), "barrier error: " + e.getMessage());
+        }
+    }
+
+    // Keeps what it is sent; fails appends to one file, or every commit
+    private static final class RecordingSink implements WriteBehindQueue.Sink 
+    {
+        final List<String> lines = new ArrayList<>();
+        File failing;
+        boolean failCommit;
+
+        @Override
+        public void appendAll(File file, List<String> appended) throws IOException 
+        {
+            if(file != null && file.equals(failing)) 
+            {
+                throw new IOException("disk full");
+            }
+            lines.addAll(appended);
+        }
+
+        @Override
+        public void commit() throws IOException 
+        {
+            if(failCommit) 
+            {
+                throw new IOException("commit failed");
+            }
+        }
+    }
+}
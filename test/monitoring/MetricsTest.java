@@ -0,0 +1,106 @@
+package monitoring;
+
+import testing.Check;
+
+// Histogram counts and percentiles for known latencies, and Metrics with the switch on or off
+public class MetricsTest 
+{
+    public static void testPercentilesOfKnownLatencies() 
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for(int i = 1000; i >= 1; i--) 
+        {
+            histogram.record(i * 1000L); // 1 us to 1 ms, out of order
+        }
+        Check.equal(1000L, histogram.getCount(), "count");
+        Check.equal(500_500_000L, histogram.getTotalNanos(), "total");
+        Check.equal(500_500.0, histogram.getMeanNanos(), "mean");
+        Check.equal(1_000_000L, histogram.getMaxNanos(), "max");
+        checkNear(500_000, histogram.getPercentileNanos(50), "p50");
+        checkNear(990_000, histogram.getPercentileNanos(99), "p99");
+        checkNear(1000, histogram.getPercentileNanos(0), "p0");
+        Check.equal(1_000_000L, histogram.getPercentileNanos(100), "p100 is the max");
+
+        histogram.reset();
+        Check.equal(0L, histogram.getCount(), "count after reset");
+        Check.equal(0L, histogram.getPercentileNanos(99), "p99 after reset");
+        Check.equal(0.0, histogram.getMeanNanos(), "mean after reset");
+    }
+
+    // Values below 128 get a bucket each; negative ones count as zero
+    public static void testSmallLatenciesAreExact() 
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for(int i = 0; i < 128; i++) 
+        {
+            histogram.record(i);
+        }
+        histogram.record(-5);
+        Check.equal(129L, histogram.getCount(), "count");
+        Check.equal(63L, histogram.getPercentileNanos(50), "p50");
+        Check.equal(126L, histogram.getPercentileNanos(99), "p99");
+        Check.equal(0L, histogram.getPercentileNanos(0.5), "negative value counted as zero");
+    }
+
+    public static void testBucketErrorIsBounded() 
+    {
+        for(long value = 1; value > 0 && value < Long.MAX_VALUE / 3; value = value * 3 + 1) 
+        {
+            for(long v = value; v < value + 200; v++) 
+            {
+                long bucket = LatencyHistogram.valueOf(LatencyHistogram.indexOf(v));
+                Check.isTrue(Math.abs(bucket - v) <= v / 64, v + " reported as " + bucket);
+            }
+        }
+    }
+
+    // AllTests runs without -Denrollment.metrics, so record and increment do nothing; with the switch
+    // on they count
+    public static void testSwitchGuardsRecording() 
+    {
+        long start = Metrics.start();
+        Metrics.record("test.switched", start);
+        Metrics.increment("test.counter");
+        if(!Metrics.ENABLED) 
+        {
+            Check.equal(0L, start, "start with metrics off");
+            Check.isTrue(!Metrics.getHistograms().containsKey("test.switched"), "histogram created with metrics off");
+            Check.equal(0L, Metrics.getCounter("test.counter"), "counter with metrics off");
+            Check.isTrue(!Metrics.report().contains("test.switched"), "report with metrics off");
+        }
+        else 
+        {
+            Check.equal(1L, Metrics.histogram("test.switched").getCount(), "recorded operations");
+            Check.equal(1L, Metrics.getCounter("test.counter"), "counter");
+        }
+    }
+
+    // The report is read from the histograms whichever way the switch is set
+    public static void testReportListsHistograms() 
+    {
+        LatencyHistogram histogram = Metrics.histogram("test.report");
+        histogram.reset();
+        for(int i = 0; i < 100; i++) 
+        {
+            histogram.record(2_000);
+        }
+        String line = null;
+        for(String candidate : Metrics.report().split("\\R")) 
+        {
+            if(candidate.startsWith("test.report ")) 
+            {
+                line = candidate;
+            }
+        }
+        Check.isTrue(line != null, "no report line for test.report");
+        Check.equal("test.report 100 2.0 2.0 2.0 2.0 2.0", line.replaceAll("\\s+", " ").trim(), "report line");
+        Metrics.reset();
+        Check.equal(0L, Metrics.histogram("test.report").getCount(), "count after Metrics.reset");
+    }
+
+    // Buckets above 128 ns are 1/64 of their power of two wide
+    private static void checkNear(long expected, long actual, String message) 
+    {
+        Check.isTrue(Math.abs(actual - expected) <= expected / 64, message + ": expected about " + expected + " but was " + actual);
+    }
+}
@@ -0,0 +1,69 @@
+package presentation;
+
+import business.EnrollmentManager;
+import data.StorageConfig;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import testing.Check;
+
+// Status codes for good and malformed requests
+public class EnrollmentHttpServerTest 
+{
+    public static void testRequestsAndErrors() throws Exception 
+    {
+        StorageConfig config = new StorageConfig();
+        config.setDataDirectory(Check.newDirectory());
+        EnrollmentManager manager = new EnrollmentManager(config);
+        EnrollmentHttpServer server = new EnrollmentHttpServer(manager);
+        server.start(0);
+        try 
+        {
+            String base = "http://127.0.0.1:" + server.getPort();
+            Check.equal(201, request(base, "POST", "/students", "studentId=S1&name=Ann%20Lee&email=ann@anits.edu.in"), "add student");
+            Check.equal(201, request(base, "POST", "/courses", "{\"courseId\":\"C1\",\"name\":\"Algorithms\",\"capacity\":2}"), "add course");
+            Check.equal(201, request(base, "POST", "/enrollments", "studentId=S1&courseId=C1"), "enroll");
+            Check.equal(200, request(base, "GET", "/courses/C1/students", null), "roster");
+            Check.equal(404, request(base, "GET", "/courses/C9/students", null), "roster of a missing course");
+
+            Check.equal(400, request(base, "POST", "/students", "studentId=S2&name=%zz&email=b@anits.edu.in"), "malformed percent-encoding");
+            Check.equal(400, request(base, "POST", "/students", "{\"studentId\":\"S2\",\"name\":\"\\uZZZZ\"}"), "malformed JSON escape");
+            Check.equal(400, request(base, "POST", "/enrollments", "studentId=S1"), "missing parameter");
+            Check.equal(404, request(base, "GET", "/studentsX/S1/courses", null), "path that only starts with a context");
+            Check.equal(404, request(base, "GET", "/summaryreport", null), "path that only starts with a context");
+            Check.equal(200, request(base, "GET", "/summary/", null), "trailing slash");
+        }
+        finally 
+        {
+            server.stop();
+            manager.shutdown();
+        }
+    }
+
+    private static int request(String base, String method, String path, String body) throws IOException 
+    {
+        HttpURLConnection connection = (HttpURLConnection) new URL(base + path).openConnection();
+        connection.setRequestMethod(method);
+        if(body != null) 
+        {
+            connection.setDoOutput(true);
+            try(OutputStream out = connection.getOutputStream()) 
+            {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        int status = connection.getResponseCode();
+        try(InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) 
+        {
+            if(in != null) 
+            {
+                in.readAllBytes();
+            }
+        }
+        connection.disconnect();
+        return status;
+    }
+}
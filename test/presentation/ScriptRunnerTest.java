@@ -0,0 +1,61 @@
+package presentation;
+
+import business.EnrollmentManager;
+import business.EnrollmentResult;
+import data.StorageConfig;
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import testing.Check;
+
+// Script commands and the output line each one writes
+public class ScriptRunnerTest 
+{
+    public static void testEmailIsValidatedOnAddAndUpdate() throws Exception 
+    {
+        String output = run(
+            "add-student S1 \"Ann Lee\" ann@anits.edu.in",
+            "add-student S2 Bo bo@example.com",
+            "update-student S1 \"Ann Lee\" not-an-email",
+            "update-student S1 \"Ann Lee\" lee@anits.edu.in");
+        String[] lines = output.split("\\R");
+        Check.equal(EnrollmentResult.STUDENT_ADDED.getMessage(), lines[0], "add with a valid email");
+        Check.equal("Error: Invalid email format.", lines[1], "add with an invalid email");
+        Check.equal("Error: Invalid email format.", lines[2], "update with an invalid email");
+        Check.equal(EnrollmentResult.STUDENT_UPDATED.getMessage(), lines[3], "update with a valid email");
+        Check.isTrue(lines[4].startsWith("4 commands (2 failed)"), "summary line: " + lines[4]);
+    }
+
+    public static void testBatchedEnrollmentsKeepScriptOrder() throws Exception 
+    {
+        String output = run(
+            "add-course C1 Algorithms 1",
+            "add-student S1 Ann ann@anits.edu.in",
+            "add-student S2 Bo bo@anits.edu.in",
+            "enroll S1 C1",
+            "enroll S2 C1",
+            "students C1");
+        String[] lines = output.split("\\R");
+        Check.equal(EnrollmentResult.ENROLLED.getMessage(), lines[3], "first enrollment");
+        Check.isTrue(lines[4].contains(EnrollmentResult.COURSE_FULL.getMessage()), "second enrollment: " + lines[4]);
+        Check.equal("Students enrolled in Algorithms:", lines[5], "roster header");
+        Check.equal("- Ann (ID: S1)", lines[6], "roster");
+    }
+
+    private static String run(String... commands) throws Exception 
+    {
+        StorageConfig config = new StorageConfig();
+        config.setDataDirectory(Check.newDirectory());
+        EnrollmentManager manager = new EnrollmentManager(config);
+        StringWriter out = new StringWriter();
+        try 
+        {
+            new ScriptRunner(manager, out, 10).run(new BufferedReader(new StringReader(String.join("\n", commands))));
+        }
+        finally 
+        {
+            manager.shutdown();
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,72 @@
+package testing;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Comparator;
+
+// Runs every public static no-argument test* method of the suites below and exits with status 1
+// if any of them fails. From the repository root:
+//
+//   javac -d out $(find . -name '*.java') && java -cp out testing.AllTests
+public final class AllTests 
+{
+    private static final Class<?>[] SUITES = {
+        business.EnrollBatchTest.class,
+        business.EnrollmentConcurrencyTest.class,
+        business.RestartTest.class,
+        business.RosterPageTest.class,
+        business.RosterVersionTest.class,
+        business.TransactionTest.class,
+        data.CompressedBitmapTest.class,
+        data.CsvParserTest.class,
+        data.OrdinalSetTest.class,
+        data.WriteBehindQueueTest.class,
+        monitoring.MetricsTest.class,
+        presentation.EnrollmentHttpServerTest.class,
+        presentation.ScriptRunnerTest.class
+    };
+
+    public static void main(String[] args) 
+    {
+        int passed = 0;
+        int failed = 0;
+        for(Class<?> suite : SUITES) 
+        {
+            Method[] methods = suite.getMethods();
+            Arrays.sort(methods, Comparator.comparing(Method::getName));
+            for(Method method : methods) 
+            {
+                if(!method.getName().startsWith("test") || !Modifier.isStatic(method.getModifiers()) || method.getParameterCount() != 0) 
+                {
+                    continue;
+                }
+                String name = suite.getSimpleName() + "." + method.getName();
+                try 
+                {
+                    method.invoke(null);
+                    passed++;
+                    System.out.println("PASS " + name);
+                }
+                catch(InvocationTargetException e) 
+                {
+                    failed++;
+                    System.out.println("FAIL " + name + ": " + e.getCause());
+                    e.getCause().printStackTrace(System.out);
+                }
+                catch(IllegalAccessException e) 
+                {
+                    failed++;
+                    System.out.println("FAIL " + name + ": " + e.getMessage());
+                }
+                finally 
+                {
+                    Check.deleteDirectories();
+                }
+            }
+        }
+        System.out.println(passed + " passed, " + failed + " failed");
+        System.exit(failed == 0 ? 0 : 1);
+    }
+}
@@ -0,0 +1,64 @@
+package testing;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+// Assertions for the tests run by AllTests; a failed check throws AssertionError with its message
+public final class Check 
+{
+    private static final List<File> directories = new ArrayList<>();
+
+    private Check() 
+    {
+    }
+
+    public static void isTrue(boolean condition, String message) 
+    {
+        if(!condition) 
+        {
+            throw new AssertionError(message);
+        }
+    }
+
+    public static void equal(Object expected, Object actual, String message) 
+    {
+        if(!Objects.equals(expected, actual)) 
+        {
+            throw new AssertionError(message + ": expected <" + expected + "> but was <" + actual + ">");
+        }
+    }
+
+    // An empty directory that AllTests deletes once the current test has finished
+    public static File newDirectory() throws IOException 
+    {
+        File directory = Files.createTempDirectory("enrollment-test").toFile();
+        directories.add(directory);
+        return directory;
+    }
+
+    static void deleteDirectories() 
+    {
+        for(File directory : directories) 
+        {
+            delete(directory);
+        }
+        directories.clear();
+    }
+
+    private static void delete(File file) 
+    {
+        File[] children = file.listFiles();
+        if(children != null) 
+        {
+            for(File child : children) 
+            {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}